@@ -0,0 +1,156 @@
+package com.github.alexpumpkin.simulator.admission;
+
+import com.github.alexpumpkin.simulator.orders.api.OrdersService;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Admission control for the order entry requests: per client rate limit, global in-flight limit and matching engine
+ * backlog limit. All checks are lock-free.
+ * <br/>
+ * Client rate limit is a token bucket implemented as GCRA (generic cell rate algorithm): one {@link AtomicLong} per
+ * client stores the theoretical arrival time of the next request. A bucket with the arrival time in the past is full,
+ * it is the same as no bucket, so such idle buckets are evicted periodically.
+ */
+@Slf4j
+public class AdmissionControl {
+    private static final long EVICTION_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicReference<AdmissionLimits> limits;
+    private final Map<String, AtomicLong> clientBuckets = new ConcurrentHashMap<>();
+    private final AtomicLong lastEviction = new AtomicLong(System.nanoTime());
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final OrdersService ordersService;
+
+    public AdmissionControl(AdmissionLimits limits, OrdersService ordersService) {
+        this.limits = new AtomicReference<>(limits);
+        this.ordersService = ordersService;
+    }
+
+    /**
+     * Get current limits.
+     *
+     * @return current limits
+     */
+    public AdmissionLimits getLimits() {
+        return limits.get();
+    }
+
+    /**
+     * Replace current limits. Applied to the next requests.
+     *
+     * @param limits new limits
+     */
+    public void setLimits(AdmissionLimits limits) {
+        log.info("Admission limits changed: {}", limits);
+        this.limits.set(limits);
+    }
+
+    /**
+     * Try to admit the request. Admitted request must be released with {@link #release()} when it is processed.
+     *
+     * @param clientId  client identifier
+     * @param newOrders the request adds new orders (only these requests are limited by the backlog)
+     * @return true if the request is admitted
+     */
+    public boolean tryAcquire(String clientId, boolean newOrders) {
+        AdmissionLimits current = limits.get();
+        if (newOrders && backlogExceeded(current)) {
+            return false;
+        }
+        if (!tryIncrementInFlight(current.maxInFlight())) {
+            return false;
+        }
+        if (current.clientRate() > 0 && !tryConsume(clientId, current)) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Try to admit the batch request. Only the in-flight limit is checked here, every command of the batch is admitted
+     * with {@link #tryAdmitCommand(String, boolean)}. Admitted request must be released with {@link #release()}.
+     *
+     * @return true if the request is admitted
+     */
+    public boolean tryAcquireBatch() {
+        return tryIncrementInFlight(limits.get().maxInFlight());
+    }
+
+    /**
+     * Try to admit one command of the admitted batch request: the command consumes a token of the client rate limit.
+     *
+     * @param clientId client identifier
+     * @param newOrder the command adds new order (only these commands are limited by the backlog)
+     * @return true if the command is admitted
+     */
+    public boolean tryAdmitCommand(String clientId, boolean newOrder) {
+        AdmissionLimits current = limits.get();
+        if (newOrder && backlogExceeded(current)) {
+            return false;
+        }
+        return current.clientRate() <= 0 || tryConsume(clientId, current);
+    }
+
+    /**
+     * Release admitted request.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    private boolean backlogExceeded(AdmissionLimits current) {
+        return current.maxRestingOrders() > 0 && ordersService.restingOrdersCount() >= current.maxRestingOrders();
+    }
+
+    private boolean tryIncrementInFlight(int maxInFlight) {
+        // the limit is checked and the counter is incremented atomically, so concurrent requests could not exceed it
+        while (true) {
+            int current = inFlight.get();
+            if (maxInFlight > 0 && current >= maxInFlight) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean tryConsume(String clientId, AdmissionLimits current) {
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / current.clientRate());
+        long tolerance = interval * current.clientBurst();
+        long now = System.nanoTime();
+        evictIdleBuckets(now);
+        AtomicLong bucket = clientBuckets.computeIfAbsent(clientId, ignored -> new AtomicLong(Long.MIN_VALUE));
+        while (true) {
+            long arrival = bucket.get();
+            long start = arrival == Long.MIN_VALUE || arrival - now < 0 ? now : arrival;
+            if (start - now > tolerance) {
+                return false;
+            }
+            if (bucket.compareAndSet(arrival, start + interval)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Remove the full buckets, so the map does not grow with the client identifiers. One thread sweeps the map at
+     * most once per interval. A request racing with the eviction could consume a token of the removed bucket, the
+     * client gets at most one extra request.
+     */
+    private void evictIdleBuckets(long now) {
+        long last = lastEviction.get();
+        if (now - last < EVICTION_INTERVAL || !lastEviction.compareAndSet(last, now)) {
+            return;
+        }
+        clientBuckets.values().removeIf(bucket -> bucket.get() != Long.MIN_VALUE && bucket.get() - now < 0);
+    }
+}
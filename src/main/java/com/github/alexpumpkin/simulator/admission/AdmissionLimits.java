@@ -0,0 +1,21 @@
+package com.github.alexpumpkin.simulator.admission;
+
+import javax.validation.constraints.PositiveOrZero;
+
+/**
+ * Admission control limits. 0 means no limit.
+ *
+ * @param clientRate       allowed requests per second for one client
+ * @param clientBurst      number of requests one client could send at once above the rate
+ * @param maxInFlight      maximum number of order entry requests processed at the same time
+ * @param maxRestingOrders maximum number of resting orders (matching engine backlog) to accept new orders
+ */
+public record AdmissionLimits(@PositiveOrZero(message = "Client rate must not be negative")
+                              double clientRate,
+                              @PositiveOrZero(message = "Client burst must not be negative")
+                              int clientBurst,
+                              @PositiveOrZero(message = "Max in flight must not be negative")
+                              int maxInFlight,
+                              @PositiveOrZero(message = "Max resting orders must not be negative")
+                              long maxRestingOrders) {
+}
@@ -0,0 +1,156 @@
+package com.github.alexpumpkin.simulator.capacity;
+
+import com.github.alexpumpkin.simulator.model.Order;
+import com.github.alexpumpkin.simulator.orders.api.OrdersService;
+import com.github.alexpumpkin.simulator.orders.model.OrderBook;
+import com.github.alexpumpkin.simulator.orders.services.OrderBooksHolder;
+import com.github.alexpumpkin.simulator.replication.CommandJournal;
+import com.github.alexpumpkin.simulator.trades.TradeBus;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Memory accounting and capacity limits of the order books. New orders are rejected with
+ * {@link CapacityExceededException} when the number of resting orders of the symbol or the estimated heap usage reaches
+ * the limit.
+ * <br/>
+ * Heap usage is estimated by the number of entries of every component and the size of one entry on the 64-bit JVM
+ * with compressed references. The check uses counters only, the number of order book entries is estimated by the
+ * number of resting orders. Executed and cancelled orders are kept for the queries and are not counted by the check,
+ * so the limit is released when the orders complete. {@link #usage()} scans the order books and counts all stored
+ * orders.
+ */
+@Slf4j
+public class CapacityControl {
+    // storage map node, uuid and symbol strings, storage entity with the state and pending cancel references, order,
+    // registration timestamp
+    static final long ORDER_BYTES = 320;
+    // key set nodes of the symbol and owner indexes
+    static final long INDEX_ENTRY_BYTES = 64;
+    // skip list node with the index node, timestamp key, tuple with the boxed quantity
+    static final long BOOK_ENTRY_BYTES = 96;
+    // skip list node with the index node, boxed price, empty skip list of the level
+    static final long PRICE_LEVEL_BYTES = 160;
+    // trade, its uuid string and timestamp, order uuids are shared with the orders
+    static final long TRADE_BYTES = 176;
+    // record with the command, orders and trades are shared
+    static final long JOURNAL_RECORD_BYTES = 48;
+
+    private final AtomicReference<CapacityLimits> limits;
+    private final OrdersService ordersService;
+    private final OrderBooksHolder orderBooksHolder;
+    private final TradeBus tradeBus;
+    private final CommandJournal journal;
+
+    public CapacityControl(CapacityLimits limits, OrdersService ordersService, OrderBooksHolder orderBooksHolder,
+                           TradeBus tradeBus, CommandJournal journal) {
+        this.limits = new AtomicReference<>(limits);
+        this.ordersService = ordersService;
+        this.orderBooksHolder = orderBooksHolder;
+        this.tradeBus = tradeBus;
+        this.journal = journal;
+    }
+
+    /**
+     * Get current limits.
+     *
+     * @return current limits
+     */
+    public CapacityLimits getLimits() {
+        return limits.get();
+    }
+
+    /**
+     * Replace current limits. Applied to the next orders.
+     *
+     * @param limits new limits
+     */
+    public void setLimits(CapacityLimits limits) {
+        log.info("Capacity limits changed: {}", limits);
+        this.limits.set(limits);
+    }
+
+    /**
+     * Check the capacity for the new order. Orders which are not resting in the order book are limited by the heap
+     * usage only.
+     *
+     * @param order new order
+     * @throws CapacityExceededException if the limit is reached
+     */
+    public void check(Order order) {
+        CapacityLimits current = limits.get();
+        if (current.maxOrdersPerSymbol() > 0 && order.resting()) {
+            long resting = ordersService.restingOrdersCount(order.symbol());
+            if (resting >= current.maxOrdersPerSymbol()) {
+                throw new CapacityExceededException("Capacity of symbol %s is exceeded: %s resting orders"
+                        .formatted(order.symbol(), resting));
+            }
+        }
+        if (current.maxBytes() > 0) {
+            long estimatedBytes = estimatedBytes();
+            if (estimatedBytes >= current.maxBytes()) {
+                throw new CapacityExceededException("Memory capacity is exceeded: %s estimated bytes of %s"
+                        .formatted(estimatedBytes, current.maxBytes()));
+            }
+        }
+    }
+
+    /**
+     * Get estimated heap usage of the resting orders, order books, trade replay buffer and command journal by the
+     * counters.
+     *
+     * @return estimated bytes
+     */
+    public long estimatedBytes() {
+        return ordersService.restingOrdersCount() * (ORDER_BYTES + INDEX_ENTRY_BYTES + BOOK_ENTRY_BYTES)
+                + orderBooksHolder.priceLevels() * PRICE_LEVEL_BYTES
+                + replayBytes()
+                + journal.retained() * JOURNAL_RECORD_BYTES;
+    }
+
+    /**
+     * Get estimated heap usage by component and by order book. Order books are scanned, so the order book entries
+     * include the orders not yet removed by the matching engine.
+     *
+     * @return memory usage
+     */
+    public MemoryUsage usage() {
+        List<MemoryUsage.Book> books = new ArrayList<>();
+        long bookEntries = 0;
+        long priceLevels = 0;
+        for (String symbol : orderBooksHolder.allSymbols()) {
+            OrderBook orderBook = orderBooksHolder.getOrderBook(symbol);
+            long entries = orderBook.entries();
+            long levels = orderBook.priceLevels();
+            books.add(new MemoryUsage.Book(symbol, ordersService.restingOrdersCount(symbol), entries, levels,
+                    entries * BOOK_ENTRY_BYTES + levels * PRICE_LEVEL_BYTES));
+            bookEntries += entries;
+            priceLevels += levels;
+        }
+        books.sort(Comparator.comparingLong(MemoryUsage.Book::estimatedBytes).reversed());
+
+        long storedOrders = ordersService.storedOrdersCount();
+        long restingOrders = ordersService.restingOrdersCount();
+        long trades = Math.min(tradeBus.lastSequence(), tradeBus.replayCapacity());
+        List<MemoryUsage.Component> components = List.of(
+                new MemoryUsage.Component("orderStorage", storedOrders, storedOrders * ORDER_BYTES),
+                new MemoryUsage.Component("ordersIndex", restingOrders, restingOrders * INDEX_ENTRY_BYTES),
+                new MemoryUsage.Component("orderBooks", bookEntries,
+                        bookEntries * BOOK_ENTRY_BYTES + priceLevels * PRICE_LEVEL_BYTES),
+                new MemoryUsage.Component("tradeReplay", trades, replayBytes()),
+                new MemoryUsage.Component("commandJournal", journal.retained(),
+                        journal.retained() * JOURNAL_RECORD_BYTES));
+        return new MemoryUsage(components.stream().mapToLong(MemoryUsage.Component::estimatedBytes).sum(),
+                limits.get(), components, books);
+    }
+
+    private long replayBytes() {
+        // references of the ring buffer and the kept trades
+        return tradeBus.replayCapacity() * 4L
+                + Math.min(tradeBus.lastSequence(), tradeBus.replayCapacity()) * TRADE_BYTES;
+    }
+}
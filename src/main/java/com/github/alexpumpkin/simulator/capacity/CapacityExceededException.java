@@ -0,0 +1,11 @@
+package com.github.alexpumpkin.simulator.capacity;
+
+/**
+ * New order is rejected because the capacity limit is reached.
+ */
+public class CapacityExceededException extends RuntimeException {
+
+    public CapacityExceededException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.alexpumpkin.simulator.capacity;
+
+import javax.validation.constraints.PositiveOrZero;
+
+/**
+ * Capacity limits of the order books. 0 means no limit.
+ *
+ * @param maxOrdersPerSymbol maximum number of resting orders of one symbol to accept new resting orders
+ * @param maxBytes           maximum estimated heap usage of the orders, order books, replay buffer and journal to
+ *                           accept new orders
+ */
+public record CapacityLimits(@PositiveOrZero(message = "Max orders per symbol must not be negative")
+                             long maxOrdersPerSymbol,
+                             @PositiveOrZero(message = "Max bytes must not be negative")
+                             long maxBytes) {
+}
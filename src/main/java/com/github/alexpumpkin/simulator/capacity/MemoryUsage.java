@@ -0,0 +1,40 @@
+package com.github.alexpumpkin.simulator.capacity;
+
+import java.util.List;
+
+/**
+ * Estimated heap usage of the simulator.
+ *
+ * @param estimatedBytes estimated bytes of all components
+ * @param limits         current capacity limits
+ * @param components     usage by component
+ * @param books          usage by order book
+ */
+public record MemoryUsage(long estimatedBytes,
+                          CapacityLimits limits,
+                          List<Component> components,
+                          List<Book> books) {
+
+    /**
+     * Estimated heap usage of one component.
+     *
+     * @param name           name of the component
+     * @param entries        number of entries (orders, trades, records)
+     * @param estimatedBytes estimated bytes
+     */
+    public record Component(String name, long entries, long estimatedBytes) {
+    }
+
+    /**
+     * Estimated heap usage of one order book.
+     *
+     * @param symbol         order book's symbol
+     * @param restingOrders  number of resting orders
+     * @param bookEntries    number of entries in the order book, including orders cancelled or executed by another
+     *                       order and not yet removed by the matching engine
+     * @param priceLevels    number of price levels of both sides
+     * @param estimatedBytes estimated bytes of the entries and price levels
+     */
+    public record Book(String symbol, long restingOrders, long bookEntries, long priceLevels, long estimatedBytes) {
+    }
+}
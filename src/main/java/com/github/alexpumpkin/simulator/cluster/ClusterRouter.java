@@ -0,0 +1,93 @@
+package com.github.alexpumpkin.simulator.cluster;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routing of the requests to the engine nodes. Symbols are assigned to nodes with {@link ConsistentHashRing},
+ * orders are found by UUID in the directory filled when the orders are routed. The directory is bounded: the oldest
+ * orders are evicted first and orders in a final state could be removed, missing orders are looked up on all nodes.
+ */
+public class ClusterRouter {
+    private final List<String> nodes;
+    private final ConsistentHashRing ring;
+    private final int directoryCapacity;
+    private final Map<String, String> directory = new ConcurrentHashMap<>();
+    // registration order of the directory, could contain UUIDs which are already removed
+    private final Queue<String> registered = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger registeredCount = new AtomicInteger();
+
+    /**
+     * @param nodes             base URLs of the nodes
+     * @param directoryCapacity maximum number of orders in the directory
+     */
+    public ClusterRouter(List<String> nodes, int directoryCapacity) {
+        if (directoryCapacity <= 0) {
+            throw new IllegalArgumentException("Directory capacity must be positive: " + directoryCapacity);
+        }
+        this.nodes = List.copyOf(nodes);
+        this.ring = new ConsistentHashRing(this.nodes);
+        this.directoryCapacity = directoryCapacity;
+    }
+
+    /**
+     * Get all nodes.
+     *
+     * @return base URLs of all nodes
+     */
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    /**
+     * Get node for the symbol.
+     *
+     * @param symbol order book's symbol
+     * @return base URL of the node
+     */
+    public String nodeForSymbol(String symbol) {
+        return ring.node(symbol);
+    }
+
+    /**
+     * Get node of the order.
+     *
+     * @param uuid UUID of the order
+     * @return base URL of the node or empty if the order is not in the directory
+     */
+    public Optional<String> nodeForOrder(String uuid) {
+        return Optional.ofNullable(directory.get(uuid));
+    }
+
+    /**
+     * Register node of the order.
+     *
+     * @param uuid UUID of the order
+     * @param node base URL of the node
+     */
+    public void register(String uuid, String node) {
+        directory.put(uuid, node);
+        registered.add(uuid);
+        if (registeredCount.incrementAndGet() > directoryCapacity) {
+            String evicted = registered.poll();
+            if (evicted != null) {
+                registeredCount.decrementAndGet();
+                directory.remove(evicted);
+            }
+        }
+    }
+
+    /**
+     * Remove the order from the directory, e.g. when it is in a final state.
+     *
+     * @param uuid UUID of the order
+     */
+    public void unregister(String uuid) {
+        directory.remove(uuid);
+    }
+}
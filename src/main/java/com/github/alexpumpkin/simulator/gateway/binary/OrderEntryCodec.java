@@ -0,0 +1,141 @@
+package com.github.alexpumpkin.simulator.gateway.binary;
+
+import com.github.alexpumpkin.simulator.model.Order;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed layout binary codec of the order entry messages. Integers are big-endian, strings are ASCII right-padded
+ * with zero bytes, enums are encoded by ordinal.
+ * <pre>
+ * NEW    (87 bytes): type=1 (1), order type (1), time in force (1), price (4), quantity (4), symbol (8), owner (32),
+ *                    uuid (36)
+ * CANCEL (37 bytes): type=2 (1), uuid (36)
+ * ACK    (38 bytes): type=3 (1), order state (1), uuid (36)
+ * REJECT (38 bytes): type=4 (1), reject reason (1), uuid (36)
+ * </pre>
+ */
+public final class OrderEntryCodec {
+    public static final int SYMBOL_LENGTH = 8;
+    public static final int UUID_LENGTH = 36;
+    public static final int OWNER_LENGTH = 32;
+
+    static final byte NEW = 1;
+    static final byte CANCEL = 2;
+    static final byte ACK = 3;
+    static final byte REJECT = 4;
+
+    private static final Order.Type[] TYPES = Order.Type.values();
+    private static final Order.TimeInForce[] TIMES_IN_FORCE = Order.TimeInForce.values();
+    private static final Order.State[] STATES = Order.State.values();
+    private static final OrderEntryMessage.RejectReason[] REJECT_REASONS = OrderEntryMessage.RejectReason.values();
+
+    private OrderEntryCodec() {
+    }
+
+    /**
+     * Get length of the message by its type.
+     *
+     * @param messageType first byte of the message
+     * @return length of the message including the type byte or -1 for unknown type
+     */
+    public static int length(byte messageType) {
+        return switch (messageType) {
+            case NEW -> 3 + 4 + 4 + SYMBOL_LENGTH + OWNER_LENGTH + UUID_LENGTH;
+            case CANCEL -> 1 + UUID_LENGTH;
+            case ACK, REJECT -> 2 + UUID_LENGTH;
+            default -> -1;
+        };
+    }
+
+    /**
+     * Encode message to the new buffer.
+     *
+     * @param message   message to encode
+     * @param allocator buffer allocator
+     * @return buffer with encoded message
+     */
+    public static ByteBuf encode(OrderEntryMessage message, ByteBufAllocator allocator) {
+        ByteBuf buffer;
+        if (message instanceof OrderEntryMessage.NewOrder newOrder) {
+            buffer = allocator.buffer(length(NEW));
+            buffer.writeByte(NEW);
+            buffer.writeByte(newOrder.type().ordinal());
+            buffer.writeByte(newOrder.timeInForce().ordinal());
+            buffer.writeInt(newOrder.price());
+            buffer.writeInt(newOrder.quantity());
+            writeString(buffer, newOrder.symbol(), SYMBOL_LENGTH);
+            writeString(buffer, newOrder.owner(), OWNER_LENGTH);
+        } else if (message instanceof OrderEntryMessage.CancelOrder) {
+            buffer = allocator.buffer(length(CANCEL));
+            buffer.writeByte(CANCEL);
+        } else if (message instanceof OrderEntryMessage.Ack ack) {
+            buffer = allocator.buffer(length(ACK));
+            buffer.writeByte(ACK);
+            buffer.writeByte(ack.state().ordinal());
+        } else {
+            OrderEntryMessage.Reject reject = (OrderEntryMessage.Reject) message;
+            buffer = allocator.buffer(length(REJECT));
+            buffer.writeByte(REJECT);
+            buffer.writeByte(reject.reason().ordinal());
+        }
+        writeString(buffer, message.uuid(), UUID_LENGTH);
+        return buffer;
+    }
+
+    /**
+     * Decode message. The buffer must contain the whole message, see {@link #length(byte)}.
+     *
+     * @param buffer buffer to read
+     * @return decoded message
+     * @throws IllegalArgumentException if the message type or one of enums is unknown
+     */
+    public static OrderEntryMessage decode(ByteBuf buffer) {
+        byte messageType = buffer.readByte();
+        return switch (messageType) {
+            case NEW -> {
+                Order.Type type = TYPES[checkOrdinal(buffer.readByte(), TYPES.length)];
+                Order.TimeInForce timeInForce = TIMES_IN_FORCE[checkOrdinal(buffer.readByte(), TIMES_IN_FORCE.length)];
+                int price = buffer.readInt();
+                int quantity = buffer.readInt();
+                String symbol = readString(buffer, SYMBOL_LENGTH);
+                String owner = readString(buffer, OWNER_LENGTH);
+                yield new OrderEntryMessage.NewOrder(type, timeInForce, price, quantity, symbol,
+                        owner.isEmpty() ? null : owner, readString(buffer, UUID_LENGTH));
+            }
+            case CANCEL -> new OrderEntryMessage.CancelOrder(readString(buffer, UUID_LENGTH));
+            case ACK -> new OrderEntryMessage.Ack(STATES[checkOrdinal(buffer.readByte(), STATES.length)],
+                    readString(buffer, UUID_LENGTH));
+            case REJECT -> new OrderEntryMessage.Reject(
+                    REJECT_REASONS[checkOrdinal(buffer.readByte(), REJECT_REASONS.length)],
+                    readString(buffer, UUID_LENGTH));
+            default -> throw new IllegalArgumentException("Unknown message type " + messageType);
+        };
+    }
+
+    private static int checkOrdinal(byte ordinal, int size) {
+        if (ordinal < 0 || ordinal >= size) {
+            throw new IllegalArgumentException("Unknown ordinal " + ordinal);
+        }
+        return ordinal;
+    }
+
+    private static void writeString(ByteBuf buffer, String value, int length) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length > length) {
+            throw new IllegalArgumentException("Value is longer than %s bytes: %s".formatted(length, value));
+        }
+        buffer.writeBytes(bytes);
+        buffer.writeZero(length - bytes.length);
+    }
+
+    private static String readString(ByteBuf buffer, int length) {
+        int start = buffer.readerIndex();
+        int end = buffer.indexOf(start, start + length, (byte) 0);
+        String value = buffer.toString(start, (end < 0 ? start + length : end) - start, StandardCharsets.US_ASCII);
+        buffer.skipBytes(length);
+        return value;
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.alexpumpkin.simulator.gateway.binary;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CorruptedFrameException;
+
+import java.util.List;
+
+/**
+ * Netty decoder of the order entry messages. Splits the stream by the message length defined by the message type.
+ * Unknown message type breaks the stream, so the connection is closed with {@link CorruptedFrameException}.
+ */
+public class OrderEntryDecoder extends ByteToMessageDecoder {
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+        while (in.isReadable()) {
+            int length = OrderEntryCodec.length(in.getByte(in.readerIndex()));
+            if (length < 0) {
+                throw new CorruptedFrameException("Unknown message type " + in.getByte(in.readerIndex()));
+            }
+            if (in.readableBytes() < length) {
+                return;
+            }
+            try {
+                out.add(OrderEntryCodec.decode(in.readSlice(length)));
+            } catch (IllegalArgumentException e) {
+                throw new CorruptedFrameException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.alexpumpkin.simulator.gateway.binary;
+
+import com.github.alexpumpkin.simulator.model.Order;
+
+/**
+ * Messages of the binary order entry channel. Binary layout is described in {@link OrderEntryCodec}.
+ */
+public sealed interface OrderEntryMessage {
+
+    /**
+     * Get UUID of the order the message is related to.
+     *
+     * @return UUID of the order
+     */
+    String uuid();
+
+    /**
+     * Request to add new order.
+     *
+     * @param type        type of the order (buy or sell)
+     * @param timeInForce time in force of the order
+     * @param price       price to buy/sell, {@link Order#MARKET_PRICE} for the IOC or FOK market order
+     * @param quantity    quantity to buy/sell
+     * @param symbol      order book's symbol
+     * @param owner       client/owner tag of the order, empty or null if there is no owner
+     * @param uuid        universal unique identifier of the order
+     */
+    record NewOrder(Order.Type type, Order.TimeInForce timeInForce, int price, int quantity, String symbol,
+                    String owner, String uuid) implements OrderEntryMessage {
+
+        /**
+         * Request to add new GTC order without the owner.
+         */
+        public NewOrder(Order.Type type, int price, int quantity, String symbol, String uuid) {
+            this(type, Order.TimeInForce.GTC, price, quantity, symbol, null, uuid);
+        }
+    }
+
+    /**
+     * Request to cancel order.
+     *
+     * @param uuid universal unique identifier of the order
+     */
+    record CancelOrder(String uuid) implements OrderEntryMessage {
+    }
+
+    /**
+     * Successful response to the request.
+     *
+     * @param state current state of the order
+     * @param uuid  universal unique identifier of the order
+     */
+    record Ack(Order.State state, String uuid) implements OrderEntryMessage {
+    }
+
+    /**
+     * Failed response to the request.
+     *
+     * @param reason reason of the failure
+     * @param uuid   universal unique identifier of the order
+     */
+    record Reject(RejectReason reason, String uuid) implements OrderEntryMessage {
+    }
+
+    /**
+     * Reject reason
+     */
+    enum RejectReason {
+        INVALID_MESSAGE,
+        NOT_FOUND,
+        NOT_ALLOWED,
+        LOCKED,
+        INTERNAL_ERROR,
+        CAPACITY_EXCEEDED,
+        RISK_LIMIT,
+        UNAVAILABLE,
+        RATE_LIMITED
+    }
+}
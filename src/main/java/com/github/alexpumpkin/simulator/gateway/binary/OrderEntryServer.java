@@ -0,0 +1,171 @@
+package com.github.alexpumpkin.simulator.gateway.binary;
+
+import com.github.alexpumpkin.simulator.admission.AdmissionControl;
+import com.github.alexpumpkin.simulator.capacity.CapacityControl;
+import com.github.alexpumpkin.simulator.capacity.CapacityExceededException;
+import com.github.alexpumpkin.simulator.model.AddOrderDTO;
+import com.github.alexpumpkin.simulator.matching.MatchingEngine;
+import com.github.alexpumpkin.simulator.model.Order;
+import com.github.alexpumpkin.simulator.orders.api.OrdersService;
+import com.github.alexpumpkin.simulator.replication.ReplicaClient;
+import com.github.alexpumpkin.simulator.risk.RiskLimitException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.NettyInbound;
+import reactor.netty.tcp.TcpServer;
+
+/**
+ * TCP server of the binary order entry channel. Every connection is a stream of {@link OrderEntryMessage.NewOrder}
+ * and {@link OrderEntryMessage.CancelOrder} requests, acks and rejects are sent back in the order of requests.
+ * Requests are processed concurrently, so a deferred cancel does not block the following requests.
+ * <br/>
+ * Every request passes {@link AdmissionControl}, the connection is the client of the rate limit. Rejected requests
+ * get {@link OrderEntryMessage.RejectReason#RATE_LIMITED}.
+ * <br/>
+ * IOC and FOK orders are executed by the {@link MatchingEngine} right away, the ack contains the final state of the
+ * order (fills are published as trades only).
+ * <br/>
+ * Like the web order entry, requests are rejected as {@link OrderEntryMessage.RejectReason#UNAVAILABLE} while the node
+ * is a replica, orders of the replica are changed by the replication only.
+ */
+@Slf4j
+public class OrderEntryServer {
+    private static final int MAX_IN_FLIGHT = 256;
+
+    private final OrdersService ordersService;
+    private final MatchingEngine matchingEngine;
+    private final AdmissionControl admissionControl;
+    private final CapacityControl capacityControl;
+    private final ReplicaClient replicaClient;
+    private final int port;
+    private DisposableServer server;
+
+    /**
+     * @param ordersService    orders service
+     * @param matchingEngine   matching engine to execute IOC and FOK orders
+     * @param admissionControl admission control of the requests
+     * @param capacityControl  capacity control of the new orders
+     * @param replicaClient    replication of the node, null if the node is not a replica
+     * @param port             port to bind
+     */
+    public OrderEntryServer(OrdersService ordersService, MatchingEngine matchingEngine,
+                            AdmissionControl admissionControl, CapacityControl capacityControl,
+                            ReplicaClient replicaClient, int port) {
+        this.ordersService = ordersService;
+        this.matchingEngine = matchingEngine;
+        this.admissionControl = admissionControl;
+        this.capacityControl = capacityControl;
+        this.replicaClient = replicaClient;
+        this.port = port;
+    }
+
+    /**
+     * Bind the server.
+     */
+    public void start() {
+        server = TcpServer.create()
+                .port(port)
+                .doOnConnection(connection -> connection.addHandlerLast(new OrderEntryDecoder()))
+                .handle((inbound, outbound) -> {
+                    String clientId = clientId(inbound);
+                    return outbound.send(inbound.receiveObject()
+                            .cast(OrderEntryMessage.class)
+                            .flatMapSequential(message -> process(clientId, message), MAX_IN_FLIGHT)
+                            .map(reply -> OrderEntryCodec.encode(reply, outbound.alloc())));
+                })
+                .bindNow();
+        log.info("Order entry server started on port {}", server.port());
+    }
+
+    /**
+     * Get the bound port.
+     *
+     * @return port of the server
+     */
+    public int port() {
+        return server.port();
+    }
+
+    /**
+     * Stop the server.
+     */
+    public void dispose() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    private static String clientId(NettyInbound inbound) {
+        String[] clientId = new String[1];
+        inbound.withConnection(connection -> clientId[0] = connection.channel().id().asLongText());
+        return clientId[0];
+    }
+
+    private Mono<OrderEntryMessage> process(String clientId, OrderEntryMessage message) {
+        return Mono.defer(() -> {
+                    if (replicaClient != null && !replicaClient.isPromoted()) {
+                        return Mono.just(reject(message, OrderEntryMessage.RejectReason.UNAVAILABLE));
+                    } else if (!admissionControl.tryAcquire(clientId,
+                            message instanceof OrderEntryMessage.NewOrder)) {
+                        return Mono.just(reject(message, OrderEntryMessage.RejectReason.RATE_LIMITED));
+                    }
+                    return Mono.defer(() -> process(message))
+                            .doFinally(ignored -> admissionControl.release());
+                })
+                .onErrorResume(ResponseStatusException.class, e -> Mono.just(reject(message, switch (e.getStatus()) {
+                    case NOT_FOUND -> OrderEntryMessage.RejectReason.NOT_FOUND;
+                    case LOCKED -> OrderEntryMessage.RejectReason.LOCKED;
+                    case BAD_REQUEST -> OrderEntryMessage.RejectReason.INVALID_MESSAGE;
+                    default -> OrderEntryMessage.RejectReason.NOT_ALLOWED;
+                })))
+                .onErrorResume(CapacityExceededException.class, e ->
+                        Mono.just(reject(message, OrderEntryMessage.RejectReason.CAPACITY_EXCEEDED)))
+                .onErrorResume(RiskLimitException.class, e ->
+                        Mono.just(reject(message, OrderEntryMessage.RejectReason.RISK_LIMIT)))
+                .onErrorResume(e -> {
+                    log.error("Generic error: ", e);
+                    return Mono.just(reject(message, OrderEntryMessage.RejectReason.INTERNAL_ERROR));
+                });
+    }
+
+    private Mono<OrderEntryMessage> process(OrderEntryMessage message) {
+        if (message instanceof OrderEntryMessage.NewOrder newOrder) {
+            return add(newOrder);
+        } else if (message instanceof OrderEntryMessage.CancelOrder cancelOrder) {
+            return cancel(cancelOrder);
+        }
+        return Mono.just(reject(message, OrderEntryMessage.RejectReason.INVALID_MESSAGE));
+    }
+
+    private Mono<OrderEntryMessage> add(OrderEntryMessage.NewOrder newOrder) {
+        // the price is optional for the IOC and FOK orders only, they are market orders without the price
+        boolean market = newOrder.price() == Order.MARKET_PRICE && newOrder.timeInForce() != Order.TimeInForce.GTC;
+        if ((newOrder.price() <= 0 && !market) || newOrder.quantity() <= 0
+                || newOrder.symbol().isEmpty() || newOrder.uuid().isEmpty()) {
+            return Mono.just(reject(newOrder, OrderEntryMessage.RejectReason.INVALID_MESSAGE));
+        }
+        AddOrderDTO dto = new AddOrderDTO(newOrder.symbol(), newOrder.quantity(), newOrder.price(), newOrder.uuid(),
+                newOrder.owner(), newOrder.timeInForce());
+        Order order = newOrder.type() == Order.Type.BUY ? Order.buy(dto) : Order.sell(dto);
+        capacityControl.check(order);
+        if (!order.resting()) {
+            return matchingEngine.execute(order)
+                    .map(report -> new OrderEntryMessage.Ack(report.order().state(), order.uuid()));
+        }
+        return ordersService.add(order)
+                .map(added -> new OrderEntryMessage.Ack(added.state(), added.uuid()));
+    }
+
+    private Mono<OrderEntryMessage> cancel(OrderEntryMessage.CancelOrder cancelOrder) {
+        return ordersService.cancel(cancelOrder.uuid())
+                .then(ordersService.getOrderByUUID(cancelOrder.uuid()))
+                .map(order -> (OrderEntryMessage) new OrderEntryMessage.Ack(order.state(), order.uuid()))
+                .defaultIfEmpty(new OrderEntryMessage.Ack(Order.State.CANCELLED, cancelOrder.uuid()));
+    }
+
+    private static OrderEntryMessage reject(OrderEntryMessage message, OrderEntryMessage.RejectReason reason) {
+        return new OrderEntryMessage.Reject(reason, message.uuid());
+    }
+}
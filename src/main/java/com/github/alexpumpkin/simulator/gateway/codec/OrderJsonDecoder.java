@@ -0,0 +1,131 @@
+package com.github.alexpumpkin.simulator.gateway.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.alexpumpkin.simulator.model.AddOrderDTO;
+import com.github.alexpumpkin.simulator.model.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decoder of the new order request body. Reads the body buffer with the Jackson streaming parser straight into the
+ * {@link Order} and checks {@link AddOrderDTO} constraints without reflection. Error messages are the same as the
+ * {@link AddOrderDTO} constraints messages.
+ */
+public class OrderJsonDecoder {
+    private final JsonFactory jsonFactory;
+
+    public OrderJsonDecoder(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * Decode new order.
+     *
+     * @param body request body
+     * @param type type of the new order
+     * @return new order or error Mono with {@link OrderValidationException} or {@link ServerWebInputException}
+     */
+    public Mono<Order> decode(Flux<DataBuffer> body, Order.Type type) {
+        return DataBufferUtils.join(body)
+                .map(buffer -> decode(buffer, type));
+    }
+
+    private Order decode(DataBuffer buffer, Order.Type type) {
+        String symbol = null;
+        Integer quantity = null;
+        Integer price = null;
+        String uuid = null;
+        String owner = null;
+        String timeInForce = null;
+        try (JsonParser parser = jsonFactory.createParser(buffer.asInputStream(true))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new ServerWebInputException("JSON object expected");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                switch (field) {
+                    case "symbol" -> symbol = readString(parser, token);
+                    case "quantity" -> quantity = readInteger(parser, token);
+                    case "price" -> price = readInteger(parser, token);
+                    case "uuid" -> uuid = readString(parser, token);
+                    case "owner" -> owner = readString(parser, token);
+                    case "timeInForce" -> timeInForce = readString(parser, token);
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new ServerWebInputException("Failed to read HTTP message", null, e);
+        }
+
+        Order.TimeInForce orderTimeInForce = timeInForce(timeInForce);
+        List<String> errors = validate(symbol, quantity, price, uuid, orderTimeInForce);
+        if (!errors.isEmpty()) {
+            throw new OrderValidationException(errors);
+        }
+        //noinspection ConstantConditions
+        return Order.create(type, uuid, symbol, quantity, price == null ? Order.MARKET_PRICE : price, owner,
+                orderTimeInForce);
+    }
+
+    private static Order.TimeInForce timeInForce(String value) {
+        try {
+            return value == null ? Order.TimeInForce.GTC : Order.TimeInForce.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            throw new OrderValidationException(List.of("Unknown time in force"));
+        }
+    }
+
+    /**
+     * Price is optional for the IOC and FOK orders only, they are market orders without the price.
+     */
+    private static List<String> validate(String symbol, Integer quantity, Integer price, String uuid,
+                                         Order.TimeInForce timeInForce) {
+        List<String> errors = new ArrayList<>(0);
+        if (symbol == null) {
+            errors.add("Symbol must not be null");
+        }
+        if (quantity == null) {
+            errors.add("Quantity must not be null");
+        } else if (quantity <= 0) {
+            errors.add("Quantity must be positive");
+        }
+        if (price == null) {
+            if (timeInForce == Order.TimeInForce.GTC) {
+                errors.add("Price must not be null");
+            }
+        } else if (price <= 0) {
+            errors.add("Price must be positive");
+        }
+        if (uuid == null) {
+            errors.add("uuid must not be null");
+        }
+        return errors;
+    }
+
+    private static String readString(JsonParser parser, JsonToken token) throws IOException {
+        return switch (token) {
+            case VALUE_NULL -> null;
+            case VALUE_STRING, VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT, VALUE_TRUE, VALUE_FALSE -> parser.getText();
+            default -> throw new ServerWebInputException("String expected");
+        };
+    }
+
+    private static Integer readInteger(JsonParser parser, JsonToken token) throws IOException {
+        return switch (token) {
+            case VALUE_NULL -> null;
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> parser.getIntValue();
+            case VALUE_STRING -> parser.getText().isEmpty() ? null : Integer.valueOf(parser.getText().trim());
+            default -> throw new ServerWebInputException("Integer expected");
+        };
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.alexpumpkin.simulator.gateway.codec;
+
+import java.util.List;
+
+/**
+ * Validation error of the new order request.
+ */
+public class OrderValidationException extends RuntimeException {
+    private final List<String> errors;
+
+    public OrderValidationException(List<String> errors) {
+        super(String.join(", ", errors), null, false, false);
+        this.errors = errors;
+    }
+
+    /**
+     * Get validation error messages.
+     *
+     * @return error messages
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+}
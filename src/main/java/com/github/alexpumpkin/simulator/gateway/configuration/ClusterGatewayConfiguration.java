@@ -0,0 +1,74 @@
+package com.github.alexpumpkin.simulator.gateway.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.alexpumpkin.simulator.cluster.ClusterRouter;
+import com.github.alexpumpkin.simulator.gateway.handlers.ClusterGatewayHandler;
+import com.github.alexpumpkin.simulator.gateway.handlers.ClusterOrderEventsHandler;
+import com.github.alexpumpkin.simulator.gateway.handlers.ClusterTradesHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.contentType;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Configuration of the cluster gateway, routing requests to the engine nodes by symbol.
+ */
+@Configuration
+@Profile("gateway")
+public class ClusterGatewayConfiguration {
+
+    @Bean
+    ClusterRouter clusterRouter(@Value("${simulator.cluster.nodes}") List<String> nodes,
+                                @Value("${simulator.cluster.directory-capacity:1000000}") int directoryCapacity) {
+        return new ClusterRouter(nodes, directoryCapacity);
+    }
+
+    @Bean
+    ClusterGatewayHandler clusterGatewayHandler(ClusterRouter clusterRouter, WebClient.Builder webClientBuilder,
+                                                ObjectMapper objectMapper) {
+        return new ClusterGatewayHandler(clusterRouter, webClientBuilder.build(), objectMapper);
+    }
+
+    @Bean
+    RouterFunction<ServerResponse> gatewayRouterFunction(ClusterGatewayHandler handler) {
+        return route()
+                .POST("/orders/buy", contentType(MediaType.APPLICATION_JSON), handler::addOrder)
+                .POST("/orders/sell", contentType(MediaType.APPLICATION_JSON), handler::addOrder)
+                .PATCH("/orders/{uuid}", contentType(MediaType.APPLICATION_JSON), handler::forwardByUuid)
+                .DELETE("/orders/symbols/{symbol}", handler::forwardBySymbol)
+                .DELETE("/orders/owners/{owner}", handler::collectFromAllNodes)
+                .DELETE("/orders/{uuid}", handler::forwardByUuid)
+                .POST("/orders/symbols/{symbol}/auction", handler::forwardBySymbol)
+                .GET("/orders", handler::findOpenOrders)
+                .GET("/orders/{uuid}", handler::forwardByUuid)
+                .GET("/admission/limits", handler::forwardToAllNodes)
+                .PUT("/admission/limits", contentType(MediaType.APPLICATION_JSON), handler::forwardToAllNodes)
+                .GET("/capacity", handler::forwardToAllNodes)
+                .PUT("/capacity/limits", contentType(MediaType.APPLICATION_JSON), handler::forwardToAllNodes)
+                .GET("/risk/limits", handler::forwardToAllNodes)
+                .PUT("/risk/limits", contentType(MediaType.APPLICATION_JSON), handler::forwardToAllNodes)
+                .GET("/risk/accounts/{owner}", handler::collectFromAllNodes)
+                .build();
+    }
+
+    @Bean
+    HandlerMapping gatewayHandlerMapping(ClusterRouter clusterRouter) {
+        ReactorNettyWebSocketClient webSocketClient = new ReactorNettyWebSocketClient();
+        return new SimpleUrlHandlerMapping(Map.of(
+                "/trades", new ClusterTradesHandler(clusterRouter, webSocketClient),
+                "/orders/events", new ClusterOrderEventsHandler(clusterRouter, webSocketClient)), -1);
+    }
+}
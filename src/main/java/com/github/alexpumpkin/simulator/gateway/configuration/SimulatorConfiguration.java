@@ -1,20 +1,57 @@
 package com.github.alexpumpkin.simulator.gateway.configuration;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.alexpumpkin.simulator.admission.AdmissionControl;
+import com.github.alexpumpkin.simulator.admission.AdmissionLimits;
+import com.github.alexpumpkin.simulator.capacity.CapacityControl;
+import com.github.alexpumpkin.simulator.capacity.CapacityLimits;
+import com.github.alexpumpkin.simulator.gateway.binary.OrderEntryServer;
+import com.github.alexpumpkin.simulator.gateway.codec.OrderJsonDecoder;
+import com.github.alexpumpkin.simulator.gateway.filters.AdmissionControlFilter;
+import com.github.alexpumpkin.simulator.gateway.filters.ReplicaFilter;
+import com.github.alexpumpkin.simulator.gateway.handlers.AdmissionHandler;
+import com.github.alexpumpkin.simulator.gateway.handlers.CapacityHandler;
 import com.github.alexpumpkin.simulator.gateway.handlers.OrdersHandler;
+import com.github.alexpumpkin.simulator.gateway.handlers.ReplicationHandler;
+import com.github.alexpumpkin.simulator.gateway.handlers.RiskHandler;
+import com.github.alexpumpkin.simulator.gateway.handlers.TradeArchiveHandler;
+import com.github.alexpumpkin.simulator.gateway.ipc.IpcFeedPublisher;
+import com.github.alexpumpkin.simulator.gateway.marketdata.MarketDataPublisher;
+import com.github.alexpumpkin.simulator.gateway.marketdata.MarketDataServer;
 import com.github.alexpumpkin.simulator.matching.MatchingEngine;
 import com.github.alexpumpkin.simulator.orders.api.OrdersService;
 import com.github.alexpumpkin.simulator.orders.services.OrderBooksHolder;
 import com.github.alexpumpkin.simulator.orders.services.OrdersServiceImpl;
+import com.github.alexpumpkin.simulator.replication.CommandJournal;
+import com.github.alexpumpkin.simulator.replication.ReplicaClient;
+import com.github.alexpumpkin.simulator.replication.ReplicationServer;
+import com.github.alexpumpkin.simulator.risk.RiskControl;
+import com.github.alexpumpkin.simulator.risk.RiskLimits;
 import com.github.alexpumpkin.simulator.trades.TradeBus;
 import com.github.alexpumpkin.simulator.trades.TradeStorage;
+import com.github.alexpumpkin.simulator.trades.archive.TradeArchive;
+import com.github.alexpumpkin.simulator.trades.archive.TradeArchiver;
+import com.github.alexpumpkin.simulator.warmup.WarmUpRunner;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.validation.Validator;
 
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
 /**
  * Simulator configuration for logic beans
  */
 @Configuration
+@Profile("!gateway")
 public class SimulatorConfiguration {
 
     @Bean
@@ -23,24 +60,185 @@ public class SimulatorConfiguration {
     }
 
     @Bean
-    OrdersService ordersService(OrderBooksHolder orderBooksHolder) {
-        return new OrdersServiceImpl(orderBooksHolder);
+    CommandJournal commandJournal(@Value("${simulator.replication.port:}") String replicationPort,
+                                  @Value("${simulator.replication.primary:}") String primary) {
+        // the replica journals applied commands too, to become the primary after the promotion
+        return new CommandJournal(!replicationPort.isEmpty() || !primary.isEmpty());
+    }
+
+    @Bean
+    RiskControl riskControl(@Value("${simulator.risk.max-order-quantity:0}") long maxOrderQuantity,
+                            @Value("${simulator.risk.max-order-notional:0}") long maxOrderNotional,
+                            @Value("${simulator.risk.max-position:0}") long maxPosition) {
+        return new RiskControl(new RiskLimits(maxOrderQuantity, maxOrderNotional, maxPosition));
+    }
+
+    @Bean
+    OrdersServiceImpl ordersService(OrderBooksHolder orderBooksHolder, CommandJournal commandJournal,
+                                    RiskControl riskControl) {
+        return new OrdersServiceImpl(orderBooksHolder, commandJournal, riskControl);
     }
 
 
     @Bean
-    OrdersHandler ordersHandler(Validator validator, OrdersService ordersService) {
-        return new OrdersHandler(validator, ordersService);
+    OrderJsonDecoder orderJsonDecoder(ObjectMapper objectMapper) {
+        return new OrderJsonDecoder(objectMapper.getFactory());
+    }
+
+    @Bean
+    OrdersHandler ordersHandler(Validator validator, OrderJsonDecoder orderJsonDecoder, OrdersService ordersService,
+                                MatchingEngine matchingEngine, CapacityControl capacityControl,
+                                AdmissionControl admissionControl) {
+        return new OrdersHandler(validator, orderJsonDecoder, ordersService, matchingEngine, capacityControl,
+                admissionControl);
+    }
+
+    @Bean
+    TradeBus tradeBus(CommandJournal commandJournal,
+                      @Value("${simulator.trades.replay-capacity:100000}") int replayCapacity) {
+        return new TradeBus(commandJournal, replayCapacity);
+    }
+
+    @Bean
+    MatchingEngine matchingEngine(OrdersService ordersService, OrderBooksHolder orderBooksHolder, TradeBus tradeBus,
+                                  @Value("${simulator.auction.symbols:}") List<String> auctionSymbols,
+                                  @Value("${simulator.auction.interval:1m}") Duration auctionInterval,
+                                  @Value("${simulator.matching.report-timeout:5s}") Duration reportTimeout) {
+        return new MatchingEngine(ordersService, orderBooksHolder, tradeBus, Set.copyOf(auctionSymbols),
+                auctionInterval, reportTimeout);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "dispose")
+    @ConditionalOnProperty("simulator.order-entry.port")
+    OrderEntryServer orderEntryServer(OrdersService ordersService, MatchingEngine matchingEngine,
+                                      AdmissionControl admissionControl, CapacityControl capacityControl,
+                                      ObjectProvider<ReplicaClient> replicaClient,
+                                      @Value("${simulator.order-entry.port}") int port) {
+        return new OrderEntryServer(ordersService, matchingEngine, admissionControl, capacityControl,
+                replicaClient.getIfAvailable(), port);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "dispose")
+    @ConditionalOnProperty("simulator.market-data.group")
+    MarketDataPublisher marketDataPublisher(TradeBus tradeBus,
+                                            @Value("${simulator.market-data.group}") String group,
+                                            @Value("${simulator.market-data.interface:}") String networkInterface,
+                                            @Value("${simulator.market-data.max-payload:1400}") int maxPayload,
+                                            @Value("${simulator.market-data.ttl:1}") int ttl) {
+        int separator = group.lastIndexOf(':');
+        return new MarketDataPublisher(tradeBus, new InetSocketAddress(group.substring(0, separator),
+                Integer.parseInt(group.substring(separator + 1))), networkInterface, maxPayload, ttl);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "dispose")
+    @ConditionalOnProperty("simulator.ipc.file")
+    IpcFeedPublisher ipcFeedPublisher(TradeBus tradeBus, OrdersService ordersService,
+                                      @Value("${simulator.ipc.file}") Path file,
+                                      @Value("${simulator.ipc.slots:65536}") int slots) {
+        return new IpcFeedPublisher(tradeBus, ordersService, file, slots);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "dispose")
+    @ConditionalOnProperty("simulator.market-data.port")
+    MarketDataServer marketDataServer(TradeBus tradeBus, OrderBooksHolder orderBooksHolder,
+                                      @Value("${simulator.market-data.port}") int port) {
+        return new MarketDataServer(tradeBus, orderBooksHolder, port);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "dispose")
+    @ConditionalOnProperty("simulator.replication.port")
+    ReplicationServer replicationServer(CommandJournal commandJournal, ObjectMapper objectMapper,
+                                        @Value("${simulator.replication.port}") int port) {
+        return new ReplicationServer(commandJournal, objectMapper, port);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "dispose")
+    @ConditionalOnProperty("simulator.replication.primary")
+    ReplicaClient replicaClient(OrdersServiceImpl ordersService, MatchingEngine matchingEngine,
+                                ObjectMapper objectMapper, @Value("${simulator.replication.primary}") String primary) {
+        int separator = primary.lastIndexOf(':');
+        return new ReplicaClient(ordersService, matchingEngine, objectMapper,
+                primary.substring(0, separator), Integer.parseInt(primary.substring(separator + 1)));
+    }
+
+    @Bean
+    @ConditionalOnProperty("simulator.replication.primary")
+    ReplicaFilter replicaFilter(ReplicaClient replicaClient) {
+        return new ReplicaFilter(replicaClient);
+    }
+
+    @Bean
+    @ConditionalOnProperty("simulator.replication.primary")
+    ReplicationHandler replicationHandler(ReplicaClient replicaClient) {
+        return new ReplicationHandler(replicaClient);
+    }
+
+    @Bean
+    AdmissionControl admissionControl(OrdersService ordersService,
+                                      @Value("${simulator.admission.client-rate:0}") double clientRate,
+                                      @Value("${simulator.admission.client-burst:0}") int clientBurst,
+                                      @Value("${simulator.admission.max-in-flight:0}") int maxInFlight,
+                                      @Value("${simulator.admission.max-resting-orders:0}") long maxRestingOrders) {
+        return new AdmissionControl(new AdmissionLimits(clientRate, clientBurst, maxInFlight, maxRestingOrders),
+                ordersService);
+    }
+
+    @Bean
+    AdmissionControlFilter admissionControlFilter(AdmissionControl admissionControl) {
+        return new AdmissionControlFilter(admissionControl);
+    }
+
+    @Bean
+    AdmissionHandler admissionHandler(Validator validator, AdmissionControl admissionControl) {
+        return new AdmissionHandler(validator, admissionControl);
+    }
+
+    @Bean
+    CapacityControl capacityControl(OrdersService ordersService, OrderBooksHolder orderBooksHolder, TradeBus tradeBus,
+                                    CommandJournal commandJournal,
+                                    @Value("${simulator.capacity.max-orders-per-symbol:0}") long maxOrdersPerSymbol,
+                                    @Value("${simulator.capacity.max-bytes:0}") long maxBytes) {
+        return new CapacityControl(new CapacityLimits(maxOrdersPerSymbol, maxBytes), ordersService, orderBooksHolder,
+                tradeBus, commandJournal);
+    }
+
+    @Bean
+    RiskHandler riskHandler(Validator validator, RiskControl riskControl) {
+        return new RiskHandler(validator, riskControl);
+    }
+
+    @Bean
+    CapacityHandler capacityHandler(Validator validator, CapacityControl capacityControl) {
+        return new CapacityHandler(validator, capacityControl);
+    }
+
+    @Bean
+    @ConditionalOnProperty("simulator.warm-up.enabled")
+    WarmUpRunner warmUpRunner(ObjectMapper objectMapper, ConfigurableApplicationContext context,
+                              @Value("${simulator.warm-up.max-duration:20s}") Duration maxDuration,
+                              @Value("${simulator.warm-up.exit:false}") boolean exit) {
+        return new WarmUpRunner(objectMapper, context, maxDuration, exit);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "dispose")
+    @ConditionalOnProperty("simulator.trades.archive.directory")
+    TradeArchiver tradeArchiver(TradeBus tradeBus,
+                                @Value("${simulator.trades.archive.directory}") Path directory,
+                                @Value("${simulator.trades.archive.segment-size:65536}") int segmentSize,
+                                @Value("${simulator.trades.archive.flush-interval:10s}") Duration flushInterval) {
+        return new TradeArchiver(tradeBus, directory, segmentSize, flushInterval);
     }
 
     @Bean
-    TradeBus tradeBus() {
-        return new TradeBus();
+    @ConditionalOnProperty("simulator.trades.archive.directory")
+    TradeArchive tradeArchive(@Value("${simulator.trades.archive.directory}") Path directory) {
+        return new TradeArchive(directory);
     }
 
     @Bean
-    MatchingEngine matchingEngine(OrdersService ordersService, OrderBooksHolder orderBooksHolder, TradeBus tradeBus) {
-        return new MatchingEngine(ordersService, orderBooksHolder, tradeBus);
+    @ConditionalOnProperty("simulator.trades.archive.directory")
+    TradeArchiveHandler tradeArchiveHandler(TradeArchive tradeArchive) {
+        return new TradeArchiveHandler(tradeArchive);
     }
 
     @Bean
@@ -0,0 +1,73 @@
+package com.github.alexpumpkin.simulator.gateway.filters;
+
+import com.github.alexpumpkin.simulator.admission.AdmissionControl;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.Set;
+
+/**
+ * Web filter which applies {@link AdmissionControl} to the order entry requests (new orders, batches, amends and
+ * cancels). Rejected requests get 429 TOO_MANY_REQUESTS before the body is read.
+ * <br/>
+ * The batch request is checked by the in-flight limit only, its commands are charged one by one by the handler, so the
+ * client identifier is stored to the {@link #CLIENT_ID_ATTRIBUTE} exchange attribute.
+ * <br/>
+ * Client is identified by "X-Client-Id" header or by the remote address.
+ */
+public class AdmissionControlFilter implements WebFilter {
+    public static final String CLIENT_ID_HEADER = "X-Client-Id";
+    public static final String CLIENT_ID_ATTRIBUTE = AdmissionControlFilter.class.getName() + ".clientId";
+
+    private static final String BATCH_PATH = "/orders/batch";
+    private static final Set<String> NEW_ORDER_PATHS = Set.of("/orders/buy", "/orders/sell", BATCH_PATH);
+
+    private final AdmissionControl admissionControl;
+
+    public AdmissionControlFilter(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        HttpMethod method = exchange.getRequest().getMethod();
+        String path = exchange.getRequest().getPath().value();
+        if (!isOrderEntry(method, path)) {
+            return chain.filter(exchange);
+        }
+        String clientId = clientId(exchange);
+        boolean admitted = path.equals(BATCH_PATH) ? admissionControl.tryAcquireBatch() :
+                admissionControl.tryAcquire(clientId, method == HttpMethod.POST);
+        if (!admitted) {
+            exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+            return exchange.getResponse().setComplete();
+        }
+        exchange.getAttributes().put(CLIENT_ID_ATTRIBUTE, clientId);
+        return chain.filter(exchange)
+                .doFinally(ignored -> admissionControl.release());
+    }
+
+    /**
+     * @return true for new orders, batches, amends and cancels, false for queries and the auction
+     */
+    private static boolean isOrderEntry(HttpMethod method, String path) {
+        if (method == HttpMethod.POST) {
+            return NEW_ORDER_PATHS.contains(path);
+        }
+        return (method == HttpMethod.PATCH || method == HttpMethod.DELETE) && path.startsWith("/orders/");
+    }
+
+    private static String clientId(ServerWebExchange exchange) {
+        String clientId = exchange.getRequest().getHeaders().getFirst(CLIENT_ID_HEADER);
+        if (clientId != null) {
+            return clientId;
+        }
+        InetSocketAddress remoteAddress = exchange.getRequest().getRemoteAddress();
+        return remoteAddress == null ? "" : remoteAddress.getHostString();
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.alexpumpkin.simulator.gateway.filters;
+
+import com.github.alexpumpkin.simulator.replication.ReplicaClient;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Web filter which rejects the order entry requests (POST, PATCH and DELETE on /orders) with 503 SERVICE_UNAVAILABLE
+ * until the replica is promoted. Orders of the replica are changed by the replication only.
+ */
+public class ReplicaFilter implements WebFilter {
+
+    private final ReplicaClient replicaClient;
+
+    public ReplicaFilter(ReplicaClient replicaClient) {
+        this.replicaClient = replicaClient;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (replicaClient.isPromoted()
+                || exchange.getRequest().getMethod() == HttpMethod.GET
+                || !exchange.getRequest().getPath().value().startsWith("/orders")) {
+            return chain.filter(exchange);
+        }
+        exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        return exchange.getResponse().setComplete();
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.alexpumpkin.simulator.gateway.handlers;
+
+import com.github.alexpumpkin.simulator.admission.AdmissionControl;
+import com.github.alexpumpkin.simulator.admission.AdmissionLimits;
+import org.springframework.validation.Validator;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Web handlers to read and change admission limits at runtime.
+ */
+public class AdmissionHandler {
+
+    private final Validator validator;
+    private final AdmissionControl admissionControl;
+
+    public AdmissionHandler(Validator validator, AdmissionControl admissionControl) {
+        this.validator = validator;
+        this.admissionControl = admissionControl;
+    }
+
+    /**
+     * Handle "get limits" request.
+     *
+     * @param request "get limits" request to handle.
+     * @return current limits
+     */
+    public Mono<ServerResponse> getLimits(ServerRequest request) {
+        return ServerResponse.ok().bodyValue(admissionControl.getLimits());
+    }
+
+    /**
+     * Handle "set limits" request.
+     *
+     * @param request "set limits" request to handle.
+     * @return new limits
+     */
+    public Mono<ServerResponse> setLimits(ServerRequest request) {
+        return request.bodyToMono(AdmissionLimits.class)
+                .map(limits -> RequestValidation.validate(validator, limits))
+                .flatMap(limits -> {
+                    admissionControl.setLimits(limits);
+                    return ServerResponse.ok().bodyValue(limits);
+                })
+                .onErrorResume(WebExchangeBindException.class, RequestValidation::badRequest);
+    }
+}
@@ -0,0 +1,50 @@
+package com.github.alexpumpkin.simulator.gateway.handlers;
+
+import com.github.alexpumpkin.simulator.capacity.CapacityControl;
+import com.github.alexpumpkin.simulator.capacity.CapacityLimits;
+import org.springframework.validation.Validator;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Web handlers to read the memory usage and to change capacity limits at runtime.
+ */
+public class CapacityHandler {
+
+    private final Validator validator;
+    private final CapacityControl capacityControl;
+
+    public CapacityHandler(Validator validator, CapacityControl capacityControl) {
+        this.validator = validator;
+        this.capacityControl = capacityControl;
+    }
+
+    /**
+     * Handle "memory usage" request.
+     *
+     * @param request "memory usage" request to handle.
+     * @return estimated memory usage by component and by order book
+     */
+    public Mono<ServerResponse> usage(ServerRequest request) {
+        return Mono.fromCallable(capacityControl::usage)
+                .flatMap(usage -> ServerResponse.ok().bodyValue(usage));
+    }
+
+    /**
+     * Handle "set limits" request.
+     *
+     * @param request "set limits" request to handle.
+     * @return new limits
+     */
+    public Mono<ServerResponse> setLimits(ServerRequest request) {
+        return request.bodyToMono(CapacityLimits.class)
+                .map(limits -> RequestValidation.validate(validator, limits))
+                .flatMap(limits -> {
+                    capacityControl.setLimits(limits);
+                    return ServerResponse.ok().bodyValue(limits);
+                })
+                .onErrorResume(WebExchangeBindException.class, RequestValidation::badRequest);
+    }
+}
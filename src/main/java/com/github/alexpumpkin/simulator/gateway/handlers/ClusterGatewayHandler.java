@@ -0,0 +1,266 @@
+package com.github.alexpumpkin.simulator.gateway.handlers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.alexpumpkin.simulator.cluster.ClusterRouter;
+import com.github.alexpumpkin.simulator.gateway.filters.AdmissionControlFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Web handlers of the cluster gateway. Requests are forwarded to the engine nodes: new orders, mass cancel by symbol
+ * and auctions by symbol, requests for existing orders by UUID (see {@link ClusterRouter}), mass cancel by owner,
+ * queries by owner and limits to all nodes.
+ * <br/>
+ * Requests sent to all nodes return the results of the reachable nodes. If some nodes failed, the response status is
+ * 502 BAD_GATEWAY and the failed nodes are listed in the {@link #FAILED_NODES_HEADER} header. Client errors (4xx) of
+ * the nodes are returned as is.
+ */
+@Slf4j
+public class ClusterGatewayHandler {
+    public static final String FAILED_NODES_HEADER = "X-Failed-Nodes";
+
+    private static final List<String> FORWARDED_HEADERS = List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.ACCEPT,
+            AdmissionControlFilter.CLIENT_ID_HEADER, "X-Execution-Report");
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private final ClusterRouter clusterRouter;
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper;
+
+    public ClusterGatewayHandler(ClusterRouter clusterRouter, WebClient webClient, ObjectMapper objectMapper) {
+        this.clusterRouter = clusterRouter;
+        this.webClient = webClient;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Forward new order to the node of its symbol.
+     *
+     * @param request "buy" or "sell" request to forward.
+     * @return response of the node
+     */
+    public Mono<ServerResponse> addOrder(ServerRequest request) {
+        return request.bodyToMono(byte[].class)
+                .flatMap(body -> {
+                    JsonNode json = readTree(body);
+                    String symbol = json.path("symbol").asText(null);
+                    String uuid = json.path("uuid").asText(null);
+                    // invalid orders are forwarded to any node to get the validation errors
+                    String node = symbol == null ? clusterRouter.nodes().get(0) : clusterRouter.nodeForSymbol(symbol);
+                    return exchange(node, request, body, response -> {
+                        if (uuid != null && response.statusCode() == HttpStatus.CREATED) {
+                            clusterRouter.register(uuid, node);
+                        }
+                    });
+                });
+    }
+
+    /**
+     * Forward request for the existing order to its node. Orders which are not in the directory of the router (not
+     * routed by this gateway or evicted) are looked up on all nodes.
+     *
+     * @param request request with "uuid" path variable.
+     * @return response of the node
+     */
+    public Mono<ServerResponse> forwardByUuid(ServerRequest request) {
+        String uuid = request.pathVariable("uuid");
+        return request.bodyToMono(byte[].class)
+                .defaultIfEmpty(new byte[0])
+                .flatMap(body -> Mono.justOrEmpty(clusterRouter.nodeForOrder(uuid))
+                        .switchIfEmpty(lookup(uuid))
+                        .flatMap(node -> exchange(node, request, body, response -> {
+                            // the cancelled order is in a final state, it is looked up again if requested
+                            if (request.method() == HttpMethod.DELETE && response.statusCode() == HttpStatus.OK) {
+                                clusterRouter.unregister(uuid);
+                            }
+                        }))
+                        .switchIfEmpty(Mono.defer(() -> request.method() == HttpMethod.DELETE ?
+                                ServerResponse.ok().build() :
+                                ServerResponse.notFound().build())));
+    }
+
+    /**
+     * Forward request for the symbol (mass cancel by symbol, auction) to the node of the symbol.
+     *
+     * @param request request with "symbol" path variable.
+     * @return response of the node
+     */
+    public Mono<ServerResponse> forwardBySymbol(ServerRequest request) {
+        return exchange(clusterRouter.nodeForSymbol(request.pathVariable("symbol")), request, new byte[0],
+                response -> {
+                });
+    }
+
+    /**
+     * Find open orders. The query by symbol is forwarded to the node of the symbol. The query by owner is sent to all
+     * nodes, pages of the nodes are merged by UUID and cut to the requested page size, so the "after" cursor works
+     * the same way as on the node.
+     *
+     * @param request "open orders" request.
+     * @return page of the open orders sorted by UUID
+     */
+    public Mono<ServerResponse> findOpenOrders(ServerRequest request) {
+        Optional<String> symbol = request.queryParam("symbol");
+        if (symbol.isPresent() || request.queryParam("owner").isEmpty()) {
+            // invalid queries are forwarded to any node to get the validation errors
+            return exchange(symbol.map(clusterRouter::nodeForSymbol).orElse(clusterRouter.nodes().get(0)), request,
+                    new byte[0], response -> {
+                    });
+        }
+        int limit = request.queryParam("limit")
+                .filter(value -> value.matches("\\d{1,9}"))
+                .map(Integer::parseInt)
+                .orElse(DEFAULT_PAGE_SIZE);
+        return collectFromAllNodes(request, orders -> orders.stream()
+                .sorted(Comparator.comparing(order -> order.path("uuid").asText()))
+                .limit(limit)
+                .toList());
+    }
+
+    /**
+     * Send request to all nodes and concatenate the JSON arrays of the nodes (mass cancel by owner, exposure of the
+     * account).
+     *
+     * @param request request returning JSON array.
+     * @return elements of the arrays of all nodes
+     */
+    public Mono<ServerResponse> collectFromAllNodes(ServerRequest request) {
+        return collectFromAllNodes(request, UnaryOperator.identity());
+    }
+
+    /**
+     * Send request to all nodes (limits, memory usage), the body of the request is sent to every node.
+     *
+     * @param request request to forward.
+     * @return JSON object with the response of every node by the node URL
+     */
+    public Mono<ServerResponse> forwardToAllNodes(ServerRequest request) {
+        List<String> failedNodes = new CopyOnWriteArrayList<>();
+        return request.bodyToMono(byte[].class)
+                .defaultIfEmpty(new byte[0])
+                .flatMap(body -> Flux.fromIterable(clusterRouter.nodes())
+                        .flatMapSequential(node -> retrieve(node, request, body)
+                                .bodyToMono(JsonNode.class)
+                                .map(result -> Tuples.of(node, result))
+                                .onErrorResume(e -> !isClientError(e), e -> failed(failedNodes, node, e)))
+                        .collectMap(Tuple2::getT1, Tuple2::getT2, LinkedHashMap::new))
+                .flatMap(results -> status(failedNodes).bodyValue(results))
+                .onErrorResume(WebClientResponseException.class, ClusterGatewayHandler::errorResponse);
+    }
+
+    private Mono<ServerResponse> collectFromAllNodes(ServerRequest request, UnaryOperator<List<JsonNode>> merge) {
+        List<String> failedNodes = new CopyOnWriteArrayList<>();
+        return Flux.fromIterable(clusterRouter.nodes())
+                .flatMap(node -> retrieve(node, request, new byte[0])
+                        .bodyToFlux(JsonNode.class)
+                        .onErrorResume(e -> !isClientError(e), e -> failed(failedNodes, node, e)))
+                .collectList()
+                .flatMap(results -> status(failedNodes).bodyValue(merge.apply(results)))
+                .onErrorResume(WebClientResponseException.class, ClusterGatewayHandler::errorResponse);
+    }
+
+    private static <T> Mono<T> failed(List<String> failedNodes, String node, Throwable e) {
+        log.warn("Request to the node failed. node={}", node, e);
+        failedNodes.add(node);
+        return Mono.empty();
+    }
+
+    private static boolean isClientError(Throwable e) {
+        return e instanceof WebClientResponseException responseException
+                && responseException.getStatusCode().is4xxClientError();
+    }
+
+    private static ServerResponse.BodyBuilder status(List<String> failedNodes) {
+        return failedNodes.isEmpty() ? ServerResponse.ok() : ServerResponse.status(HttpStatus.BAD_GATEWAY)
+                .header(FAILED_NODES_HEADER, String.join(",", failedNodes));
+    }
+
+    private static Mono<ServerResponse> errorResponse(WebClientResponseException e) {
+        ServerResponse.BodyBuilder builder = ServerResponse.status(e.getRawStatusCode());
+        Optional.ofNullable(e.getHeaders().getContentType()).ifPresent(builder::contentType);
+        byte[] body = e.getResponseBodyAsByteArray();
+        return body.length == 0 ? builder.build() : builder.bodyValue(body);
+    }
+
+    private Mono<String> lookup(String uuid) {
+        return Flux.fromIterable(clusterRouter.nodes())
+                .flatMap(node -> webClient.get()
+                        .uri(node + "/orders/{uuid}", uuid)
+                        .exchangeToMono(response -> response.statusCode() == HttpStatus.OK ?
+                                response.releaseBody().thenReturn(node) :
+                                response.releaseBody().then(Mono.empty())))
+                .next()
+                .doOnNext(node -> clusterRouter.register(uuid, node));
+    }
+
+    private Mono<ServerResponse> exchange(String node, ServerRequest request, byte[] body,
+                                          Consumer<ClientResponse> onResponse) {
+        return request(node, request, body).exchangeToMono(response -> {
+            onResponse.accept(response);
+            return response.bodyToMono(byte[].class)
+                    .defaultIfEmpty(new byte[0])
+                    .flatMap(responseBody -> {
+                        ServerResponse.BodyBuilder builder = ServerResponse.status(response.rawStatusCode());
+                        response.headers().contentType().ifPresent(builder::contentType);
+                        response.headers().header(HttpHeaders.LOCATION).stream().findFirst()
+                                .map(location -> request.uriBuilder()
+                                        .replacePath(URI.create(location).getPath())
+                                        .replaceQuery(null)
+                                        .build())
+                                .ifPresent(builder::location);
+                        return responseBody.length == 0 ? builder.build() : builder.bodyValue(responseBody);
+                    });
+        });
+    }
+
+    private WebClient.ResponseSpec retrieve(String node, ServerRequest request, byte[] body) {
+        return request(node, request, body).retrieve();
+    }
+
+    private WebClient.RequestHeadersSpec<?> request(String node, ServerRequest request, byte[] body) {
+        WebClient.RequestBodySpec spec = webClient.method(request.method())
+                .uri(uri(node, request))
+                .headers(headers -> FORWARDED_HEADERS.forEach(name -> {
+                    List<String> values = request.headers().header(name);
+                    if (!values.isEmpty()) {
+                        headers.put(name, values);
+                    }
+                }));
+        return body.length == 0 ? spec : spec.bodyValue(body);
+    }
+
+    private static URI uri(String node, ServerRequest request) {
+        return URI.create(node + request.uri().getRawPath()
+                + (request.uri().getRawQuery() == null ? "" : "?" + request.uri().getRawQuery()));
+    }
+
+    private JsonNode readTree(byte[] body) {
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            return objectMapper.missingNode();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.alexpumpkin.simulator.gateway.handlers;
+
+import com.github.alexpumpkin.simulator.cluster.ClusterRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.reactive.socket.client.WebSocketClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * WebSocket handler of the cluster gateway, emitting order events of the owner (required "owner" query parameter) from
+ * all nodes.
+ * <br/>
+ * Orders of one owner could be on any node, so every session opens its own connection to each node. Events are
+ * forwarded as is, the order of events of different nodes is not defined. The connections to the nodes are closed
+ * with the session.
+ */
+@Slf4j
+public class ClusterOrderEventsHandler implements WebSocketHandler {
+    private final ClusterRouter clusterRouter;
+    private final WebSocketClient webSocketClient;
+
+    public ClusterOrderEventsHandler(ClusterRouter clusterRouter, WebSocketClient webSocketClient) {
+        this.clusterRouter = clusterRouter;
+        this.webSocketClient = webSocketClient;
+    }
+
+    /**
+     * Handle websocket session to emit order events of all nodes
+     * @param session the session to handle
+     * @return empty Mono
+     */
+    @Override
+    public Mono<Void> handle(WebSocketSession session) {
+        URI uri = session.getHandshakeInfo().getUri();
+        String owner = UriComponentsBuilder.fromUri(uri)
+                .build()
+                .getQueryParams()
+                .getFirst("owner");
+        if (owner == null || owner.isEmpty()) {
+            return session.close(CloseStatus.BAD_DATA.withReason("Owner is required"));
+        }
+        Sinks.Many<String> events = Sinks.many().unicast().onBackpressureBuffer();
+        Mono<Void> nodes = Flux.fromIterable(clusterRouter.nodes())
+                .flatMap(node -> webSocketClient.execute(
+                                URI.create(node.replaceFirst("^http", "ws") + "/orders/events?" + uri.getRawQuery()),
+                                nodeSession -> nodeSession.receive()
+                                        .map(WebSocketMessage::getPayloadAsText)
+                                        .doOnNext(event -> events.emitNext(event,
+                                                Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100))))
+                                        .then())
+                        .onErrorResume(e -> {
+                            log.warn("Order events connection failed. node={}", node, e);
+                            return Mono.empty();
+                        }))
+                .then();
+        // the session is finished when the client is gone or all nodes closed their connections
+        return Mono.firstWithSignal(session.send(events.asFlux().map(session::textMessage)), nodes);
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.alexpumpkin.simulator.gateway.handlers;
+
+import com.github.alexpumpkin.simulator.cluster.ClusterRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.reactive.socket.client.WebSocketClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * WebSocket handler of the cluster gateway, emitting new trades of all nodes.
+ * <br/>
+ * The gateway keeps one connection to each node and reconnects if it is closed. Trades are forwarded as is, so the
+ * order of trades of different nodes is not defined.
+ * <br/>
+ * Sequence numbers of the trades are assigned by each node, so there is no sequence to resume the merged stream from:
+ * the session with "fromSeq" query parameter is closed, trades are resumed from the nodes.
+ */
+@Slf4j
+public class ClusterTradesHandler implements WebSocketHandler {
+    private static final Duration RECONNECT_DELAY = Duration.ofSeconds(1);
+
+    private final Sinks.Many<String> trades = Sinks.many().multicast().directBestEffort();
+
+    public ClusterTradesHandler(ClusterRouter clusterRouter, WebSocketClient webSocketClient) {
+        Flux.fromIterable(clusterRouter.nodes())
+                .flatMap(node -> subscribe(webSocketClient, node))
+                .subscribe();
+    }
+
+    private Flux<Void> subscribe(WebSocketClient webSocketClient, String node) {
+        URI uri = URI.create(node.replaceFirst("^http", "ws") + "/trades");
+        return webSocketClient.execute(uri, session -> session.receive()
+                        .map(WebSocketMessage::getPayloadAsText)
+                        .doOnNext(trade -> trades.emitNext(trade,
+                                Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100))))
+                        .then())
+                .doOnError(e -> log.debug("Trades connection failed. node={}", node, e))
+                .retryWhen(Retry.fixedDelay(Long.MAX_VALUE, RECONNECT_DELAY))
+                .repeatWhen(completed -> completed.delayElements(RECONNECT_DELAY));
+    }
+
+    /**
+     * Handle websocket session to emit new trades
+     * @param session the session to handle
+     * @return empty Mono
+     */
+    @Override
+    public Mono<Void> handle(WebSocketSession session) {
+        if (UriComponentsBuilder.fromUri(session.getHandshakeInfo().getUri())
+                .build()
+                .getQueryParams()
+                .containsKey("fromSeq")) {
+            return session.close(CloseStatus.BAD_DATA.withReason("fromSeq is supported by the nodes only"));
+        }
+        return session.send(trades.asFlux().map(session::textMessage));
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.alexpumpkin.simulator.gateway.handlers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.alexpumpkin.simulator.model.OrderEvent;
+import com.github.alexpumpkin.simulator.orders.api.OrdersService;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.io.UncheckedIOException;
+
+/**
+ * WebSocket handler, emitting state transitions of the orders of the owner (required "owner" query parameter), see
+ * {@link OrdersService#events(String)}.
+ */
+public class OrderEventsHandler implements WebSocketHandler {
+    private final OrdersService ordersService;
+    private final ObjectMapper objectMapper;
+
+    public OrderEventsHandler(OrdersService ordersService, ObjectMapper objectMapper) {
+        this.ordersService = ordersService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Handle websocket session to emit order events
+     * @param session the session to handle
+     * @return empty Mono
+     */
+    @Override
+    public Mono<Void> handle(WebSocketSession session) {
+        String owner = UriComponentsBuilder.fromUri(session.getHandshakeInfo().getUri())
+                .build()
+                .getQueryParams()
+                .getFirst("owner");
+        if (owner == null || owner.isEmpty()) {
+            return session.close(CloseStatus.BAD_DATA.withReason("Owner is required"));
+        }
+        return session.send(ordersService.events(owner)
+                .map(this::writeValueAsString)
+                .map(session::textMessage));
+    }
+
+    private String writeValueAsString(OrderEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,22 +1,33 @@
 package com.github.alexpumpkin.simulator.gateway.handlers;
 
-import com.github.alexpumpkin.simulator.model.AddOrderDTO;
+import com.github.alexpumpkin.simulator.admission.AdmissionControl;
+import com.github.alexpumpkin.simulator.capacity.CapacityControl;
+import com.github.alexpumpkin.simulator.capacity.CapacityExceededException;
+import com.github.alexpumpkin.simulator.gateway.codec.OrderJsonDecoder;
+import com.github.alexpumpkin.simulator.gateway.codec.OrderValidationException;
+import com.github.alexpumpkin.simulator.gateway.filters.AdmissionControlFilter;
+import com.github.alexpumpkin.simulator.matching.MatchingEngine;
+import com.github.alexpumpkin.simulator.model.AmendOrderDTO;
+import com.github.alexpumpkin.simulator.model.BatchCommandDTO;
+import com.github.alexpumpkin.simulator.model.BatchResultDTO;
 import com.github.alexpumpkin.simulator.model.Order;
+import com.github.alexpumpkin.simulator.model.OrdersQuery;
 import com.github.alexpumpkin.simulator.orders.api.OrdersService;
+import com.github.alexpumpkin.simulator.risk.RiskLimitException;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.support.DefaultMessageSourceResolvable;
 import org.springframework.http.HttpStatus;
-import org.springframework.validation.BeanPropertyBindingResult;
-import org.springframework.validation.BindingResult;
+import org.springframework.http.MediaType;
 import org.springframework.validation.Validator;
 import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.reactive.function.BodyExtractors;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.Objects;
-import java.util.function.Function;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Web handlers.
@@ -24,32 +35,85 @@ import java.util.function.Function;
 @Slf4j
 public class OrdersHandler {
 
+    private static final String EXECUTION_REPORT_PARAM = "executionReport";
+    private static final String EXECUTION_REPORT_HEADER = "X-Execution-Report";
+    private static final int BATCH_CONCURRENCY = 32;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 10_000;
+
     private final Validator validator;
+    private final OrderJsonDecoder orderJsonDecoder;
     private final OrdersService ordersService;
+    private final MatchingEngine matchingEngine;
+    private final CapacityControl capacityControl;
+    private final AdmissionControl admissionControl;
 
-    public OrdersHandler(Validator validator, OrdersService ordersService) {
+    public OrdersHandler(Validator validator, OrderJsonDecoder orderJsonDecoder, OrdersService ordersService,
+                         MatchingEngine matchingEngine, CapacityControl capacityControl,
+                         AdmissionControl admissionControl) {
         this.validator = validator;
+        this.orderJsonDecoder = orderJsonDecoder;
         this.ordersService = ordersService;
+        this.matchingEngine = matchingEngine;
+        this.capacityControl = capacityControl;
+        this.admissionControl = admissionControl;
     }
 
     /**
-     * Handle "buy" request.
+     * Handle "buy" request. With "executionReport=true" query parameter or "X-Execution-Report: true" header the
+     * response is sent after the first matching pass over the order and contains its execution report. IOC and FOK
+     * orders are executed right away, the response always contains their execution report.
      *
      * @param request "buy" request to handle.
      * @return result of the "buy" request processing
      */
     public Mono<ServerResponse> buy(ServerRequest request) {
-        return addOrder(request, Order::buy);
+        return addOrder(request, Order.Type.BUY);
     }
 
     /**
-     * Handle "sell" request.
+     * Handle "sell" request. With "executionReport=true" query parameter or "X-Execution-Report: true" header the
+     * response is sent after the first matching pass over the order and contains its execution report. IOC and FOK
+     * orders are executed right away, the response always contains their execution report.
      *
      * @param request "sell" request to handle.
      * @return result of the "sell" request processing
      */
     public Mono<ServerResponse> sell(ServerRequest request) {
-        return addOrder(request, Order::sell);
+        return addOrder(request, Order.Type.SELL);
+    }
+
+    /**
+     * Handle "batch" request: newline delimited stream of buy/sell/cancel commands. Commands are decoded and processed
+     * one by one with bounded concurrency, results are streamed back in the order of commands. Every command is charged
+     * by the client rate limit, rejected commands get 429 status.
+     *
+     * @param request "batch" request to handle.
+     * @return newline delimited stream of the results
+     */
+    public Mono<ServerResponse> batch(ServerRequest request) {
+        String clientId = request.attribute(AdmissionControlFilter.CLIENT_ID_ATTRIBUTE)
+                .map(String.class::cast)
+                .orElse("");
+        Flux<BatchResultDTO> results = request.bodyToFlux(BatchCommandDTO.class)
+                .flatMapSequential(command -> execute(clientId, command), BATCH_CONCURRENCY);
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(results, BatchResultDTO.class);
+    }
+
+    /**
+     * Handle "amend" request.
+     *
+     * @param request "amend" request to handle.
+     * @return result of the "amend" request processing
+     */
+    public Mono<ServerResponse> amend(ServerRequest request) {
+        return request.bodyToMono(AmendOrderDTO.class)
+                .map(this::validate)
+                .flatMap(dto -> ordersService.amend(request.pathVariable("uuid"), dto))
+                .flatMap(order -> ServerResponse.ok().bodyValue(order))
+                .transform(this::errorHandling);
     }
 
     /**
@@ -64,6 +128,63 @@ public class OrdersHandler {
                 .transform(this::errorHandling);
     }
 
+    /**
+     * Handle mass cancel request for the symbol. Optional "side" query parameter limits the cancel to one side.
+     *
+     * @param request mass cancel request to handle.
+     * @return UUIDs of cancelled orders
+     */
+    public Mono<ServerResponse> cancelBySymbol(ServerRequest request) {
+        return Mono.fromCallable(() -> side(request))
+                .flatMapMany(side -> ordersService.cancelBySymbol(request.pathVariable("symbol"), side.orElse(null)))
+                .collectList()
+                .flatMap(uuids -> ServerResponse.ok().bodyValue(uuids))
+                .transform(this::errorHandling);
+    }
+
+    /**
+     * Handle mass cancel request for the owner. Optional "side" query parameter limits the cancel to one side.
+     *
+     * @param request mass cancel request to handle.
+     * @return UUIDs of cancelled orders
+     */
+    public Mono<ServerResponse> cancelByOwner(ServerRequest request) {
+        return Mono.fromCallable(() -> side(request))
+                .flatMapMany(side -> ordersService.cancelByOwner(request.pathVariable("owner"), side.orElse(null)))
+                .collectList()
+                .flatMap(uuids -> ServerResponse.ok().bodyValue(uuids))
+                .transform(this::errorHandling);
+    }
+
+    /**
+     * Handle auction request for the symbol: the order book is uncrossed at the clearing price right away, regardless
+     * of the matching mode of the symbol (opening and closing auctions).
+     *
+     * @param request auction request to handle.
+     * @return clearing price and trades of the auction
+     */
+    public Mono<ServerResponse> auction(ServerRequest request) {
+        return Mono.fromCallable(() -> matchingEngine.uncross(request.pathVariable("symbol")))
+                .flatMap(result -> ServerResponse.ok().bodyValue(result))
+                .transform(this::errorHandling);
+    }
+
+    /**
+     * Handle "open orders" request. Either "symbol" or "owner" query parameter is required, "side", "state", "after"
+     * (cursor) and "limit" are optional. Orders are streamed as JSON array or as NDJSON if it is accepted.
+     *
+     * @param request "open orders" request to handle.
+     * @return page of the open orders sorted by UUID
+     */
+    public Mono<ServerResponse> findOpenOrders(ServerRequest request) {
+        return Mono.fromCallable(() -> ordersQuery(request))
+                .flatMap(query -> ServerResponse.ok()
+                        .contentType(request.headers().accept().contains(MediaType.APPLICATION_NDJSON) ?
+                                MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                        .body(ordersService.findOpenOrders(query), Order.class))
+                .transform(this::errorHandling);
+    }
+
     /**
      * Handle getByUuid request
      *
@@ -77,42 +198,123 @@ public class OrdersHandler {
                 .transform(this::errorHandling);
     }
 
-    private Mono<ServerResponse> addOrder(ServerRequest request, Function<AddOrderDTO, Order> mapper) {
-        return request.bodyToMono(AddOrderDTO.class)
-                .map(this::validate)
-                .map(mapper)
-                .flatMap(ordersService::add)
-                .flatMap(order -> createdResponse(request, order))
+    private Mono<ServerResponse> addOrder(ServerRequest request, Order.Type type) {
+        return orderJsonDecoder.decode(request.body(BodyExtractors.toDataBuffers()), type)
+                .doOnNext(capacityControl::check)
+                .flatMap(order -> order.resting() ? addResting(request, order) : matchingEngine.execute(order)
+                        .flatMap(report -> createdResponse(request, order.uuid(), report)))
                 .transform(this::errorHandling);
     }
 
-    private AddOrderDTO validate(AddOrderDTO dto) {
-        BindingResult bindingResult = new BeanPropertyBindingResult(dto, "AddOrderDTO");
-        validator.validate(dto, bindingResult);
-        if (bindingResult.hasErrors()) {
-            //noinspection ConstantConditions
-            throw new WebExchangeBindException(null, bindingResult);
+    private Mono<ServerResponse> addResting(ServerRequest request, Order order) {
+        return ordersService.add(order)
+                .flatMap(added -> isExecutionReportRequested(request) ?
+                        matchingEngine.executionReport(added)
+                                .flatMap(report -> createdResponse(request, added.uuid(), report)) :
+                        createdResponse(request, added.uuid(), added));
+    }
+
+    private Mono<BatchResultDTO> execute(String clientId, BatchCommandDTO command) {
+        if (!admissionControl.tryAdmitCommand(clientId, command.command() != BatchCommandDTO.Command.CANCEL)) {
+            return Mono.just(new BatchResultDTO(command.uuid(), HttpStatus.TOO_MANY_REQUESTS.value(), null,
+                    List.of("Too many requests")));
         }
-        return dto;
+        return execute(command);
+    }
+
+    private Mono<BatchResultDTO> execute(BatchCommandDTO command) {
+        return Mono.fromCallable(() -> validate(command))
+                .flatMap(ignored -> switch (command.command()) {
+                    case BUY -> add(Order.buy(validate(command.toAddOrderDTO())));
+                    case SELL -> add(Order.sell(validate(command.toAddOrderDTO())));
+                    case CANCEL -> ordersService.cancel(command.uuid())
+                            .then(ordersService.getOrderByUUID(command.uuid()))
+                            .map(order -> new BatchResultDTO(order.uuid(), HttpStatus.OK.value(), order, List.of()))
+                            .defaultIfEmpty(new BatchResultDTO(command.uuid(), HttpStatus.OK.value(), null, List.of()));
+                })
+                .onErrorResume(WebExchangeBindException.class, e -> Mono.just(new BatchResultDTO(command.uuid(),
+                        HttpStatus.BAD_REQUEST.value(), null, RequestValidation.errorMessages(e))))
+                .onErrorResume(ResponseStatusException.class, e -> Mono.just(new BatchResultDTO(command.uuid(),
+                        e.getRawStatusCode(), null, e.getReason() == null ? List.of() : List.of(e.getReason()))))
+                .onErrorResume(CapacityExceededException.class, e -> Mono.just(new BatchResultDTO(command.uuid(),
+                        HttpStatus.INSUFFICIENT_STORAGE.value(), null, List.of(e.getMessage()))))
+                .onErrorResume(RiskLimitException.class, e -> Mono.just(new BatchResultDTO(command.uuid(),
+                        HttpStatus.UNPROCESSABLE_ENTITY.value(), null, List.of(e.getMessage()))));
+    }
+
+    private Mono<BatchResultDTO> add(Order order) {
+        capacityControl.check(order);
+        return ordersService.add(order)
+                .map(added -> new BatchResultDTO(added.uuid(), HttpStatus.CREATED.value(), added, List.of()));
+    }
+
+    private static boolean isExecutionReportRequested(ServerRequest request) {
+        return request.queryParam(EXECUTION_REPORT_PARAM).map(Boolean::parseBoolean).orElse(false)
+                || Boolean.parseBoolean(request.headers().firstHeader(EXECUTION_REPORT_HEADER));
+    }
+
+    private static OrdersQuery ordersQuery(ServerRequest request) {
+        String symbol = request.queryParam("symbol").orElse(null);
+        String owner = request.queryParam("owner").orElse(null);
+        if (symbol == null && owner == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Symbol or owner is required");
+        }
+        Order.State state;
+        try {
+            state = request.queryParam("state").map(Order.State::valueOf).orElse(null);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown state");
+        }
+        if (state != null && state != Order.State.PENDING && state != Order.State.PARTIALLY_EXECUTED) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Only PENDING and PARTIALLY_EXECUTED orders are open");
+        }
+        int limit;
+        try {
+            limit = request.queryParam("limit").map(Integer::parseInt).orElse(DEFAULT_PAGE_SIZE);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid limit");
+        }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Limit must be between 1 and %s".formatted(MAX_PAGE_SIZE));
+        }
+        return new OrdersQuery(symbol, side(request).orElse(null), state, owner,
+                request.queryParam("after").orElse(null), limit);
+    }
+
+    private static Optional<Order.Type> side(ServerRequest request) {
+        try {
+            return request.queryParam("side").map(Order.Type::valueOf);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown side");
+        }
+    }
+
+    private <T> T validate(T dto) {
+        return RequestValidation.validate(validator, dto);
     }
 
 
-    private static Mono<ServerResponse> createdResponse(ServerRequest request, Order order) {
+    private static Mono<ServerResponse> createdResponse(ServerRequest request, String uuid, Object body) {
         return ServerResponse.created(request.uriBuilder()
                         .replacePath("/orders/{id}")
-                        .build(order.uuid()))
-                .bodyValue(order);
+                        .replaceQuery(null)
+                        .build(uuid))
+                .bodyValue(body);
     }
 
     private Mono<ServerResponse> errorHandling(Mono<ServerResponse> serverResponseMono) {
         return serverResponseMono
-                .onErrorResume(WebExchangeBindException.class, e -> ServerResponse.badRequest()
-                        .bodyValue(e.getBindingResult()
-                                .getAllErrors()
-                                .stream()
-                                .map(DefaultMessageSourceResolvable::getDefaultMessage)
-                                .filter(Objects::nonNull)
-                                .toList()))
+                .onErrorResume(WebExchangeBindException.class, RequestValidation::badRequest)
+                .onErrorResume(OrderValidationException.class, e -> ServerResponse.badRequest()
+                        .bodyValue(e.getErrors()))
+                .onErrorResume(CapacityExceededException.class, e -> ServerResponse
+                        .status(HttpStatus.INSUFFICIENT_STORAGE)
+                        .bodyValue(List.of(e.getMessage())))
+                .onErrorResume(RiskLimitException.class, e -> ServerResponse
+                        .status(HttpStatus.UNPROCESSABLE_ENTITY)
+                        .bodyValue(List.of(e.getMessage())))
                 .doOnError(throwable -> log.error("Generic error: ", throwable));
     }
 }
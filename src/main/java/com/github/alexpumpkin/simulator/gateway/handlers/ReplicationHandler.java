@@ -0,0 +1,43 @@
+package com.github.alexpumpkin.simulator.gateway.handlers;
+
+import com.github.alexpumpkin.simulator.replication.ReplicaClient;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Web handlers of the replica.
+ */
+public class ReplicationHandler {
+
+    private final ReplicaClient replicaClient;
+
+    public ReplicationHandler(ReplicaClient replicaClient) {
+        this.replicaClient = replicaClient;
+    }
+
+    /**
+     * Handle "status" request.
+     *
+     * @param request "status" request to handle.
+     * @return role of the node and number of applied commands
+     */
+    public Mono<ServerResponse> status(ServerRequest request) {
+        return ServerResponse.ok().bodyValue(Map.of(
+                "role", replicaClient.isPromoted() ? "PRIMARY" : "REPLICA",
+                "sequence", replicaClient.sequence()));
+    }
+
+    /**
+     * Handle "promote" request.
+     *
+     * @param request "promote" request to handle.
+     * @return role of the node and number of applied commands
+     */
+    public Mono<ServerResponse> promote(ServerRequest request) {
+        return Mono.fromCallable(replicaClient::promote)
+                .flatMap(ignored -> status(request));
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.alexpumpkin.simulator.gateway.handlers;
+
+import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.Validator;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Validation of the request bodies shared by the web handlers. Invalid body is reported as
+ * {@link WebExchangeBindException}, the handler responds with 400 BAD_REQUEST and the list of the error messages.
+ */
+final class RequestValidation {
+
+    private RequestValidation() {
+    }
+
+    /**
+     * Validate the request body.
+     *
+     * @param validator validator to use
+     * @param body      request body
+     * @return the same body if it is valid
+     * @throws WebExchangeBindException if the body is not valid
+     */
+    static <T> T validate(Validator validator, T body) {
+        BindingResult bindingResult = new BeanPropertyBindingResult(body, body.getClass().getSimpleName());
+        validator.validate(body, bindingResult);
+        if (bindingResult.hasErrors()) {
+            //noinspection ConstantConditions
+            throw new WebExchangeBindException(null, bindingResult);
+        }
+        return body;
+    }
+
+    /**
+     * Get error messages of the invalid body.
+     *
+     * @param e validation error
+     * @return default messages of the errors
+     */
+    static List<String> errorMessages(WebExchangeBindException e) {
+        return e.getBindingResult()
+                .getAllErrors()
+                .stream()
+                .map(DefaultMessageSourceResolvable::getDefaultMessage)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Create 400 BAD_REQUEST response with the error messages of the invalid body.
+     *
+     * @param e validation error
+     * @return bad request response
+     */
+    static Mono<ServerResponse> badRequest(WebExchangeBindException e) {
+        return ServerResponse.badRequest().bodyValue(errorMessages(e));
+    }
+}
@@ -0,0 +1,59 @@
+package com.github.alexpumpkin.simulator.gateway.handlers;
+
+import com.github.alexpumpkin.simulator.risk.RiskControl;
+import com.github.alexpumpkin.simulator.risk.RiskLimits;
+import org.springframework.validation.Validator;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Web handlers to change pre-trade risk limits at runtime and to read the exposure of the accounts.
+ */
+public class RiskHandler {
+
+    private final Validator validator;
+    private final RiskControl riskControl;
+
+    public RiskHandler(Validator validator, RiskControl riskControl) {
+        this.validator = validator;
+        this.riskControl = riskControl;
+    }
+
+    /**
+     * Handle "get limits" request.
+     *
+     * @param request "get limits" request to handle.
+     * @return current limits
+     */
+    public Mono<ServerResponse> getLimits(ServerRequest request) {
+        return ServerResponse.ok().bodyValue(riskControl.getLimits());
+    }
+
+    /**
+     * Handle "set limits" request.
+     *
+     * @param request "set limits" request to handle.
+     * @return new limits
+     */
+    public Mono<ServerResponse> setLimits(ServerRequest request) {
+        return request.bodyToMono(RiskLimits.class)
+                .map(limits -> RequestValidation.validate(validator, limits))
+                .flatMap(limits -> {
+                    riskControl.setLimits(limits);
+                    return ServerResponse.ok().bodyValue(limits);
+                })
+                .onErrorResume(WebExchangeBindException.class, RequestValidation::badRequest);
+    }
+
+    /**
+     * Handle "exposure" request.
+     *
+     * @param request "exposure" request to handle.
+     * @return position and open quantity of the account per symbol
+     */
+    public Mono<ServerResponse> exposure(ServerRequest request) {
+        return ServerResponse.ok().bodyValue(riskControl.exposure(request.pathVariable("owner")));
+    }
+}
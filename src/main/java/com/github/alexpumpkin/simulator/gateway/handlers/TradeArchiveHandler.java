@@ -0,0 +1,74 @@
+package com.github.alexpumpkin.simulator.gateway.handlers;
+
+import com.github.alexpumpkin.simulator.trades.archive.TradeArchive;
+import com.github.alexpumpkin.simulator.trades.model.Trade;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Web handlers to query the trade archive. The time range is given by "from" (inclusive) and "to" (exclusive) query
+ * parameters in ISO-8601 format.
+ */
+public class TradeArchiveHandler {
+
+    private final TradeArchive tradeArchive;
+
+    public TradeArchiveHandler(TradeArchive tradeArchive) {
+        this.tradeArchive = tradeArchive;
+    }
+
+    /**
+     * Handle "archived trades" request. Trades are streamed as JSON array or as NDJSON if it is accepted.
+     *
+     * @param request "archived trades" request to handle.
+     * @return trades of the symbol in the time range
+     */
+    public Mono<ServerResponse> trades(ServerRequest request) {
+        return Mono.fromCallable(() -> query(request))
+                .flatMap(query -> ServerResponse.ok()
+                        .contentType(request.headers().accept().contains(MediaType.APPLICATION_NDJSON) ?
+                                MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                        .body(tradeArchive.trades(query.symbol(), query.from(), query.to()), Trade.class));
+    }
+
+    /**
+     * Handle "trade summary" request.
+     *
+     * @param request "trade summary" request to handle.
+     * @return aggregation of the trades of the symbol in the time range
+     */
+    public Mono<ServerResponse> summary(ServerRequest request) {
+        return Mono.fromCallable(() -> query(request))
+                .flatMap(query -> tradeArchive.summary(query.symbol(), query.from(), query.to()))
+                .flatMap(summary -> ServerResponse.ok().bodyValue(summary));
+    }
+
+    private static Query query(ServerRequest request) {
+        String symbol = request.queryParam("symbol")
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Symbol is required"));
+        if (!TradeArchive.isArchived(symbol)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid symbol");
+        }
+        return new Query(symbol, instant(request, "from"), instant(request, "to"));
+    }
+
+    private static Instant instant(ServerRequest request, String name) {
+        String value = request.queryParam(name)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, name + " is required"));
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid " + name);
+        }
+    }
+
+    private record Query(String symbol, Instant from, Instant to) {
+    }
+}
@@ -2,23 +2,38 @@ package com.github.alexpumpkin.simulator.gateway.handlers;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.alexpumpkin.simulator.orders.api.OrdersService;
 import com.github.alexpumpkin.simulator.trades.TradeBus;
 import com.github.alexpumpkin.simulator.trades.model.Trade;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.socket.CloseStatus;
 import org.springframework.web.reactive.socket.WebSocketHandler;
 import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.io.UncheckedIOException;
 
 /**
  * WebSocket handler, emitting new trades.
+ * <br/>
+ * With "fromSeq" query parameter the trades starting from the sequence number are emitted first (see
+ * {@link TradeBus#trades(long)}), so a client could resume after the reconnect.
+ * <br/>
+ * With "owner" and "cancelOnDisconnect=true" query parameters all resting orders of the owner are cancelled when the
+ * session is closed.
  */
+@Slf4j
 public class TradesHandler implements WebSocketHandler {
     private final TradeBus tradeBus;
+    private final OrdersService ordersService;
     private final ObjectMapper objectMapper;
 
-    public TradesHandler(TradeBus tradeBus, ObjectMapper objectMapper) {
+    public TradesHandler(TradeBus tradeBus, OrdersService ordersService, ObjectMapper objectMapper) {
         this.tradeBus = tradeBus;
+        this.ordersService = ordersService;
         this.objectMapper = objectMapper;
     }
 
@@ -29,9 +44,28 @@ public class TradesHandler implements WebSocketHandler {
      */
     @Override
     public Mono<Void> handle(WebSocketSession session) {
-        return session.send(tradeBus.trades()
+        MultiValueMap<String, String> queryParams = UriComponentsBuilder.fromUri(session.getHandshakeInfo().getUri())
+                .build()
+                .getQueryParams();
+        String fromSeq = queryParams.getFirst("fromSeq");
+        Flux<Trade> trades;
+        try {
+            trades = fromSeq == null ? tradeBus.trades() : tradeBus.trades(Long.parseLong(fromSeq));
+        } catch (NumberFormatException e) {
+            return session.close(CloseStatus.BAD_DATA.withReason("Invalid fromSeq: " + fromSeq));
+        }
+        Mono<Void> output = session.send(trades
                 .map(this::writeValueAsString)
                 .map(session::textMessage));
+        String owner = queryParams.getFirst("owner");
+        if (owner == null || !Boolean.parseBoolean(queryParams.getFirst("cancelOnDisconnect"))) {
+            return output;
+        }
+        return Mono.firstWithSignal(output, session.receive().then())
+                .doFinally(signal -> ordersService.cancelByOwner(owner, null)
+                        .count()
+                        .subscribe(count -> log.debug("Session closed, cancelled {} orders of owner {}",
+                                count, owner)));
     }
 
     private String writeValueAsString(Trade trade) {
@@ -0,0 +1,191 @@
+package com.github.alexpumpkin.simulator.gateway.ipc;
+
+import com.github.alexpumpkin.simulator.gateway.binary.OrderEntryCodec;
+import com.github.alexpumpkin.simulator.model.Order;
+import com.github.alexpumpkin.simulator.model.OrderEvent;
+import com.github.alexpumpkin.simulator.trades.model.Trade;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Fixed layout of the shared memory feed file: a header followed by the ring of fixed size slots. Integers are
+ * little-endian (the byte order of the host, the file is never sent over the network), strings are ASCII
+ * right-padded with zero bytes, enums are encoded by ordinal (as in {@link OrderEntryCodec}).
+ * <pre>
+ * HEADER      (128 bytes): magic="SIMF" (4), version=1 (4), slot count (4), slot size=128 (4), padding,
+ *                          producer position at 64 (8), padding
+ * SLOT        (128 bytes): marker (8), message (up to 120)
+ * TRADE       (113 bytes): type=1 (1), sequence (8), price (4), quantity (4), timestamp in nanoseconds (8),
+ *                          symbol (8), sell uuid (36), buy uuid (36)
+ * ORDER_EVENT (107 bytes): type=2 (1), side (1), state (1), filled quantity (4), remaining quantity (4),
+ *                          timestamp in nanoseconds (8), symbol (8), uuid (36), owner (36)
+ * </pre>
+ * Record N (from 0) is written to the slot N modulo slot count. The marker of the slot is -(N + 1) while the record
+ * is written and N + 1 when it is complete, the producer position is the number of complete records. The slot count
+ * is a power of two.
+ */
+public final class IpcFeedLayout {
+    static final int MAGIC = 0x464D4953;
+    static final int VERSION = 1;
+    static final int HEADER_LENGTH = 128;
+    static final int SLOT_LENGTH = 128;
+    static final int SLOT_COUNT_OFFSET = 8;
+    static final int SLOT_LENGTH_OFFSET = 12;
+    // own cache line, the header fields are not changed after the start
+    static final int POSITION_OFFSET = 64;
+
+    static final byte TRADE = 1;
+    static final byte ORDER_EVENT = 2;
+
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, BYTE_ORDER);
+
+    private static final int SYMBOL_LENGTH = OrderEntryCodec.SYMBOL_LENGTH;
+    private static final int UUID_LENGTH = OrderEntryCodec.UUID_LENGTH;
+    private static final int OWNER_LENGTH = OrderEntryCodec.UUID_LENGTH;
+    private static final Order.Type[] TYPES = Order.Type.values();
+    private static final Order.State[] STATES = Order.State.values();
+
+    private IpcFeedLayout() {
+    }
+
+    /**
+     * Get length of the file with given number of slots.
+     *
+     * @param slotCount number of slots
+     * @return length in bytes
+     */
+    public static long fileLength(int slotCount) {
+        return HEADER_LENGTH + (long) slotCount * SLOT_LENGTH;
+    }
+
+    static int slotOffset(long position, int slotCount) {
+        return HEADER_LENGTH + (int) (position & (slotCount - 1)) * SLOT_LENGTH;
+    }
+
+    /**
+     * Check if the trade could be written: the strings fit their fields.
+     */
+    static boolean fits(Trade trade) {
+        return fits(trade.symbol(), SYMBOL_LENGTH) && fits(trade.sellOrderUuid(), UUID_LENGTH)
+                && fits(trade.buyOrderUuid(), UUID_LENGTH);
+    }
+
+    /**
+     * Check if the order event could be written: the strings fit their fields.
+     */
+    static boolean fits(OrderEvent event) {
+        return fits(event.symbol(), SYMBOL_LENGTH) && fits(event.uuid(), UUID_LENGTH)
+                && fits(event.owner(), OWNER_LENGTH);
+    }
+
+    /**
+     * Write the trade at the offset (the start of the message after the slot marker).
+     */
+    static void write(Trade trade, ByteBuffer buffer, int offset) {
+        buffer.put(offset, TRADE);
+        buffer.putLong(offset + 1, trade.sequence());
+        buffer.putInt(offset + 9, trade.price());
+        buffer.putInt(offset + 13, trade.quantity());
+        buffer.putLong(offset + 17, nanos(trade.timestamp()));
+        writeString(buffer, offset + 25, trade.symbol(), SYMBOL_LENGTH);
+        writeString(buffer, offset + 33, trade.sellOrderUuid(), UUID_LENGTH);
+        writeString(buffer, offset + 69, trade.buyOrderUuid(), UUID_LENGTH);
+    }
+
+    /**
+     * Write the order event at the offset (the start of the message after the slot marker).
+     */
+    static void write(OrderEvent event, ByteBuffer buffer, int offset) {
+        buffer.put(offset, ORDER_EVENT);
+        buffer.put(offset + 1, (byte) event.type().ordinal());
+        buffer.put(offset + 2, (byte) event.state().ordinal());
+        buffer.putInt(offset + 3, event.filledQuantity());
+        buffer.putInt(offset + 7, event.remainingQuantity());
+        buffer.putLong(offset + 11, nanos(event.timestamp()));
+        writeString(buffer, offset + 19, event.symbol(), SYMBOL_LENGTH);
+        writeString(buffer, offset + 27, event.uuid(), UUID_LENGTH);
+        writeString(buffer, offset + 63, event.owner(), OWNER_LENGTH);
+    }
+
+    /**
+     * Read the trade at the offset. The UUID of the trade is not written, trades are identified by the sequence
+     * number.
+     */
+    static Trade readTrade(ByteBuffer buffer, int offset) {
+        return new Trade(null,
+                readString(buffer, offset + 25, SYMBOL_LENGTH),
+                buffer.getInt(offset + 9),
+                buffer.getInt(offset + 13),
+                readString(buffer, offset + 33, UUID_LENGTH),
+                readString(buffer, offset + 69, UUID_LENGTH),
+                instant(buffer.getLong(offset + 17)),
+                buffer.getLong(offset + 1));
+    }
+
+    /**
+     * Read the order event at the offset. The owner is null if it was not set.
+     */
+    static OrderEvent readOrderEvent(ByteBuffer buffer, int offset) {
+        String owner = readString(buffer, offset + 63, OWNER_LENGTH);
+        return new OrderEvent(readString(buffer, offset + 27, UUID_LENGTH),
+                readString(buffer, offset + 19, SYMBOL_LENGTH),
+                owner.isEmpty() ? null : owner,
+                TYPES[buffer.get(offset + 1)],
+                STATES[buffer.get(offset + 2)],
+                buffer.getInt(offset + 3),
+                buffer.getInt(offset + 7),
+                instant(buffer.getLong(offset + 11)));
+    }
+
+    private static boolean fits(String value, int length) {
+        if (value == null) {
+            return true;
+        }
+        if (value.length() > length) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeString(ByteBuffer buffer, int offset, String value, int length) {
+        int written = value == null ? 0 : value.length();
+        for (int i = 0; i < written; i++) {
+            buffer.put(offset + i, (byte) value.charAt(i));
+        }
+        for (int i = written; i < length; i++) {
+            buffer.put(offset + i, (byte) 0);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        int end = 0;
+        while (end < length) {
+            byte value = buffer.get(offset + end);
+            if (value == 0) {
+                break;
+            }
+            bytes[end++] = value;
+        }
+        return new String(bytes, 0, end, StandardCharsets.US_ASCII);
+    }
+
+    private static long nanos(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    private static Instant instant(long nanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L), Math.floorMod(nanos, 1_000_000_000L));
+    }
+}
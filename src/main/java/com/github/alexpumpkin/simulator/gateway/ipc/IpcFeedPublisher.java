@@ -0,0 +1,135 @@
+package com.github.alexpumpkin.simulator.gateway.ipc;
+
+import com.github.alexpumpkin.simulator.model.OrderEvent;
+import com.github.alexpumpkin.simulator.orders.api.OrdersService;
+import com.github.alexpumpkin.simulator.trades.TradeBus;
+import com.github.alexpumpkin.simulator.trades.model.Trade;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.VarHandle;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Publisher of the trades and order events to the memory-mapped ring buffer file (single producer, many consumers).
+ * Consumers on the same host map the file and poll it with {@link IpcFeedReader}, so the delivery costs neither system
+ * calls nor serialization to JSON. The layout is described in {@link IpcFeedLayout}.
+ * <br/>
+ * Records are written in the publishing thread under the lock of the publisher, so there is one producer at a time
+ * and no thread handoff. The ring is never blocked by the consumers: the oldest records are overwritten and slow
+ * consumers detect the overrun.
+ */
+@Slf4j
+public class IpcFeedPublisher {
+    private final TradeBus tradeBus;
+    private final OrdersService ordersService;
+    private final Path file;
+    private final int slotCount;
+    private final Disposable.Composite subscriptions = Disposables.composite();
+    private MappedByteBuffer buffer;
+    // guarded by this
+    private long position;
+
+    /**
+     * @param tradeBus      bus of the trades to publish
+     * @param ordersService service of the order events to publish
+     * @param file          ring buffer file, replaced on the start
+     * @param slotCount     number of records kept in the ring, a power of two
+     */
+    public IpcFeedPublisher(TradeBus tradeBus, OrdersService ordersService, Path file, int slotCount) {
+        if (slotCount <= 0 || Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("Slot count must be a power of two: " + slotCount);
+        }
+        this.tradeBus = tradeBus;
+        this.ordersService = ordersService;
+        this.file = file;
+        this.slotCount = slotCount;
+    }
+
+    /**
+     * Create the ring buffer file and start the publication of new trades and order events.
+     */
+    public void start() {
+        try {
+            // consumers of the previous file keep their mapping, new consumers open the new file
+            Files.deleteIfExists(file);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, IpcFeedLayout.fileLength(slotCount));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.order(IpcFeedLayout.BYTE_ORDER);
+        buffer.putInt(0, IpcFeedLayout.MAGIC);
+        buffer.putInt(4, IpcFeedLayout.VERSION);
+        buffer.putInt(IpcFeedLayout.SLOT_COUNT_OFFSET, slotCount);
+        buffer.putInt(IpcFeedLayout.SLOT_LENGTH_OFFSET, IpcFeedLayout.SLOT_LENGTH);
+        IpcFeedLayout.LONG.setRelease(buffer, IpcFeedLayout.POSITION_OFFSET, 0L);
+        subscriptions.add(tradeBus.trades()
+                .subscribe(this::publish, e -> log.error("IPC feed publication failed: ", e)));
+        subscriptions.add(ordersService.events()
+                .subscribe(this::publish, e -> log.error("IPC feed publication failed: ", e)));
+        log.info("IPC feed is published to {}, {} slots", file, slotCount);
+    }
+
+    /**
+     * Stop the publication. The file is kept, so the consumers could read the last records.
+     */
+    public void dispose() {
+        subscriptions.dispose();
+    }
+
+    private void publish(Trade trade) {
+        if (!IpcFeedLayout.fits(trade)) {
+            log.debug("Trade is not published to the IPC feed, value is too long: {}", trade);
+            return;
+        }
+        synchronized (this) {
+            int offset = begin();
+            IpcFeedLayout.write(trade, buffer, offset + 8);
+            commit(offset);
+        }
+    }
+
+    private void publish(OrderEvent event) {
+        if (!IpcFeedLayout.fits(event)) {
+            log.debug("Order event is not published to the IPC feed, value is too long: {}", event);
+            return;
+        }
+        synchronized (this) {
+            int offset = begin();
+            IpcFeedLayout.write(event, buffer, offset + 8);
+            commit(offset);
+        }
+    }
+
+    /**
+     * Mark the slot of the next record as being written. The marker is visible before any byte of the record, so a
+     * consumer reading the previous record of the slot detects the overwrite.
+     *
+     * @return offset of the slot
+     */
+    private int begin() {
+        int offset = IpcFeedLayout.slotOffset(position, slotCount);
+        IpcFeedLayout.LONG.setOpaque(buffer, offset, -(position + 1));
+        VarHandle.storeStoreFence();
+        return offset;
+    }
+
+    /**
+     * Mark the record as complete and advance the producer position.
+     */
+    private void commit(int offset) {
+        position++;
+        IpcFeedLayout.LONG.setRelease(buffer, offset, position);
+        IpcFeedLayout.LONG.setRelease(buffer, IpcFeedLayout.POSITION_OFFSET, position);
+    }
+}
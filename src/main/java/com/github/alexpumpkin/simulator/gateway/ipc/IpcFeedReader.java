@@ -0,0 +1,156 @@
+package com.github.alexpumpkin.simulator.gateway.ipc;
+
+import com.github.alexpumpkin.simulator.model.OrderEvent;
+import com.github.alexpumpkin.simulator.trades.model.Trade;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.VarHandle;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Consumer of the memory-mapped ring buffer file written by {@link IpcFeedPublisher}. Could be used by Java clients on
+ * the same host: the file is mapped once, {@link #poll(Handler, int)} reads the shared memory without system calls
+ * and could be called in a busy loop.
+ * <br/>
+ * Every consumer has its own position and does not slow down the producer. A consumer which falls behind by more than
+ * the slot count is overrun: it skips to the producer position and the skipped records are counted as lost. The
+ * reader is not thread-safe, every thread should open its own reader.
+ */
+public class IpcFeedReader {
+    private final MappedByteBuffer buffer;
+    private final int slotCount;
+    private long position;
+    private long lost;
+
+    private IpcFeedReader(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        this.slotCount = buffer.getInt(IpcFeedLayout.SLOT_COUNT_OFFSET);
+        this.position = producerPosition();
+    }
+
+    /**
+     * Map the ring buffer file. The reader starts from the next record written by the producer.
+     *
+     * @param file ring buffer file
+     * @return new reader
+     * @throws IllegalArgumentException if the file is not the IPC feed file of the supported version
+     */
+    public static IpcFeedReader open(Path file) {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.order(IpcFeedLayout.BYTE_ORDER);
+        if (buffer.capacity() < IpcFeedLayout.HEADER_LENGTH || buffer.getInt(0) != IpcFeedLayout.MAGIC
+                || buffer.getInt(4) != IpcFeedLayout.VERSION
+                || buffer.getInt(IpcFeedLayout.SLOT_LENGTH_OFFSET) != IpcFeedLayout.SLOT_LENGTH
+                || buffer.capacity() != IpcFeedLayout.fileLength(buffer.getInt(IpcFeedLayout.SLOT_COUNT_OFFSET))) {
+            throw new IllegalArgumentException("Not an IPC feed file: " + file);
+        }
+        return new IpcFeedReader(buffer);
+    }
+
+    /**
+     * Read available records.
+     *
+     * @param handler handler of the records
+     * @param limit   maximum number of records to read
+     * @return number of records passed to the handler
+     */
+    public int poll(Handler handler, int limit) {
+        int read = 0;
+        while (read < limit) {
+            int offset = IpcFeedLayout.slotOffset(position, slotCount);
+            long expected = position + 1;
+            long marker = (long) IpcFeedLayout.LONG.getAcquire(buffer, offset);
+            if (marker != expected) {
+                if (marker > expected || marker < -expected) {
+                    // the slot is already reused by a newer record
+                    overrun();
+                    continue;
+                }
+                // the record is not written yet
+                return read;
+            }
+            Object record;
+            try {
+                record = buffer.get(offset + 8) == IpcFeedLayout.TRADE ?
+                        IpcFeedLayout.readTrade(buffer, offset + 8) :
+                        IpcFeedLayout.readOrderEvent(buffer, offset + 8);
+            } catch (RuntimeException e) {
+                // a torn record could be garbage, the marker tells if it was overwritten
+                record = null;
+            }
+            VarHandle.loadLoadFence();
+            if ((long) IpcFeedLayout.LONG.getVolatile(buffer, offset) != expected) {
+                overrun();
+                continue;
+            }
+            if (record == null) {
+                throw new IllegalStateException("Corrupted record " + position);
+            }
+            position++;
+            read++;
+            if (record instanceof Trade trade) {
+                handler.onTrade(trade);
+            } else {
+                handler.onOrderEvent((OrderEvent) record);
+            }
+        }
+        return read;
+    }
+
+    /**
+     * Get position of the next record to read.
+     *
+     * @return number of the next record
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Get number of records lost due to the overrun.
+     *
+     * @return number of lost records
+     */
+    public long lost() {
+        return lost;
+    }
+
+    private long producerPosition() {
+        return (long) IpcFeedLayout.LONG.getAcquire(buffer, IpcFeedLayout.POSITION_OFFSET);
+    }
+
+    private void overrun() {
+        long producerPosition = producerPosition();
+        lost += producerPosition - position;
+        position = producerPosition;
+    }
+
+    /**
+     * Handler of the records, called in the polling thread.
+     */
+    public interface Handler {
+
+        /**
+         * Handle the trade. The UUID of the trade is null, trades are identified by the sequence number.
+         *
+         * @param trade published trade
+         */
+        void onTrade(Trade trade);
+
+        /**
+         * Handle the order event.
+         *
+         * @param event state transition of the order
+         */
+        void onOrderEvent(OrderEvent event);
+    }
+}
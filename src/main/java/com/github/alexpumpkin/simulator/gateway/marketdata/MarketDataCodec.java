@@ -0,0 +1,200 @@
+package com.github.alexpumpkin.simulator.gateway.marketdata;
+
+import com.github.alexpumpkin.simulator.gateway.binary.OrderEntryCodec;
+import com.github.alexpumpkin.simulator.model.Order;
+import io.netty.buffer.ByteBuf;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed layout binary codec of the market data messages. Integers are big-endian, strings are ASCII right-padded
+ * with zero bytes, enums are encoded by ordinal (as in {@link OrderEntryCodec}). A UDP packet is a sequence of
+ * messages, TCP stream of the retransmit/snapshot channel is split by the message length defined by the type.
+ * <pre>
+ * TRADE      (105 bytes): type=1 (1), sequence (8), price (4), quantity (4), timestamp (8), symbol (8),
+ *                         sell uuid (36), buy uuid (36)
+ * HEARTBEAT  (9 bytes):   type=2 (1), next sequence (8)
+ * BOOK_LEVEL (22 bytes):  type=3 (1), side (1), price (4), quantity (8), symbol (8)
+ * END        (9 bytes):   type=4 (1), sequence (8)
+ * RETRANSMIT (13 bytes):  type=5 (1), from sequence (8), count (4)
+ * SNAPSHOT   (9 bytes):   type=6 (1), symbol (8)
+ * </pre>
+ */
+public final class MarketDataCodec {
+    static final byte TRADE = 1;
+    static final byte HEARTBEAT = 2;
+    static final byte BOOK_LEVEL = 3;
+    static final byte END = 4;
+    static final byte RETRANSMIT = 5;
+    static final byte SNAPSHOT = 6;
+
+    private static final int SYMBOL_LENGTH = OrderEntryCodec.SYMBOL_LENGTH;
+    private static final int UUID_LENGTH = OrderEntryCodec.UUID_LENGTH;
+    private static final Order.Type[] TYPES = Order.Type.values();
+
+    private MarketDataCodec() {
+    }
+
+    /**
+     * Get length of the message by its type.
+     *
+     * @param messageType first byte of the message
+     * @return length of the message including the type byte or -1 for unknown type
+     */
+    public static int length(byte messageType) {
+        return switch (messageType) {
+            case TRADE -> 1 + 8 + 4 + 4 + 8 + SYMBOL_LENGTH + 2 * UUID_LENGTH;
+            case HEARTBEAT, END -> 1 + 8;
+            case BOOK_LEVEL -> 1 + 1 + 4 + 8 + SYMBOL_LENGTH;
+            case RETRANSMIT -> 1 + 8 + 4;
+            case SNAPSHOT -> 1 + SYMBOL_LENGTH;
+            default -> -1;
+        };
+    }
+
+    /**
+     * Get length of the encoded message.
+     *
+     * @param message message to encode
+     * @return length of the message in bytes
+     */
+    public static int length(MarketDataMessage message) {
+        return length(type(message));
+    }
+
+    /**
+     * Check if the message could be encoded: the strings are ASCII and fit their fields.
+     *
+     * @param message message to encode
+     * @return true if the message could be encoded
+     */
+    public static boolean fits(MarketDataMessage message) {
+        if (message instanceof MarketDataMessage.Trade trade) {
+            return fits(trade.symbol(), SYMBOL_LENGTH) && fits(trade.sellOrderUuid(), UUID_LENGTH)
+                    && fits(trade.buyOrderUuid(), UUID_LENGTH);
+        } else if (message instanceof MarketDataMessage.BookLevel level) {
+            return fits(level.symbol(), SYMBOL_LENGTH);
+        } else if (message instanceof MarketDataMessage.Snapshot snapshot) {
+            return fits(snapshot.symbol(), SYMBOL_LENGTH);
+        }
+        return true;
+    }
+
+    /**
+     * Encode message to the buffer.
+     *
+     * @param message message to encode
+     * @param buffer  buffer to write
+     * @throws IllegalArgumentException if the message does not {@link #fits(MarketDataMessage) fit} the layout
+     */
+    public static void encode(MarketDataMessage message, ByteBuf buffer) {
+        buffer.writeByte(type(message));
+        if (message instanceof MarketDataMessage.Trade trade) {
+            buffer.writeLong(trade.sequence());
+            buffer.writeInt(trade.price());
+            buffer.writeInt(trade.quantity());
+            buffer.writeLong(trade.timestamp());
+            writeString(buffer, trade.symbol(), SYMBOL_LENGTH);
+            writeString(buffer, trade.sellOrderUuid(), UUID_LENGTH);
+            writeString(buffer, trade.buyOrderUuid(), UUID_LENGTH);
+        } else if (message instanceof MarketDataMessage.Heartbeat heartbeat) {
+            buffer.writeLong(heartbeat.nextSequence());
+        } else if (message instanceof MarketDataMessage.BookLevel level) {
+            buffer.writeByte(level.side().ordinal());
+            buffer.writeInt(level.price());
+            buffer.writeLong(level.quantity());
+            writeString(buffer, level.symbol(), SYMBOL_LENGTH);
+        } else if (message instanceof MarketDataMessage.End end) {
+            buffer.writeLong(end.sequence());
+        } else if (message instanceof MarketDataMessage.Retransmit retransmit) {
+            buffer.writeLong(retransmit.fromSequence());
+            buffer.writeInt(retransmit.count());
+        } else {
+            writeString(buffer, ((MarketDataMessage.Snapshot) message).symbol(), SYMBOL_LENGTH);
+        }
+    }
+
+    /**
+     * Decode message. The buffer must contain the whole message, see {@link #length(byte)}.
+     *
+     * @param buffer buffer to read
+     * @return decoded message
+     * @throws IllegalArgumentException if the message type or the side is unknown
+     */
+    public static MarketDataMessage decode(ByteBuf buffer) {
+        byte messageType = buffer.readByte();
+        return switch (messageType) {
+            case TRADE -> {
+                long sequence = buffer.readLong();
+                int price = buffer.readInt();
+                int quantity = buffer.readInt();
+                long timestamp = buffer.readLong();
+                String symbol = readString(buffer, SYMBOL_LENGTH);
+                String sellOrderUuid = readString(buffer, UUID_LENGTH);
+                yield new MarketDataMessage.Trade(sequence, symbol, price, quantity, timestamp,
+                        sellOrderUuid, readString(buffer, UUID_LENGTH));
+            }
+            case HEARTBEAT -> new MarketDataMessage.Heartbeat(buffer.readLong());
+            case BOOK_LEVEL -> {
+                byte side = buffer.readByte();
+                if (side < 0 || side >= TYPES.length) {
+                    throw new IllegalArgumentException("Unknown side " + side);
+                }
+                int price = buffer.readInt();
+                long quantity = buffer.readLong();
+                yield new MarketDataMessage.BookLevel(readString(buffer, SYMBOL_LENGTH), TYPES[side], price, quantity);
+            }
+            case END -> new MarketDataMessage.End(buffer.readLong());
+            case RETRANSMIT -> new MarketDataMessage.Retransmit(buffer.readLong(), buffer.readInt());
+            case SNAPSHOT -> new MarketDataMessage.Snapshot(readString(buffer, SYMBOL_LENGTH));
+            default -> throw new IllegalArgumentException("Unknown message type " + messageType);
+        };
+    }
+
+    private static byte type(MarketDataMessage message) {
+        if (message instanceof MarketDataMessage.Trade) {
+            return TRADE;
+        } else if (message instanceof MarketDataMessage.Heartbeat) {
+            return HEARTBEAT;
+        } else if (message instanceof MarketDataMessage.BookLevel) {
+            return BOOK_LEVEL;
+        } else if (message instanceof MarketDataMessage.End) {
+            return END;
+        } else if (message instanceof MarketDataMessage.Retransmit) {
+            return RETRANSMIT;
+        }
+        return SNAPSHOT;
+    }
+
+    private static boolean fits(String value, int length) {
+        if (value == null) {
+            return true;
+        }
+        if (value.length() > length) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeString(ByteBuf buffer, String value, int length) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length > length) {
+            throw new IllegalArgumentException("Value is longer than %s bytes: %s".formatted(length, value));
+        }
+        buffer.writeBytes(bytes);
+        buffer.writeZero(length - bytes.length);
+    }
+
+    private static String readString(ByteBuf buffer, int length) {
+        int start = buffer.readerIndex();
+        int end = buffer.indexOf(start, start + length, (byte) 0);
+        String value = buffer.toString(start, (end < 0 ? start + length : end) - start, StandardCharsets.US_ASCII);
+        buffer.skipBytes(length);
+        return value;
+    }
+}
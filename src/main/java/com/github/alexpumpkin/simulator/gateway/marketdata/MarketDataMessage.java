@@ -0,0 +1,83 @@
+package com.github.alexpumpkin.simulator.gateway.marketdata;
+
+import com.github.alexpumpkin.simulator.model.Order;
+
+import java.time.Instant;
+
+/**
+ * Messages of the market data feed, see {@link MarketDataCodec} for the binary layout.
+ */
+public sealed interface MarketDataMessage {
+
+    /**
+     * Executed trade, sent to the multicast group and as the retransmit response.
+     *
+     * @param sequence      sequence number of the trade
+     * @param symbol        order book's symbol
+     * @param price         price of the trade
+     * @param quantity      quantity of the trade
+     * @param timestamp     timestamp of the trade, nanoseconds since the epoch
+     * @param sellOrderUuid selling order uuid
+     * @param buyOrderUuid  buying order uuid
+     */
+    record Trade(long sequence, String symbol, int price, int quantity, long timestamp,
+                 String sellOrderUuid, String buyOrderUuid) implements MarketDataMessage {
+
+        /**
+         * Create the message of the published trade.
+         *
+         * @param trade trade with the sequence number
+         * @return trade message
+         */
+        public static Trade of(com.github.alexpumpkin.simulator.trades.model.Trade trade) {
+            Instant timestamp = trade.timestamp();
+            return new Trade(trade.sequence(), trade.symbol(), trade.price(), trade.quantity(),
+                    timestamp.getEpochSecond() * 1_000_000_000L + timestamp.getNano(),
+                    trade.sellOrderUuid(), trade.buyOrderUuid());
+        }
+    }
+
+    /**
+     * Sent to the multicast group when there are no trades, so the consumers could detect the lost last packets.
+     *
+     * @param nextSequence sequence number of the next trade
+     */
+    record Heartbeat(long nextSequence) implements MarketDataMessage {
+    }
+
+    /**
+     * Aggregated price level of the order book, sent as the snapshot response.
+     *
+     * @param symbol   order book's symbol
+     * @param side     side of the level
+     * @param price    price of the level
+     * @param quantity total resting quantity of the level
+     */
+    record BookLevel(String symbol, Order.Type side, int price, long quantity) implements MarketDataMessage {
+    }
+
+    /**
+     * End of the retransmit or snapshot response.
+     *
+     * @param sequence sequence number of the last published trade when the response was built
+     */
+    record End(long sequence) implements MarketDataMessage {
+    }
+
+    /**
+     * Request to retransmit the trades.
+     *
+     * @param fromSequence sequence number of the first trade
+     * @param count        number of trades
+     */
+    record Retransmit(long fromSequence, int count) implements MarketDataMessage {
+    }
+
+    /**
+     * Request for the snapshot of the order book.
+     *
+     * @param symbol order book's symbol
+     */
+    record Snapshot(String symbol) implements MarketDataMessage {
+    }
+}
@@ -0,0 +1,154 @@
+package com.github.alexpumpkin.simulator.gateway.marketdata;
+
+import com.github.alexpumpkin.simulator.trades.TradeBus;
+import com.github.alexpumpkin.simulator.trades.model.Trade;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.channels.DatagramChannel;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Publisher of the trades to the UDP multicast group. Every packet contains as many {@link MarketDataMessage.Trade}
+ * messages as fit into the MTU, the trades are sent in the order of the sequence numbers. A
+ * {@link MarketDataMessage.Heartbeat} is sent when there were no trades for a second. The cost of the publication does
+ * not depend on the number of consumers, lost packets are recovered with {@link MarketDataServer}.
+ * <br/>
+ * All packets are built and sent on one thread, so the matching engine is not blocked by the socket.
+ */
+@Slf4j
+public class MarketDataPublisher {
+    private static final Duration MAX_BATCH_DELAY = Duration.ofMillis(1);
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(1);
+    private static final int TRADE_LENGTH = MarketDataCodec.length(MarketDataCodec.TRADE);
+
+    private final TradeBus tradeBus;
+    private final InetSocketAddress group;
+    private final String networkInterface;
+    private final int maxPayload;
+    private final int ttl;
+    private final ByteBuf packet;
+    private final Disposable.Composite subscriptions = Disposables.composite();
+    private Scheduler scheduler;
+    private DatagramChannel channel;
+    // accessed on the publisher thread only
+    private long lastSequence;
+    private long lastSent;
+
+    /**
+     * @param tradeBus         bus of the trades to publish
+     * @param group            multicast group address and port
+     * @param networkInterface name of the network interface to send from, the default interface if empty
+     * @param maxPayload       maximal UDP payload of a packet
+     * @param ttl              time-to-live of the multicast packets
+     */
+    public MarketDataPublisher(TradeBus tradeBus, InetSocketAddress group, String networkInterface, int maxPayload,
+                               int ttl) {
+        if (maxPayload < TRADE_LENGTH) {
+            throw new IllegalArgumentException("Payload must fit at least one trade: " + maxPayload);
+        }
+        this.tradeBus = tradeBus;
+        this.group = group;
+        this.networkInterface = networkInterface;
+        this.maxPayload = maxPayload;
+        this.ttl = ttl;
+        this.packet = Unpooled.directBuffer(maxPayload, maxPayload);
+    }
+
+    /**
+     * Open the channel and start the publication of new trades.
+     */
+    public void start() {
+        try {
+            channel = DatagramChannel.open(StandardProtocolFamily.INET);
+            if (!networkInterface.isEmpty()) {
+                NetworkInterface sendInterface = NetworkInterface.getByName(networkInterface);
+                if (sendInterface == null) {
+                    throw new IllegalArgumentException("Unknown network interface " + networkInterface);
+                }
+                channel.setOption(StandardSocketOptions.IP_MULTICAST_IF, sendInterface);
+            }
+            channel.setOption(StandardSocketOptions.IP_MULTICAST_LOOP, true);
+            channel.setOption(StandardSocketOptions.IP_MULTICAST_TTL, ttl);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        lastSequence = tradeBus.lastSequence();
+        scheduler = Schedulers.newSingle("market-data");
+        int tradesPerPacket = maxPayload / TRADE_LENGTH;
+        subscriptions.add(tradeBus.trades()
+                .onBackpressureBuffer()
+                .publishOn(scheduler)
+                .bufferTimeout(tradesPerPacket, MAX_BATCH_DELAY, scheduler)
+                .subscribe(this::send, e -> log.error("Market data publication failed: ", e)));
+        subscriptions.add(Flux.interval(HEARTBEAT_INTERVAL, scheduler)
+                .subscribe(ignored -> heartbeat()));
+        log.info("Market data is published to {}", group);
+    }
+
+    /**
+     * Stop the publication and close the channel.
+     */
+    public void dispose() {
+        subscriptions.dispose();
+        if (scheduler != null) {
+            scheduler.dispose();
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close market data channel: ", e);
+            }
+        }
+        packet.release();
+    }
+
+    private void send(List<Trade> trades) {
+        packet.clear();
+        for (Trade trade : trades) {
+            MarketDataMessage.Trade message = MarketDataMessage.Trade.of(trade);
+            // the sequence number is used anyway, consumers see the gap and the retransmit skips the trade too
+            if (MarketDataCodec.fits(message)) {
+                MarketDataCodec.encode(message, packet);
+            } else {
+                log.debug("Trade is not published to the market data, value is too long: {}", trade);
+            }
+            lastSequence = trade.sequence();
+        }
+        if (packet.isReadable()) {
+            flush();
+        }
+    }
+
+    private void heartbeat() {
+        if (System.nanoTime() - lastSent >= HEARTBEAT_INTERVAL.toNanos()) {
+            packet.clear();
+            MarketDataCodec.encode(new MarketDataMessage.Heartbeat(lastSequence + 1), packet);
+            flush();
+        }
+    }
+
+    private void flush() {
+        try {
+            channel.send(packet.nioBuffer(), group);
+            lastSent = System.nanoTime();
+        } catch (IOException e) {
+            // the lost packet is recovered by the consumers with the retransmit request
+            log.warn("Failed to send market data packet: {}", e.toString());
+        }
+    }
+}
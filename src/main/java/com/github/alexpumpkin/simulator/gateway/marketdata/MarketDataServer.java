@@ -0,0 +1,136 @@
+package com.github.alexpumpkin.simulator.gateway.marketdata;
+
+import com.github.alexpumpkin.simulator.model.Order;
+import com.github.alexpumpkin.simulator.orders.model.OrderBook;
+import com.github.alexpumpkin.simulator.orders.services.OrderBooksHolder;
+import com.github.alexpumpkin.simulator.trades.TradeBus;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.netty.DisposableServer;
+import reactor.netty.tcp.TcpServer;
+import reactor.util.function.Tuple2;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+
+/**
+ * TCP server of the market data recovery channel. A connection is a stream of requests, the responses are sent in the
+ * order of requests:
+ * <ul>
+ *     <li>{@link MarketDataMessage.Retransmit} - trades of the range kept in the replay buffer of the {@link TradeBus}
+ *     followed by {@link MarketDataMessage.End};</li>
+ *     <li>{@link MarketDataMessage.Snapshot} - aggregated price levels of the order book (sell levels from the best
+ *     price, then buy levels from the best price) followed by {@link MarketDataMessage.End} with the sequence number of
+ *     the last trade published before the snapshot was taken.</li>
+ * </ul>
+ */
+@Slf4j
+public class MarketDataServer {
+    private static final int MAX_RETRANSMIT = 10_000;
+
+    private final TradeBus tradeBus;
+    private final OrderBooksHolder orderBooksHolder;
+    private final int port;
+    private DisposableServer server;
+
+    public MarketDataServer(TradeBus tradeBus, OrderBooksHolder orderBooksHolder, int port) {
+        this.tradeBus = tradeBus;
+        this.orderBooksHolder = orderBooksHolder;
+        this.port = port;
+    }
+
+    /**
+     * Bind the server.
+     */
+    public void start() {
+        server = TcpServer.create()
+                .port(port)
+                .doOnConnection(connection -> connection.addHandlerLast(new MarketDataDecoder()))
+                .handle((inbound, outbound) -> outbound.send(inbound.receiveObject()
+                        .cast(MarketDataMessage.class)
+                        .concatMap(this::process)
+                        .map(message -> {
+                            var buffer = outbound.alloc().buffer(MarketDataCodec.length(message));
+                            MarketDataCodec.encode(message, buffer);
+                            return buffer;
+                        })))
+                .bindNow();
+        log.info("Market data server started on port {}", server.port());
+    }
+
+    /**
+     * Get the bound port.
+     *
+     * @return port of the server
+     */
+    public int port() {
+        return server.port();
+    }
+
+    /**
+     * Stop the server.
+     */
+    public void dispose() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    private Flux<MarketDataMessage> process(MarketDataMessage message) {
+        if (message instanceof MarketDataMessage.Retransmit retransmit) {
+            return retransmit(retransmit);
+        } else if (message instanceof MarketDataMessage.Snapshot snapshot) {
+            return snapshot(snapshot);
+        }
+        // responses are not accepted as requests
+        return Flux.just(new MarketDataMessage.End(tradeBus.lastSequence()));
+    }
+
+    private Flux<MarketDataMessage> retransmit(MarketDataMessage.Retransmit retransmit) {
+        long last = tradeBus.lastSequence();
+        long from = Math.max(retransmit.fromSequence(), 1);
+        long to = Math.min(from + Math.min(retransmit.count(), MAX_RETRANSMIT) - 1, last);
+        if (to < from) {
+            return Flux.just(new MarketDataMessage.End(last));
+        }
+        // trades up to the last sequence are in the replay buffer, so the Flux does not wait for new trades
+        return tradeBus.trades(from)
+                .takeUntil(trade -> trade.sequence() >= to)
+                .<MarketDataMessage>map(MarketDataMessage.Trade::of)
+                .filter(MarketDataCodec::fits)
+                .concatWith(Flux.just(new MarketDataMessage.End(last)));
+    }
+
+    private Flux<MarketDataMessage> snapshot(MarketDataMessage.Snapshot snapshot) {
+        return Flux.defer(() -> {
+            long last = tradeBus.lastSequence();
+            List<MarketDataMessage> levels = new ArrayList<>();
+            OrderBook orderBook = orderBooksHolder.getOrderBook(snapshot.symbol());
+            if (orderBook != null) {
+                addLevels(levels, snapshot.symbol(), Order.Type.SELL, orderBook.sellOrdersByPrice());
+                addLevels(levels, snapshot.symbol(), Order.Type.BUY, orderBook.buyOrdersByPrice());
+            }
+            levels.add(new MarketDataMessage.End(last));
+            return Flux.fromIterable(levels);
+        });
+    }
+
+    private static void addLevels(List<MarketDataMessage> levels, String symbol, Order.Type side,
+                                  Iterator<Map.Entry<Integer, ConcurrentNavigableMap<Instant, Tuple2<String, Integer>>>>
+                                          iterator) {
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, ConcurrentNavigableMap<Instant, Tuple2<String, Integer>>> level = iterator.next();
+            long quantity = 0;
+            for (Tuple2<String, Integer> entry : level.getValue().values()) {
+                quantity += entry.getT2();
+            }
+            if (quantity > 0) {
+                levels.add(new MarketDataMessage.BookLevel(symbol, side, level.getKey(), quantity));
+            }
+        }
+    }
+}
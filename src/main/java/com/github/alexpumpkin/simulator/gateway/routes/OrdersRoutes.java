@@ -1,13 +1,24 @@
 package com.github.alexpumpkin.simulator.gateway.routes;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.alexpumpkin.simulator.gateway.handlers.AdmissionHandler;
+import com.github.alexpumpkin.simulator.gateway.handlers.CapacityHandler;
+import com.github.alexpumpkin.simulator.gateway.handlers.OrderEventsHandler;
 import com.github.alexpumpkin.simulator.gateway.handlers.OrdersHandler;
+import com.github.alexpumpkin.simulator.gateway.handlers.ReplicationHandler;
+import com.github.alexpumpkin.simulator.gateway.handlers.RiskHandler;
+import com.github.alexpumpkin.simulator.gateway.handlers.TradeArchiveHandler;
 import com.github.alexpumpkin.simulator.gateway.handlers.TradesHandler;
+import com.github.alexpumpkin.simulator.orders.api.OrdersService;
 import com.github.alexpumpkin.simulator.trades.TradeBus;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.reactive.HandlerMapping;
 import org.springframework.web.reactive.function.server.RouterFunction;
@@ -25,30 +36,69 @@ import static org.springframework.web.reactive.function.server.RouterFunctions.r
  * Simulator configuration for RouterFunctions.
  */
 @Configuration
+@Profile("!gateway")
 @Slf4j
 public class OrdersRoutes {
 
     @Bean
-    RouterFunction<ServerResponse> mainRouterFunction(OrdersHandler ordersHandler) {
+    RouterFunction<ServerResponse> mainRouterFunction(OrdersHandler ordersHandler, AdmissionHandler admissionHandler,
+                                                      CapacityHandler capacityHandler, RiskHandler riskHandler) {
         return route()
                 .POST("/orders/buy", contentType(MediaType.APPLICATION_JSON), ordersHandler::buy)
                 .POST("/orders/sell", contentType(MediaType.APPLICATION_JSON), ordersHandler::sell)
+                .POST("/orders/batch", contentType(MediaType.APPLICATION_NDJSON), ordersHandler::batch)
+                .PATCH("/orders/{uuid}", contentType(MediaType.APPLICATION_JSON), ordersHandler::amend)
                 .DELETE("/orders/{uuid}", ordersHandler::cancel)
+                .DELETE("/orders/symbols/{symbol}", ordersHandler::cancelBySymbol)
+                .DELETE("/orders/owners/{owner}", ordersHandler::cancelByOwner)
+                .POST("/orders/symbols/{symbol}/auction", ordersHandler::auction)
+                .GET("/orders", ordersHandler::findOpenOrders)
+                .GET("/orders/{uuid}", ordersHandler::getByUuid)
+                .GET("/admission/limits", admissionHandler::getLimits)
+                .PUT("/admission/limits", contentType(MediaType.APPLICATION_JSON), admissionHandler::setLimits)
+                .GET("/capacity", capacityHandler::usage)
+                .PUT("/capacity/limits", contentType(MediaType.APPLICATION_JSON), capacityHandler::setLimits)
+                .GET("/risk/limits", riskHandler::getLimits)
+                .PUT("/risk/limits", contentType(MediaType.APPLICATION_JSON), riskHandler::setLimits)
+                .GET("/risk/accounts/{owner}", riskHandler::exposure)
                 .build();
     }
 
     @Bean
-    HandlerMapping handlerMapping(TradeBus tradeBus, ObjectMapper objectMapper) {
-        Map<String, WebSocketHandler> map = new HashMap<>();
-        map.put("/trades", new TradesHandler(tradeBus, objectMapper));
-        return new SimpleUrlHandlerMapping(map, -1);
+    RouterFunction<ServerResponse> readinessRouterFunction(ApplicationAvailability applicationAvailability) {
+        return route()
+                .GET("/ready", request -> {
+                    ReadinessState state = applicationAvailability.getReadinessState();
+                    return ServerResponse.status(state == ReadinessState.ACCEPTING_TRAFFIC ?
+                                    HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+                            .bodyValue(state);
+                })
+                .build();
     }
 
     @Bean
-    @Profile("test")
-    RouterFunction<ServerResponse> additionalRouterFunction(OrdersHandler ordersHandler) {
+    @ConditionalOnProperty("simulator.replication.primary")
+    RouterFunction<ServerResponse> replicationRouterFunction(ReplicationHandler replicationHandler) {
         return route()
-                .GET("/orders/{uuid}", ordersHandler::getByUuid)
+                .GET("/replication/status", replicationHandler::status)
+                .POST("/replication/promote", replicationHandler::promote)
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnProperty("simulator.trades.archive.directory")
+    RouterFunction<ServerResponse> tradeArchiveRouterFunction(TradeArchiveHandler tradeArchiveHandler) {
+        return route()
+                .GET("/trades/archive", tradeArchiveHandler::trades)
+                .GET("/trades/archive/summary", tradeArchiveHandler::summary)
                 .build();
     }
+
+    @Bean
+    HandlerMapping handlerMapping(TradeBus tradeBus, OrdersService ordersService, ObjectMapper objectMapper) {
+        Map<String, WebSocketHandler> map = new HashMap<>();
+        map.put("/trades", new TradesHandler(tradeBus, ordersService, objectMapper));
+        map.put("/orders/events", new OrderEventsHandler(ordersService, objectMapper));
+        return new SimpleUrlHandlerMapping(map, -1);
+    }
 }
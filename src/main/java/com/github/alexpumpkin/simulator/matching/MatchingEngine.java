@@ -1,48 +1,553 @@
 package com.github.alexpumpkin.simulator.matching;
 
+import com.github.alexpumpkin.simulator.model.AuctionResult;
+import com.github.alexpumpkin.simulator.model.ExecutionReport;
 import com.github.alexpumpkin.simulator.model.Order;
+import com.github.alexpumpkin.simulator.monitoring.MatchEvent;
 import com.github.alexpumpkin.simulator.orders.api.OrdersService;
 import com.github.alexpumpkin.simulator.orders.model.OrderBook;
 import com.github.alexpumpkin.simulator.orders.services.OrderBooksHolder;
 import com.github.alexpumpkin.simulator.trades.TradeBus;
 import com.github.alexpumpkin.simulator.trades.model.Trade;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.core.scheduler.Schedulers;
 import reactor.util.function.Tuple2;
 import reactor.util.function.Tuples;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
 
 /**
  * Matching engine to process order books
+ * <br/>
+ * Order books are matched continuously by default: every second the crossing orders are matched pair by pair. Order
+ * books of the auction symbols accumulate orders and are uncrossed periodically at a single clearing price (call
+ * auction).
  */
 @Slf4j
 public class MatchingEngine {
 
     private static final Set<Order.State> PROCESS_STATES = EnumSet.of(
             Order.State.PROCESS_PENDING, Order.State.PROCESS_PARTIALLY_EXECUTED);
+    private static final Set<Order.State> ACTIVE_STATES = EnumSet.of(
+            Order.State.PENDING, Order.State.PARTIALLY_EXECUTED);
 
     private final OrdersService ordersService;
+    private final OrderBooksHolder orderBooksHolder;
     private final TradeBus tradeBus;
+    private final Map<String, List<FillsCollector>> fillsCollectors = new ConcurrentHashMap<>();
+    private final Set<String> auctionSymbols;
+    private final Duration reportTimeout;
+    private final Disposable passes;
+    private volatile boolean paused;
 
     public MatchingEngine(OrdersService ordersService, OrderBooksHolder orderBooksHolder, TradeBus tradeBus) {
+        this(ordersService, orderBooksHolder, tradeBus, Set.of(), Duration.ofMinutes(1), Duration.ofSeconds(5));
+    }
+
+    /**
+     * @param auctionSymbols  symbols matched by the call auction instead of the continuous matching
+     * @param auctionInterval interval between the auctions
+     * @param reportTimeout   max time to wait for the matching pass of the execution report
+     */
+    public MatchingEngine(OrdersService ordersService, OrderBooksHolder orderBooksHolder, TradeBus tradeBus,
+                          Set<String> auctionSymbols, Duration auctionInterval, Duration reportTimeout) {
         this.ordersService = ordersService;
+        this.orderBooksHolder = orderBooksHolder;
         this.tradeBus = tradeBus;
-        Flux.interval(Duration.ofSeconds(1))
-                .flatMap(ignored -> Flux.fromIterable(orderBooksHolder.allSymbols()))
+        this.auctionSymbols = Set.copyOf(auctionSymbols);
+        this.reportTimeout = reportTimeout;
+        passes = Flux.merge(
+                        Flux.interval(Duration.ofSeconds(1))
+                                .flatMapIterable(ignored -> orderBooksHolder.allSymbols())
+                                .filter(symbol -> !this.auctionSymbols.contains(symbol)),
+                        Flux.interval(auctionInterval)
+                                .flatMapIterable(ignored -> this.auctionSymbols))
+                .filter(ignored -> !paused)
                 .parallel().runOn(Schedulers.parallel())
                 .doOnNext(symbol -> match(symbol, orderBooksHolder.getOrderBook(symbol)))
                 .subscribe();
     }
 
+    /**
+     * Run one matching pass over all order books in the calling thread. Used to drive the paused engine.
+     */
+    public void runPass() {
+        orderBooksHolder.allSymbols().forEach(symbol -> match(symbol, orderBooksHolder.getOrderBook(symbol)));
+    }
+
+    /**
+     * Uncross the order book in the calling thread at the clearing price, regardless of the matching mode of the
+     * symbol. Used to run opening and closing auctions on demand.
+     *
+     * @param symbol order book's symbol
+     * @return clearing price and trades of the auction
+     */
+    public AuctionResult uncross(String symbol) {
+        OrderBook orderBook = orderBooksHolder.getOrderBook(symbol);
+        return orderBook == null ? AuctionResult.none(symbol) : match(symbol, orderBook, true);
+    }
+
+    /**
+     * Stop the matching engine.
+     */
+    public void dispose() {
+        passes.dispose();
+    }
+
+    /**
+     * Wait for the next matching pass over the order book of the order. Should be called after the order is added.
+     * The engine could be paused or the symbol could wait for its auction, so the report without fills is emitted
+     * if there is no pass during the report timeout.
+     *
+     * @param order added order
+     * @return execution report with the fills of the order during the pass, emitted when the pass is finished
+     */
+    public Mono<ExecutionReport> executionReport(Order order) {
+        return Mono.defer(() -> {
+                    FillsCollector collector = new FillsCollector(order.uuid(), new ArrayList<>(), Sinks.one());
+                    fillsCollectors.compute(order.symbol(), (symbol, collectors) -> {
+                        if (collectors == null) {
+                            collectors = new ArrayList<>();
+                        }
+                        collectors.add(collector);
+                        return collectors;
+                    });
+                    return collector.result().asMono()
+                            // the collector taken by the pass in progress is completed by the pass
+                            .timeout(reportTimeout, Mono.defer(() -> unregister(order.symbol(), collector) ?
+                                    Mono.just(List.of()) : collector.result().asMono()))
+                            .doOnCancel(() -> unregister(order.symbol(), collector));
+                })
+                .flatMap(fills -> ordersService.getOrderByUUID(order.uuid())
+                        .map(current -> ExecutionReport.of(current, fills)));
+    }
+
+    /**
+     * @return true if the collector is removed, false if it is taken by the matching pass
+     */
+    private boolean unregister(String symbol, FillsCollector collector) {
+        boolean[] removed = new boolean[1];
+        fillsCollectors.computeIfPresent(symbol, (ignored, collectors) -> {
+            removed[0] = collectors.remove(collector);
+            return collectors.isEmpty() ? null : collectors;
+        });
+        return removed[0];
+    }
+
+    /**
+     * Stop matching passes, the pass in progress is finished.
+     */
+    public void pause() {
+        paused = true;
+    }
+
+    /**
+     * Resume matching passes.
+     */
+    public void resume() {
+        paused = false;
+    }
+
+    /**
+     * Add the market, IOC or FOK order and match it with the resting orders of the opposite side in the calling thread.
+     * The order is never inserted into the order book: the remaining quantity of the IOC (or market) order is
+     * cancelled, the FOK order is cancelled without execution if the order book could not fill it completely.
+     * <br/>
+     * The order is locked since it is added, resting orders are locked one by one in the order of priority until the
+     * order is covered, so the locked quantity of the FOK order is either executed completely or released. Resting
+     * orders locked by someone else are skipped.
+     *
+     * @param order new order which is not resting in the order book
+     * @return execution report with the final state of the order and its fills, the report of the existing order
+     * without fills for the duplicated request
+     */
+    public Mono<ExecutionReport> execute(Order order) {
+        return ordersService.add(order)
+                // only the added order is returned as is (and locked for this call), duplicates are copies of the
+                // stored order with its current state
+                .flatMap(added -> added == order ?
+                        Mono.fromCallable(() -> execute(order, orderBooksHolder.getOrderBook(order.symbol())))
+                                .flatMap(fills -> ordersService.getOrderByUUID(order.uuid())
+                                        .map(current -> ExecutionReport.of(current, fills))) :
+                        Mono.just(duplicateReport(added)));
+    }
+
+    /**
+     * Get report of the stored order without fills. The remaining quantity of the resting order is read from the
+     * order book, closed orders have nothing remaining.
+     */
+    private ExecutionReport duplicateReport(Order stored) {
+        int remaining;
+        if (stored.state() == Order.State.EXECUTED || stored.state() == Order.State.CANCELLED
+                || stored.state() == Order.State.PARTIALLY_CANCELED) {
+            remaining = 0;
+        } else if (stored.resting()) {
+            OrderBook orderBook = orderBooksHolder.getOrderBook(stored.symbol());
+            remaining = orderBook == null ? 0 : orderBook.quantity(stored);
+        } else {
+            // the immediate order is being executed by another call
+            remaining = stored.quantity();
+        }
+        return new ExecutionReport(stored, remaining, List.of());
+    }
+
+    /**
+     * @return fills of the order
+     */
+    private List<Trade> execute(Order order, OrderBook orderBook) {
+        MatchEvent event = new MatchEvent();
+        event.begin();
+        List<LockedOrder> lockedOrders = new ArrayList<>();
+        // there is no liquidity between the auctions, the immediate order is cancelled
+        if (orderBook != null && !auctionSymbols.contains(order.symbol())
+                && (order.timeInForce() != Order.TimeInForce.FOK || depth(order, orderBook) >= order.quantity())) {
+            int lockedQuantity = lock(order, orderBook, lockedOrders, event);
+            if (order.timeInForce() == Order.TimeInForce.FOK && lockedQuantity < order.quantity()) {
+                log.debug("FOK order is not covered, locked quantity {}: {}", lockedQuantity, order);
+                lockedOrders.forEach(locked -> ordersService.unlockProcessed(locked.uuid(), unlocked(locked.state())));
+                lockedOrders.clear();
+            }
+        }
+
+        int remaining = order.quantity();
+        List<Trade> fills = new ArrayList<>(lockedOrders.size());
+        for (LockedOrder locked : lockedOrders) {
+            int quantity = Math.min(remaining, locked.entry().getT2());
+            update(locked.orders(), locked.instant(), locked.entry(), locked.entry().getT2() - quantity);
+            Trade trade = tradeBus.publish(order.type() == Order.Type.BUY ?
+                    new Trade(order.symbol(), locked.price(), quantity, locked.uuid(), order.uuid()) :
+                    new Trade(order.symbol(), locked.price(), quantity, order.uuid(), locked.uuid()));
+            ordersService.unlockProcessed(locked.uuid(), locked.entry().getT2() > quantity ?
+                    Order.State.PARTIALLY_EXECUTED : Order.State.EXECUTED, quantity, locked.entry().getT2() - quantity);
+            fills.add(trade);
+            event.trades++;
+            event.volume += quantity;
+            remaining -= quantity;
+        }
+        ordersService.unlockProcessed(order.uuid(), remaining == 0 ? Order.State.EXECUTED :
+                        remaining < order.quantity() ? Order.State.PARTIALLY_CANCELED : Order.State.CANCELLED,
+                order.quantity() - remaining, remaining);
+        if (event.shouldCommit()) {
+            event.symbol = order.symbol();
+            event.commit();
+        }
+        return fills;
+    }
+
+    /**
+     * Get quantity of the opposite orders crossing the order, without locking them. The pre-check of the FOK order.
+     *
+     * @return available quantity, not greater than the order quantity
+     */
+    private static long depth(Order order, OrderBook orderBook) {
+        long depth = 0;
+        Iterator<Map.Entry<Integer, ConcurrentNavigableMap<Instant, Tuple2<String, Integer>>>> levels =
+                opposite(order, orderBook);
+        while (levels.hasNext() && depth < order.quantity()) {
+            Map.Entry<Integer, ConcurrentNavigableMap<Instant, Tuple2<String, Integer>>> level = levels.next();
+            if (!order.crosses(level.getKey())) {
+                break;
+            }
+            for (Tuple2<String, Integer> entry : level.getValue().values()) {
+                depth += entry.getT2();
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * Lock the opposite orders crossing the order in the order of priority until their quantity covers the order.
+     *
+     * @return locked quantity
+     */
+    private int lock(Order order, OrderBook orderBook, List<LockedOrder> lockedOrders, MatchEvent event) {
+        int lockedQuantity = 0;
+        Iterator<Map.Entry<Integer, ConcurrentNavigableMap<Instant, Tuple2<String, Integer>>>> levels =
+                opposite(order, orderBook);
+        while (levels.hasNext() && lockedQuantity < order.quantity()) {
+            Map.Entry<Integer, ConcurrentNavigableMap<Instant, Tuple2<String, Integer>>> level = levels.next();
+            if (!order.crosses(level.getKey())) {
+                break;
+            }
+            ConcurrentNavigableMap<Instant, Tuple2<String, Integer>> orders = level.getValue();
+            Iterator<Map.Entry<Instant, Tuple2<String, Integer>>> iterator = orders.entrySet().iterator();
+            while (iterator.hasNext() && lockedQuantity < order.quantity()) {
+                Map.Entry<Instant, Tuple2<String, Integer>> resting = iterator.next();
+                String uuid = resting.getValue().getT1();
+                Order.State state = ordersService.lockToProcess(uuid);
+                event.attempts++;
+                if (!PROCESS_STATES.contains(state)) {
+                    continue;
+                }
+                // quantities are changed only while the order is locked, so they are read after the lock
+                Tuple2<String, Integer> entry = orders.get(resting.getKey());
+                if (entry == null || !entry.getT1().equals(uuid)) {
+                    ordersService.unlockProcessed(uuid, unlocked(state));
+                    continue;
+                }
+                lockedOrders.add(new LockedOrder(uuid, state, level.getKey(), orders, resting.getKey(), entry));
+                lockedQuantity += entry.getT2();
+            }
+        }
+        return lockedQuantity;
+    }
+
+    private static Iterator<Map.Entry<Integer, ConcurrentNavigableMap<Instant, Tuple2<String, Integer>>>> opposite(
+            Order order, OrderBook orderBook) {
+        return order.type() == Order.Type.BUY ? orderBook.sellOrdersByPrice() : orderBook.buyOrdersByPrice();
+    }
+
+    /**
+     * Apply the trade executed by another matching engine (the replication primary) to the orders and order books.
+     *
+     * @param trade trade to apply
+     * @return empty Mono, completed when the trade is applied
+     */
+    public Mono<Void> apply(Trade trade) {
+        return Mono.zip(ordersService.getOrderByUUID(trade.sellOrderUuid()),
+                        ordersService.getOrderByUUID(trade.buyOrderUuid()))
+                .switchIfEmpty(Mono.error(new IllegalStateException("Orders are not found: " + trade)))
+                .flatMap(orders -> Mono.fromRunnable(() -> apply(trade, List.of(orders.getT1(), orders.getT2()))));
+    }
+
+    private void apply(Trade trade, List<Order> orders) {
+        List<Order.State> lockResult = orders.stream()
+                .map(order -> ordersService.lockToProcess(order.uuid()))
+                .toList();
+        if (!lockResult.stream().allMatch(PROCESS_STATES::contains)) {
+            for (int i = 0; i < orders.size(); i++) {
+                if (PROCESS_STATES.contains(lockResult.get(i))) {
+                    ordersService.unlockProcessed(orders.get(i).uuid(), unlocked(lockResult.get(i)));
+                }
+            }
+            throw new IllegalStateException("Orders are not locked: " + lockResult);
+        }
+        OrderBook orderBook = orderBooksHolder.getOrderBook(trade.symbol());
+        int[] quantities = orders.stream()
+                .mapToInt(order -> orderBook.quantity(order) - trade.quantity())
+                .toArray();
+        for (int i = 0; i < orders.size(); i++) {
+            update(orderBook, orders.get(i), quantities[i]);
+        }
+        tradeBus.publish(trade);
+        for (int i = 0; i < orders.size(); i++) {
+            ordersService.unlockProcessed(orders.get(i).uuid(), quantities[i] > 0 ?
+                    Order.State.PARTIALLY_EXECUTED : Order.State.EXECUTED, trade.quantity(), quantities[i]);
+        }
+    }
+
     private void match(String symbol, OrderBook orderBook) {
+        if (orderBook != null) {
+            match(symbol, orderBook, auctionSymbols.contains(symbol));
+        }
+    }
+
+    private AuctionResult match(String symbol, OrderBook orderBook, boolean auction) {
+        MatchEvent event = new MatchEvent();
+        event.begin();
+        // collectors registered after this point wait for the next pass
+        List<FillsCollector> collectors = fillsCollectors.remove(symbol);
+        MatchPass pass = new MatchPass(event, collectors == null ? Map.of() : collectors.stream()
+                .collect(Collectors.groupingBy(FillsCollector::uuid)));
+        AuctionResult result = null;
+        if (auction) {
+            result = uncross(symbol, orderBook, pass);
+        } else {
+            match(symbol, orderBook, pass);
+        }
+        if (collectors != null) {
+            collectors.forEach(collector -> collector.result().tryEmitValue(collector.fills()));
+        }
+        if (event.shouldCommit()) {
+            event.symbol = symbol;
+            event.commit();
+        }
+        return result;
+    }
+
+    /**
+     * Call auction. Every order of the crossing range (from the best ask to the best bid) is locked once, the clearing
+     * price is found over the locked quantities, then the orders are filled in the order of price-time priority at the
+     * clearing price. Trades are published as one batch while the orders are locked. Orders locked by someone else
+     * wait for the next auction.
+     */
+    private AuctionResult uncross(String symbol, OrderBook orderBook, MatchPass pass) {
+        Integer bestBid = bestPrice(orderBook.buyOrdersByPrice());
+        Integer bestAsk = bestPrice(orderBook.sellOrdersByPrice());
+        if (bestBid == null || bestAsk == null || bestBid < bestAsk) {
+            return AuctionResult.none(symbol);
+        }
+        List<LockedOrder> sells = lockAll(orderBook.sellOrdersByPrice(), price -> price <= bestBid, pass.event());
+        List<LockedOrder> buys = lockAll(orderBook.buyOrdersByPrice(), price -> price >= bestAsk, pass.event());
+        int[] sellExecuted = new int[sells.size()];
+        int[] buyExecuted = new int[buys.size()];
+        Clearing clearing = clearing(sells, buys);
+        List<Trade> trades = new ArrayList<>();
+        if (clearing != null) {
+            // eligible orders are the head of each side, the volume is covered by both of them
+            long remaining = clearing.volume();
+            int s = 0;
+            int b = 0;
+            while (remaining > 0) {
+                LockedOrder sell = sells.get(s);
+                LockedOrder buy = buys.get(b);
+                int quantity = (int) Math.min(remaining, Math.min(sell.entry().getT2() - sellExecuted[s],
+                        buy.entry().getT2() - buyExecuted[b]));
+                trades.add(new Trade(symbol, clearing.price(), quantity, sell.uuid(), buy.uuid()));
+                sellExecuted[s] += quantity;
+                buyExecuted[b] += quantity;
+                remaining -= quantity;
+                if (sellExecuted[s] == sell.entry().getT2()) {
+                    s++;
+                }
+                if (buyExecuted[b] == buy.entry().getT2()) {
+                    b++;
+                }
+            }
+            update(sells, sellExecuted);
+            update(buys, buyExecuted);
+            // published (and journaled) while the orders are locked, before the deferred cancels applied by the unlock
+            trades = tradeBus.publish(trades);
+            trades.forEach(pass::onTrade);
+            log.debug("Auction symbol={}, price={}, volume={}, trades={}",
+                    symbol, clearing.price(), clearing.volume(), trades.size());
+        }
+        unlock(sells, sellExecuted);
+        unlock(buys, buyExecuted);
+        return clearing == null ? AuctionResult.none(symbol) :
+                new AuctionResult(symbol, clearing.price(), clearing.volume(), trades);
+    }
+
+    private static Integer bestPrice(
+            Iterator<Map.Entry<Integer, ConcurrentNavigableMap<Instant, Tuple2<String, Integer>>>> levels) {
+        // price levels are never removed, empty levels are skipped
+        while (levels.hasNext()) {
+            Map.Entry<Integer, ConcurrentNavigableMap<Instant, Tuple2<String, Integer>>> level = levels.next();
+            if (!level.getValue().isEmpty()) {
+                return level.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lock all orders of the price levels in the order of priority while the price is accepted. Processed orders are
+     * removed from the order book, orders locked by someone else are skipped.
+     *
+     * @return locked orders in the order of priority
+     */
+    private List<LockedOrder> lockAll(
+            Iterator<Map.Entry<Integer, ConcurrentNavigableMap<Instant, Tuple2<String, Integer>>>> levels,
+            IntPredicate accepted, MatchEvent event) {
+        List<LockedOrder> lockedOrders = new ArrayList<>();
+        while (levels.hasNext()) {
+            Map.Entry<Integer, ConcurrentNavigableMap<Instant, Tuple2<String, Integer>>> level = levels.next();
+            if (!accepted.test(level.getKey())) {
+                break;
+            }
+            ConcurrentNavigableMap<Instant, Tuple2<String, Integer>> orders = level.getValue();
+            for (Map.Entry<Instant, Tuple2<String, Integer>> resting : orders.entrySet()) {
+                String uuid = resting.getValue().getT1();
+                Order.State state = ordersService.lockToProcess(uuid);
+                event.attempts++;
+                if (!PROCESS_STATES.contains(state)) {
+                    if (!ACTIVE_STATES.contains(state)) {
+                        log.debug("Order already processed. uuid={}", uuid);
+                        orders.computeIfPresent(resting.getKey(), (instant, entry) ->
+                                entry.getT1().equals(uuid) ? null : entry);
+                    }
+                    continue;
+                }
+                // quantities are changed only while the order is locked, so they are read after the lock
+                Tuple2<String, Integer> entry = orders.get(resting.getKey());
+                if (entry == null || !entry.getT1().equals(uuid)) {
+                    ordersService.unlockProcessed(uuid, unlocked(state));
+                    continue;
+                }
+                lockedOrders.add(new LockedOrder(uuid, state, level.getKey(), orders, resting.getKey(), entry));
+            }
+        }
+        return lockedOrders;
+    }
+
+    /**
+     * Find the clearing price in one pass over the cumulative depth. The price ladder is walked up: the sell depth
+     * (sells at or below the price) grows and the buy depth (buys at or above the price) shrinks, the executable
+     * volume is the minimum of them. The price with the maximum volume wins, then the price with the minimum surplus,
+     * then the highest price if the buy side is left over and the lowest price otherwise.
+     *
+     * @param sells locked sell orders in the order of priority (price ascending)
+     * @param buys  locked buy orders in the order of priority (price descending)
+     * @return clearing price and volume, null if the orders do not cross
+     */
+    private static Clearing clearing(List<LockedOrder> sells, List<LockedOrder> buys) {
+        long buyDepth = 0;
+        for (LockedOrder buy : buys) {
+            buyDepth += buy.entry().getT2();
+        }
+        long sellDepth = 0;
+        Clearing best = null;
+        long bestSurplus = 0;
+        int s = 0;
+        int b = buys.size() - 1;
+        // the buy levels above the last ask are walked too, the sell depth stays at its total there
+        while (b >= 0) {
+            int price = s < sells.size() ? Math.min(sells.get(s).price(), buys.get(b).price()) : buys.get(b).price();
+            while (s < sells.size() && sells.get(s).price() == price) {
+                sellDepth += sells.get(s++).entry().getT2();
+            }
+            long volume = Math.min(buyDepth, sellDepth);
+            long surplus = buyDepth - sellDepth;
+            if (volume > 0 && (best == null || volume > best.volume() || volume == best.volume()
+                    && (Math.abs(surplus) < Math.abs(bestSurplus) || Math.abs(surplus) == Math.abs(bestSurplus)
+                    && surplus > 0))) {
+                best = new Clearing(price, volume);
+                bestSurplus = surplus;
+            }
+            // buys at the price are not executable at the higher prices
+            while (b >= 0 && buys.get(b).price() == price) {
+                buyDepth -= buys.get(b--).entry().getT2();
+            }
+        }
+        return best;
+    }
+
+    private static void update(List<LockedOrder> lockedOrders, int[] executed) {
+        for (int i = 0; i < lockedOrders.size() && executed[i] > 0; i++) {
+            LockedOrder locked = lockedOrders.get(i);
+            update(locked.orders(), locked.instant(), locked.entry(), locked.entry().getT2() - executed[i]);
+        }
+    }
+
+    private void unlock(List<LockedOrder> lockedOrders, int[] executed) {
+        for (int i = 0; i < lockedOrders.size(); i++) {
+            LockedOrder locked = lockedOrders.get(i);
+            int remaining = locked.entry().getT2() - executed[i];
+            if (executed[i] == 0) {
+                ordersService.unlockProcessed(locked.uuid(), unlocked(locked.state()));
+            } else {
+                ordersService.unlockProcessed(locked.uuid(), remaining > 0 ?
+                        Order.State.PARTIALLY_EXECUTED : Order.State.EXECUTED, executed[i], remaining);
+            }
+        }
+    }
+
+    private void match(String symbol, OrderBook orderBook, MatchPass pass) {
         Iterator<Map.Entry<Integer, ConcurrentNavigableMap<Instant, Tuple2<String, Integer>>>> sellIterator =
                 orderBook.sellOrdersByPrice();
 
@@ -61,80 +566,159 @@ public class MatchingEngine {
                 if (buyPrice < sellPrice) {
                     return;
                 }
-                match(symbol, sellPrice, sellOrders, buyOrders);
+                match(symbol, sellPrice, sellOrders, buyOrders, pass);
             }
         }
     }
 
     private void match(String symbol, Integer sellPrice,
                        ConcurrentNavigableMap<Instant, Tuple2<String, Integer>> sellOrders,
-                       ConcurrentNavigableMap<Instant, Tuple2<String, Integer>> buyOrders) {
+                       ConcurrentNavigableMap<Instant, Tuple2<String, Integer>> buyOrders,
+                       MatchPass pass) {
         Iterator<Map.Entry<Instant, Tuple2<String, Integer>>> sellIterator = sellOrders.entrySet().iterator();
         while (sellIterator.hasNext()) {
             Map.Entry<Instant, Tuple2<String, Integer>> sell = sellIterator.next();
             Instant sellInstant = sell.getKey();
             String sellUUID = sell.getValue().getT1();
-            int sellQuantity = sell.getValue().getT2();
+            boolean sellActive = true;
             Iterator<Map.Entry<Instant, Tuple2<String, Integer>>> buyIterator = buyOrders.entrySet().iterator();
-            while (buyIterator.hasNext()) {
+            while (sellActive && buyIterator.hasNext()) {
                 Map.Entry<Instant, Tuple2<String, Integer>> buy = buyIterator.next();
-                Instant buyInstant = buy.getKey();
-                String buyUUID = buy.getValue().getT1();
-                int buyQuantity = buy.getValue().getT2();
-
-                Tuple2<Integer, Integer> matchResult = match(symbol, sellPrice, sellUUID, sellQuantity, buyUUID, buyQuantity);
-                // at least one of the elements must be 0
-                sellQuantity = matchResult.getT1();
-                buyQuantity = matchResult.getT2();
-                if (sellQuantity == 0) {
-                    if (buyQuantity != 0) {
-                        buyOrders.put(buyInstant, Tuples.of(buyUUID, buyQuantity));
-                    } else {
-                        buyIterator.remove();
-                    }
-                    sellIterator.remove();
-                    break;
-                }
-                buyIterator.remove();
-            }
-
-            if (sellQuantity != 0) {
-                sellOrders.put(sellInstant, Tuples.of(sellUUID, sellQuantity));
+                sellActive = match(symbol, sellPrice,
+                        sellOrders, sellInstant, sellUUID,
+                        buyOrders, buy.getKey(), buy.getValue().getT1(),
+                        pass);
             }
         }
     }
 
-    private Tuple2<Integer, Integer> match(String symbol, Integer sellPrice,
-                                           String sellUUID, int sellQuantity,
-                                           String buyUUID, int buyQuantity) {
+    /**
+     * Match pair of orders. Quantities in the order book are changed only while the order is locked (here or by the
+     * amend), so they are read after the lock.
+     *
+     * @return true if the sell order is still active and could be matched with the next buy order
+     */
+    private boolean match(String symbol, Integer sellPrice,
+                          ConcurrentNavigableMap<Instant, Tuple2<String, Integer>> sellOrders,
+                          Instant sellInstant, String sellUUID,
+                          ConcurrentNavigableMap<Instant, Tuple2<String, Integer>> buyOrders,
+                          Instant buyInstant, String buyUUID,
+                          MatchPass pass) {
 
-        log.debug("Match symbol={}, sellPrice={}, sellQuantity={}, buyQuantity={}",
-                symbol, sellPrice, sellQuantity, buyQuantity);
         Tuple2<Order.State, Order.State> lockResult = ordersService.lockToProcess(sellUUID, buyUUID);
+        pass.event().attempts++;
         if (PROCESS_STATES.contains(lockResult.getT1()) && PROCESS_STATES.contains(lockResult.getT2())) {
-            if (sellQuantity > buyQuantity) {
-                int newSellQuantity = sellQuantity - buyQuantity;
-                ordersService.unlockProcessed(sellUUID, Order.State.PARTIALLY_EXECUTED);
-                ordersService.unlockProcessed(buyUUID, Order.State.EXECUTED);
-                tradeBus.accept(new Trade(symbol, sellPrice, buyQuantity, sellUUID, buyUUID));
-                return Tuples.of(newSellQuantity, 0);
-            } else {
-                int newBuyQuantity = buyQuantity - sellQuantity;
-                ordersService.unlockProcessed(sellUUID, Order.State.EXECUTED);
-                ordersService.unlockProcessed(buyUUID, newBuyQuantity > 0 ?
-                        Order.State.PARTIALLY_EXECUTED : Order.State.EXECUTED);
-                tradeBus.accept(new Trade(symbol, sellPrice, sellQuantity, sellUUID, buyUUID));
-                return Tuples.of(0, newBuyQuantity);
-            }
-        } else if (PROCESS_STATES.contains(lockResult.getT1())) {
-            log.warn("Buy order already processed. uuid={}", buyUUID);
-            return Tuples.of(sellQuantity, 0);
-        } else if (PROCESS_STATES.contains(lockResult.getT2())) {
-            log.warn("Sell order already processed. uuid={}", sellUUID);
-            return Tuples.of(0, buyQuantity);
+            Tuple2<String, Integer> sell = sellOrders.get(sellInstant);
+            Tuple2<String, Integer> buy = buyOrders.get(buyInstant);
+            boolean sellPresent = sell != null && sell.getT1().equals(sellUUID);
+            boolean buyPresent = buy != null && buy.getT1().equals(buyUUID);
+            if (!sellPresent || !buyPresent) {
+                log.debug("Order was moved in the order book. sellUUID={}, buyUUID={}", sellUUID, buyUUID);
+                ordersService.unlockProcessed(sellUUID, unlocked(lockResult.getT1()));
+                ordersService.unlockProcessed(buyUUID, unlocked(lockResult.getT2()));
+                return sellPresent;
+            }
+
+            int sellQuantity = sell.getT2();
+            int buyQuantity = buy.getT2();
+            int quantity = Math.min(sellQuantity, buyQuantity);
+            log.debug("Match symbol={}, sellPrice={}, sellQuantity={}, buyQuantity={}",
+                    symbol, sellPrice, sellQuantity, buyQuantity);
+            update(sellOrders, sellInstant, sell, sellQuantity - quantity);
+            update(buyOrders, buyInstant, buy, buyQuantity - quantity);
+            // published (and journaled) while the orders are locked, before the deferred cancels applied by the unlock
+            Trade trade = tradeBus.publish(new Trade(symbol, sellPrice, quantity, sellUUID, buyUUID));
+            ordersService.unlockProcessed(sellUUID, sellQuantity > quantity ?
+                    Order.State.PARTIALLY_EXECUTED : Order.State.EXECUTED, quantity, sellQuantity - quantity);
+            ordersService.unlockProcessed(buyUUID, buyQuantity > quantity ?
+                    Order.State.PARTIALLY_EXECUTED : Order.State.EXECUTED, quantity, buyQuantity - quantity);
+            pass.onTrade(trade);
+            return sellQuantity > quantity;
+        }
+
+        // orders are not locked: remove processed orders, keep orders locked by someone else
+        boolean sellActive = ACTIVE_STATES.contains(lockResult.getT1());
+        if (!sellActive) {
+            log.debug("Sell order already processed. uuid={}", sellUUID);
+            sellOrders.computeIfPresent(sellInstant, (instant, sell) -> sell.getT1().equals(sellUUID) ? null : sell);
+        }
+        if (!ACTIVE_STATES.contains(lockResult.getT2())) {
+            log.debug("Buy order already processed. uuid={}", buyUUID);
+            buyOrders.computeIfPresent(buyInstant, (instant, buy) -> buy.getT1().equals(buyUUID) ? null : buy);
+        }
+        return sellActive;
+    }
+
+    private static void update(ConcurrentNavigableMap<Instant, Tuple2<String, Integer>> orders,
+                               Instant instant, Tuple2<String, Integer> current, int quantity) {
+        if (quantity == 0) {
+            orders.remove(instant, current);
         } else {
-            log.warn("Orders already processed. sellUUID={}, buyUUID={}", sellUUID, buyUUID);
-            return Tuples.of(0, 0);
+            orders.replace(instant, current, Tuples.of(current.getT1(), quantity));
         }
     }
+
+    private static void update(OrderBook orderBook, Order order, int quantity) {
+        if (quantity == 0) {
+            orderBook.remove(order);
+        } else {
+            orderBook.replace(order, quantity);
+        }
+    }
+
+    private static Order.State unlocked(Order.State state) {
+        return state == Order.State.PROCESS_PARTIALLY_EXECUTED ? Order.State.PARTIALLY_EXECUTED : Order.State.PENDING;
+    }
+
+    /**
+     * State of one matching pass over the order book.
+     *
+     * @param event      JFR event of the pass
+     * @param collectors fills collectors by order UUID, waiting for this pass
+     */
+    private record MatchPass(MatchEvent event, Map<String, List<FillsCollector>> collectors) {
+
+        void onTrade(Trade trade) {
+            event.trades++;
+            event.volume += trade.quantity();
+            if (!collectors.isEmpty()) {
+                collectors.getOrDefault(trade.sellOrderUuid(), List.of()).forEach(c -> c.fills().add(trade));
+                collectors.getOrDefault(trade.buyOrderUuid(), List.of()).forEach(c -> c.fills().add(trade));
+            }
+        }
+    }
+
+    /**
+     * Resting order locked for the order executed without resting.
+     *
+     * @param uuid    UUID of the resting order
+     * @param state   state of the order after the lock
+     * @param price   price of the order
+     * @param orders  orders of the price level
+     * @param instant registration timestamp of the order
+     * @param entry   order book entry of the order with its current quantity
+     */
+    private record LockedOrder(String uuid, Order.State state, Integer price,
+                               ConcurrentNavigableMap<Instant, Tuple2<String, Integer>> orders,
+                               Instant instant, Tuple2<String, Integer> entry) {
+    }
+
+    /**
+     * Clearing price of the call auction.
+     *
+     * @param price  clearing price
+     * @param volume quantity executed at the clearing price
+     */
+    private record Clearing(int price, long volume) {
+    }
+
+    /**
+     * Fills of the order collected during one matching pass.
+     *
+     * @param uuid   UUID of the order
+     * @param fills  trades of the order
+     * @param result sink to emit fills when the pass is finished
+     */
+    private record FillsCollector(String uuid, List<Trade> fills, Sinks.One<List<Trade>> result) {
+    }
 }
@@ -6,10 +6,12 @@ import javax.validation.constraints.Positive;
 /**
  * Simplified model to add new orders
  *
- * @param symbol   order book's symbol (for example GOOG for Google)
- * @param quantity quantity to buy/sell
- * @param price    price to buy/sell
- * @param uuid     universal unique identifier to prevent duplicated requests
+ * @param symbol      order book's symbol (for example GOOG for Google)
+ * @param quantity    quantity to buy/sell
+ * @param price       price to buy/sell
+ * @param uuid        universal unique identifier to prevent duplicated requests
+ * @param owner       optional client/owner tag, used for mass cancel
+ * @param timeInForce optional time in force, GTC by default
  * @see java.util.UUID
  */
 public record AddOrderDTO(@NotNull(message = "Symbol must not be null")
@@ -21,5 +23,15 @@ public record AddOrderDTO(@NotNull(message = "Symbol must not be null")
                           @Positive(message = "Price must be positive")
                           Integer price,
                           @NotNull(message = "uuid must not be null")
-                          String uuid) {
+                          String uuid,
+                          String owner,
+                          Order.TimeInForce timeInForce) {
+
+    public AddOrderDTO(String symbol, Integer quantity, Integer price, String uuid) {
+        this(symbol, quantity, price, uuid, null);
+    }
+
+    public AddOrderDTO(String symbol, Integer quantity, Integer price, String uuid, String owner) {
+        this(symbol, quantity, price, uuid, owner, null);
+    }
 }
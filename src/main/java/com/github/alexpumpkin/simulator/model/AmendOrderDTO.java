@@ -0,0 +1,15 @@
+package com.github.alexpumpkin.simulator.model;
+
+import javax.validation.constraints.Positive;
+
+/**
+ * Simplified model to amend existing orders. Omitted fields are not changed.
+ *
+ * @param quantity new total quantity to buy/sell, including already executed quantity
+ * @param price    new price to buy/sell
+ */
+public record AmendOrderDTO(@Positive(message = "Quantity must be positive")
+                            Integer quantity,
+                            @Positive(message = "Price must be positive")
+                            Integer price) {
+}
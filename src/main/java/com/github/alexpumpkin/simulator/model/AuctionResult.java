@@ -0,0 +1,29 @@
+package com.github.alexpumpkin.simulator.model;
+
+import com.github.alexpumpkin.simulator.trades.model.Trade;
+
+import java.util.List;
+
+/**
+ * Result of the call auction uncrossing the order book.
+ *
+ * @param symbol   order book's symbol
+ * @param price    clearing price, 0 if the order book was not crossed
+ * @param quantity executed quantity
+ * @param trades   trades at the clearing price in the order of publication
+ */
+public record AuctionResult(String symbol,
+                            int price,
+                            long quantity,
+                            List<Trade> trades) {
+
+    /**
+     * Create result of the auction without execution.
+     *
+     * @param symbol order book's symbol
+     * @return new result
+     */
+    public static AuctionResult none(String symbol) {
+        return new AuctionResult(symbol, 0, 0, List.of());
+    }
+}
@@ -0,0 +1,41 @@
+package com.github.alexpumpkin.simulator.model;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * One command of the batch request.
+ *
+ * @param command  command to execute
+ * @param symbol   order book's symbol, required for BUY and SELL
+ * @param quantity quantity to buy/sell, required for BUY and SELL
+ * @param price    price to buy/sell, required for BUY and SELL
+ * @param uuid     universal unique identifier of the order
+ * @param owner    optional client/owner tag
+ */
+public record BatchCommandDTO(@NotNull(message = "Command must not be null")
+                              Command command,
+                              String symbol,
+                              Integer quantity,
+                              Integer price,
+                              @NotNull(message = "uuid must not be null")
+                              String uuid,
+                              String owner) {
+
+    /**
+     * Convert BUY or SELL command to the order parameters.
+     *
+     * @return order parameters
+     */
+    public AddOrderDTO toAddOrderDTO() {
+        return new AddOrderDTO(symbol, quantity, price, uuid, owner);
+    }
+
+    /**
+     * Batch command
+     */
+    public enum Command {
+        BUY,
+        SELL,
+        CANCEL
+    }
+}
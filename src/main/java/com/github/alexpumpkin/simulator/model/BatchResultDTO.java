@@ -0,0 +1,17 @@
+package com.github.alexpumpkin.simulator.model;
+
+import java.util.List;
+
+/**
+ * Result of one command of the batch request.
+ *
+ * @param uuid   universal unique identifier of the order
+ * @param status HTTP status code the command would have as a single request
+ * @param order  order after the command, null if the command failed
+ * @param errors error messages, empty if the command succeeded
+ */
+public record BatchResultDTO(String uuid,
+                             int status,
+                             Order order,
+                             List<String> errors) {
+}
@@ -0,0 +1,29 @@
+package com.github.alexpumpkin.simulator.model;
+
+import com.github.alexpumpkin.simulator.trades.model.Trade;
+
+import java.util.List;
+
+/**
+ * Execution report of the new order after its first matching pass.
+ *
+ * @param order             order with the state after the matching pass
+ * @param remainingQuantity quantity which is not executed yet
+ * @param fills             trades of the order during the matching pass
+ */
+public record ExecutionReport(Order order,
+                              int remainingQuantity,
+                              List<Trade> fills) {
+
+    /**
+     * Create execution report for the new order.
+     *
+     * @param order order with current state.
+     * @param fills trades of the order.
+     * @return new execution report.
+     */
+    public static ExecutionReport of(Order order, List<Trade> fills) {
+        int executed = fills.stream().mapToInt(Trade::quantity).sum();
+        return new ExecutionReport(order, order.quantity() - executed, fills);
+    }
+}
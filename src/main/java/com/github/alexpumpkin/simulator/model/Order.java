@@ -5,13 +5,15 @@ import java.time.Instant;
 /**
  * Order model.
  *
- * @param uuid       universal unique identifier of the order
- * @param symbol     order book's symbol (for example GOOG for Google)
- * @param quantity   quantity to buy/sell
- * @param price      price to buy/sell
- * @param type       type of the order (buy or sell)
- * @param registered timestamp of the registration
- * @param state      state of the order
+ * @param uuid        universal unique identifier of the order
+ * @param symbol      order book's symbol (for example GOOG for Google)
+ * @param quantity    quantity to buy/sell
+ * @param price       price to buy/sell, 0 for the market order
+ * @param type        type of the order (buy or sell)
+ * @param registered  timestamp of the registration
+ * @param state       state of the order
+ * @param owner       client/owner tag of the order, could be null
+ * @param timeInForce how long the order stays in the order book, null means {@link TimeInForce#GTC}
  */
 public record Order(String uuid,
                     String symbol,
@@ -19,7 +21,14 @@ public record Order(String uuid,
                     int price,
                     Type type,
                     Instant registered,
-                    State state) {
+                    State state,
+                    String owner,
+                    TimeInForce timeInForce) {
+
+    /**
+     * Market order price, the market order is matched with any price.
+     */
+    public static final int MARKET_PRICE = 0;
 
     /**
      * Create new order with BUY type.
@@ -28,13 +37,7 @@ public record Order(String uuid,
      * @return new order.
      */
     public static Order buy(AddOrderDTO dto) {
-        return new Order(dto.uuid(),
-                dto.symbol(),
-                dto.quantity(),
-                dto.price(),
-                Type.BUY,
-                Instant.now(),
-                State.PENDING);
+        return create(Type.BUY, dto.uuid(), dto.symbol(), dto.quantity(), dto.price(), dto.owner(), dto.timeInForce());
     }
 
     /**
@@ -44,13 +47,67 @@ public record Order(String uuid,
      * @return new order.
      */
     public static Order sell(AddOrderDTO dto) {
-        return new Order(dto.uuid(),
-                dto.symbol(),
-                dto.quantity(),
-                dto.price(),
-                Type.SELL,
+        return create(Type.SELL, dto.uuid(), dto.symbol(), dto.quantity(), dto.price(), dto.owner(), dto.timeInForce());
+    }
+
+    /**
+     * Create new order.
+     *
+     * @param type     type of the order.
+     * @param uuid     universal unique identifier of the order.
+     * @param symbol   order book's symbol.
+     * @param quantity quantity to buy/sell.
+     * @param price    price to buy/sell.
+     * @param owner    client/owner tag, could be null.
+     * @return new order.
+     */
+    public static Order create(Type type, String uuid, String symbol, int quantity, int price, String owner) {
+        return create(type, uuid, symbol, quantity, price, owner, TimeInForce.GTC);
+    }
+
+    /**
+     * Create new order with given time in force.
+     *
+     * @param type        type of the order.
+     * @param uuid        universal unique identifier of the order.
+     * @param symbol      order book's symbol.
+     * @param quantity    quantity to buy/sell.
+     * @param price       price to buy/sell, {@link #MARKET_PRICE} for the market order.
+     * @param owner       client/owner tag, could be null.
+     * @param timeInForce time in force, null means {@link TimeInForce#GTC}.
+     * @return new order.
+     */
+    public static Order create(Type type, String uuid, String symbol, int quantity, int price, String owner,
+                               TimeInForce timeInForce) {
+        return new Order(uuid,
+                symbol,
+                quantity,
+                price,
+                type,
                 Instant.now(),
-                State.PENDING);
+                State.PENDING,
+                owner,
+                timeInForce == null ? TimeInForce.GTC : timeInForce);
+    }
+
+    /**
+     * Check if the order rests in the order book. Other orders are matched when they are added and never inserted
+     * into the order book.
+     *
+     * @return true for {@link TimeInForce#GTC} orders
+     */
+    public boolean resting() {
+        return timeInForce == null || timeInForce == TimeInForce.GTC;
+    }
+
+    /**
+     * Check if the order could be matched with the opposite order of given price.
+     *
+     * @param oppositePrice price of the opposite order
+     * @return true if the prices cross
+     */
+    public boolean crosses(int oppositePrice) {
+        return price == MARKET_PRICE || (type == Type.BUY ? oppositePrice <= price : oppositePrice >= price);
     }
 
     /**
@@ -66,7 +123,29 @@ public record Order(String uuid,
                 this.price(),
                 this.type,
                 this.registered,
-                state);
+                state,
+                this.owner,
+                this.timeInForce);
+    }
+
+    /**
+     * Create new order with amended quantity and price.
+     *
+     * @param quantity   new total quantity.
+     * @param price      new price.
+     * @param registered registration timestamp, new timestamp means the order loses its time priority.
+     * @return new order.
+     */
+    public Order withAmendment(int quantity, int price, Instant registered) {
+        return new Order(this.uuid,
+                this.symbol,
+                quantity,
+                price,
+                this.type,
+                registered,
+                this.state,
+                this.owner,
+                this.timeInForce);
     }
 
     /**
@@ -77,6 +156,24 @@ public record Order(String uuid,
         SELL
     }
 
+    /**
+     * Time in force
+     */
+    public enum TimeInForce {
+        /**
+         * Good till cancel: the order rests in the order book until it is executed or cancelled.
+         */
+        GTC,
+        /**
+         * Immediate or cancel: the order is matched when it is added, the remaining quantity is cancelled.
+         */
+        IOC,
+        /**
+         * Fill or kill: the order is executed completely when it is added or cancelled without execution.
+         */
+        FOK
+    }
+
     /**
      * Order state
      *
@@ -0,0 +1,41 @@
+package com.github.alexpumpkin.simulator.model;
+
+import java.time.Instant;
+
+/**
+ * State transition of the order.
+ *
+ * @param uuid              universal unique identifier of the order
+ * @param symbol            order book's symbol
+ * @param owner             client/owner tag of the order
+ * @param type              type of the order (buy or sell)
+ * @param state             new state of the order
+ * @param filledQuantity    executed quantity of the order
+ * @param remainingQuantity quantity which could be executed, 0 for executed and cancelled orders
+ * @param timestamp         timestamp of the transition
+ */
+public record OrderEvent(String uuid,
+                         String symbol,
+                         String owner,
+                         Order.Type type,
+                         Order.State state,
+                         int filledQuantity,
+                         int remainingQuantity,
+                         Instant timestamp) {
+
+    /**
+     * Create event of the order.
+     *
+     * @param order     order
+     * @param state     new state of the order
+     * @param remaining quantity which is not executed
+     * @return new event
+     */
+    public static OrderEvent of(Order order, Order.State state, int remaining) {
+        boolean closed = state == Order.State.EXECUTED
+                || state == Order.State.CANCELLED
+                || state == Order.State.PARTIALLY_CANCELED;
+        return new OrderEvent(order.uuid(), order.symbol(), order.owner(), order.type(), state,
+                order.quantity() - remaining, closed ? 0 : remaining, Instant.now());
+    }
+}
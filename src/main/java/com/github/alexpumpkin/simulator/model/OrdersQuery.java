@@ -0,0 +1,19 @@
+package com.github.alexpumpkin.simulator.model;
+
+/**
+ * Filter of the open orders query. Either symbol or owner is required, the other fields are optional.
+ *
+ * @param symbol order book's symbol
+ * @param type   side of the orders
+ * @param state  PENDING or PARTIALLY_EXECUTED
+ * @param owner  client/owner tag of the orders
+ * @param after  cursor: UUID of the last order of the previous page
+ * @param limit  maximal number of the orders to return
+ */
+public record OrdersQuery(String symbol,
+                          Order.Type type,
+                          Order.State state,
+                          String owner,
+                          String after,
+                          int limit) {
+}
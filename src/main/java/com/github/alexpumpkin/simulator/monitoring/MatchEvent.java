@@ -0,0 +1,34 @@
+package com.github.alexpumpkin.simulator.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event emitted for every matching pass over an OrderBook.
+ */
+@Name("simulator.Match")
+@Label("Match")
+@Category({"Simulator", "Matching"})
+@Description("Matching pass over the order book of one symbol")
+@StackTrace(false)
+@Threshold("1 ms")
+public class MatchEvent extends jdk.jfr.Event {
+
+    @Label("Symbol")
+    public String symbol;
+
+    @Label("Attempts")
+    @Description("Number of sell/buy pairs the engine tried to lock")
+    public int attempts;
+
+    @Label("Trades")
+    public int trades;
+
+    @Label("Volume")
+    @Description("Total executed quantity")
+    public long volume;
+}
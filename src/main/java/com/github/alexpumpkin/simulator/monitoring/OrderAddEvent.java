@@ -0,0 +1,42 @@
+package com.github.alexpumpkin.simulator.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event emitted when an order is registered in the storage and the OrderBook. Disabled by default because it is
+ * emitted for every order, use the simulator JFC profile to enable it.
+ */
+@Name("simulator.OrderAdd")
+@Label("Order Add")
+@Category({"Simulator", "Orders"})
+@Description("Order registration in the storage and the order book")
+@StackTrace(false)
+@Enabled(false)
+@Threshold("0 ms")
+public class OrderAddEvent extends jdk.jfr.Event {
+
+    @Label("UUID")
+    public String uuid;
+
+    @Label("Symbol")
+    public String symbol;
+
+    @Label("Type")
+    public String type;
+
+    @Label("Price")
+    public int price;
+
+    @Label("Quantity")
+    public int quantity;
+
+    @Label("Duplicate")
+    @Description("The order with the same UUID was already registered")
+    public boolean duplicate;
+}
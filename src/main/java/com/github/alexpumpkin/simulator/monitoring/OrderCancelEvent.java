@@ -0,0 +1,40 @@
+package com.github.alexpumpkin.simulator.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event emitted for every cancel request. Disabled by default because it is emitted for every cancel, use the
+ * simulator JFC profile to enable it.
+ */
+@Name("simulator.OrderCancel")
+@Label("Order Cancel")
+@Category({"Simulator", "Orders"})
+@Description("Order cancellation attempt")
+@StackTrace(false)
+@Enabled(false)
+@Threshold("0 ms")
+public class OrderCancelEvent extends jdk.jfr.Event {
+
+    @Label("UUID")
+    public String uuid;
+
+    @Label("Symbol")
+    public String symbol;
+
+    @Label("State")
+    @Description("Order state observed by the cancel request")
+    public String state;
+
+    @Label("Outcome")
+    public String outcome;
+
+    @Label("Deferred")
+    @Description("The order was locked by the matching engine and the cancel was deferred until unlock")
+    public boolean deferred;
+}
@@ -0,0 +1,45 @@
+package com.github.alexpumpkin.simulator.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event emitted when the matching engine tries to lock a pair of orders. Disabled by default because it is
+ * emitted for every matched pair, use the simulator JFC profile to enable it.
+ */
+@Name("simulator.OrdersLock")
+@Label("Orders Lock")
+@Category({"Simulator", "Matching"})
+@Description("Attempt to lock sell and buy orders before execution")
+@StackTrace(false)
+@Enabled(false)
+@Threshold("0 ms")
+public class OrdersLockEvent extends jdk.jfr.Event {
+
+    @Label("Sell UUID")
+    public String sellUuid;
+
+    @Label("Buy UUID")
+    public String buyUuid;
+
+    @Label("Sell State")
+    @Description("Sell order state after the lock attempt")
+    public String sellState;
+
+    @Label("Buy State")
+    @Description("Buy order state after the lock attempt")
+    public String buyState;
+
+    @Label("Locked")
+    @Description("Both orders are locked to process")
+    public boolean locked;
+
+    @Label("Rolled Back")
+    @Description("Only one of the orders was locked and the lock was rolled back")
+    public boolean rolledBack;
+}
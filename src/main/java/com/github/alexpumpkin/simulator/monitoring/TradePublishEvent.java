@@ -0,0 +1,33 @@
+package com.github.alexpumpkin.simulator.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event emitted when a trade is published to the TradeBus. The duration includes the time spent busy looping
+ * when the sink is contended. Disabled by default because it is emitted for every trade, use the simulator JFC
+ * profile to enable it.
+ */
+@Name("simulator.TradePublish")
+@Label("Trade Publish")
+@Category({"Simulator", "Trades"})
+@Description("Trade publication to the trade bus")
+@StackTrace(false)
+@Enabled(false)
+@Threshold("0 ms")
+public class TradePublishEvent extends jdk.jfr.Event {
+
+    @Label("Symbol")
+    public String symbol;
+
+    @Label("Price")
+    public int price;
+
+    @Label("Quantity")
+    public int quantity;
+}
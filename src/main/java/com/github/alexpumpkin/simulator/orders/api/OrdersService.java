@@ -1,6 +1,10 @@
 package com.github.alexpumpkin.simulator.orders.api;
 
+import com.github.alexpumpkin.simulator.model.AmendOrderDTO;
 import com.github.alexpumpkin.simulator.model.Order;
+import com.github.alexpumpkin.simulator.model.OrderEvent;
+import com.github.alexpumpkin.simulator.model.OrdersQuery;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.function.Tuple2;
 
@@ -10,21 +14,53 @@ import reactor.util.function.Tuple2;
 public interface OrdersService {
 
     /**
-     * Add new order to the storage.
+     * Add new order to the storage. Resting (GTC) orders are added to the order book. Other orders are not added to the
+     * order book, they are locked (PROCESS_PENDING) for the matching engine which executes them right away.
      *
      * @param order new order.
-     * @return added order or currently stored order if the order with given UUID already existed.
+     * @return added order (the given instance in PENDING state) or a copy of currently stored order if the order with
+     * given UUID already existed.
      */
     Mono<Order> add(Order order);
 
     /**
-     * Cancel order by UUID
+     * Amend price and/or quantity of the order. Quantity decrease keeps the time priority of the order, price change
+     * or quantity increase moves the order to the end of the queue.
+     *
+     * @param uuid      universal unique identifier of the order to amend.
+     * @param amendment new quantity and/or price
+     * @return amended order or error Mono if the order is not in the one of "amendable" states
+     */
+    Mono<Order> amend(String uuid, AmendOrderDTO amendment);
+
+    /**
+     * Cancel order by UUID. If the order is currently locked by the matching engine, the cancel is deferred and applied
+     * when the order is unlocked.
      *
      * @param uuid universal unique identifier of the order to cancel.
-     * @return empty Mono or error Mono if the order is not in the one of "cancelable" states
+     * @return empty Mono, completed when the cancel takes effect, or error Mono if the order is not in the one of
+     * "cancelable" states
      */
     Mono<Void> cancel(String uuid);
 
+    /**
+     * Cancel all resting orders for given symbol.
+     *
+     * @param symbol order book's symbol
+     * @param type   side of the orders to cancel, null to cancel both sides
+     * @return UUIDs of cancelled orders
+     */
+    Flux<String> cancelBySymbol(String symbol, Order.Type type);
+
+    /**
+     * Cancel all resting orders for given owner.
+     *
+     * @param owner client/owner tag of the orders
+     * @param type  side of the orders to cancel, null to cancel both sides
+     * @return UUIDs of cancelled orders
+     */
+    Flux<String> cancelByOwner(String owner, Order.Type type);
+
     /**
      * Get order by UUID
      *
@@ -33,22 +69,97 @@ public interface OrdersService {
      */
     Mono<Order> getOrderByUUID(String uuid);
 
+    /**
+     * Find resting orders (not yet executed or cancelled) by the indexes, without the scan of all orders. Orders are
+     * sorted by UUID, so the UUID of the last order is the cursor of the next page. Orders locked by the matching
+     * engine are reported in their unlocked state (PENDING or PARTIALLY_EXECUTED).
+     *
+     * @param query filter of the orders
+     * @return lazily read orders, changes made while they are read could be visible
+     */
+    Flux<Order> findOpenOrders(OrdersQuery query);
+
+    /**
+     * Get number of resting orders (not yet executed or cancelled). This is the backlog of the matching engine.
+     *
+     * @return number of resting orders
+     */
+    long restingOrdersCount();
+
+    /**
+     * Get number of resting orders for given symbol.
+     *
+     * @param symbol order book's symbol
+     * @return number of resting orders
+     */
+    long restingOrdersCount(String symbol);
+
+    /**
+     * Get number of stored orders, including executed and cancelled orders.
+     *
+     * @return number of stored orders
+     */
+    long storedOrdersCount();
+
     /**
      * Atomically change the state of given orders to PROCESS_PENDING or PROCESS_PARTIALLY_EXECUTED to prevent
-     * concurrent cancellation
+     * concurrent cancellation. Orders with pending cancel are not locked. Either both orders are locked or none.
      *
      * @param sellUUID UUID of the selling order
      * @param buyUUID  UUID of the buying order
-     * @return pair with current state of orders
+     * @return pair with current state of orders. Both states are PROCESS_PENDING or PROCESS_PARTIALLY_EXECUTED only
+     * if both orders were locked by this call, orders locked by someone else are reported as PENDING or
+     * PARTIALLY_EXECUTED
      */
     Tuple2<Order.State, Order.State> lockToProcess(String sellUUID, String buyUUID);
 
     /**
-     * Change the state of given order to EXECUTED or PARTIALLY_EXECUTED (depends on given params).
+     * Atomically change the state of given order to PROCESS_PENDING or PROCESS_PARTIALLY_EXECUTED, the same as
+     * {@link #lockToProcess(String, String)} for one order.
+     *
+     * @param uuid UUID of the order
+     * @return current state of the order. PROCESS_PENDING or PROCESS_PARTIALLY_EXECUTED only if the order was locked by
+     * this call, the order locked by someone else is reported as PENDING or PARTIALLY_EXECUTED
+     */
+    Order.State lockToProcess(String uuid);
+
+    /**
+     * Change the state of given order to EXECUTED or PARTIALLY_EXECUTED (depends on given params), or release the
+     * order without execution (PENDING or PARTIALLY_EXECUTED).
+     * If the cancel was requested while the order was locked, it is applied atomically with the unlock.
      * Should be called only after lockToProcess
      *
      * @param uuid  UUID of the order
-     * @param state new State (should be EXECUTED or PARTIALLY_EXECUTED)
+     * @param state new State (should be PENDING, EXECUTED or PARTIALLY_EXECUTED, orders which are not resting in the
+     *              order book could be cancelled with CANCELLED or PARTIALLY_CANCELED)
      */
     void unlockProcessed(String uuid, Order.State state);
+
+    /**
+     * Unlock the order after the execution, the same as {@link #unlockProcessed(String, Order.State)}. The execution
+     * is reported to the subscribers of the order events even if the state is not changed.
+     *
+     * @param uuid              UUID of the order
+     * @param state             new State
+     * @param executedQuantity  quantity executed while the order was locked
+     * @param remainingQuantity quantity of the order which is not executed
+     */
+    void unlockProcessed(String uuid, Order.State state, int executedQuantity, int remainingQuantity);
+
+    /**
+     * Get state transitions of the orders with given owner: executions, cancels and expirations of the immediate
+     * orders. Events are created only while the owner has subscribers, slow subscribers miss events.
+     *
+     * @param owner client/owner tag of the orders
+     * @return hot Flux of the events
+     */
+    Flux<OrderEvent> events(String owner);
+
+    /**
+     * Get state transitions of all orders, including the orders without the owner. Events are created only while there
+     * are subscribers, slow subscribers miss events.
+     *
+     * @return hot Flux of the events
+     */
+    Flux<OrderEvent> events();
 }
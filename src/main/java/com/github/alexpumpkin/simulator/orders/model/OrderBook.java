@@ -10,19 +10,32 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Order book abstraction to store intermediate information about orders sorted by price and registered timestamp.
  * <br/>
  * price -> registered -> [orderUUID, current_quantity]. current_quantity could be reduced by matching engine.
+ * <br/>
+ * Price levels are never removed, so they are counted when created.
  */
 public class OrderBook {
     private final ConcurrentNavigableMap<Integer, ConcurrentNavigableMap<Instant, Tuple2<String, Integer>>> sellOrders;
     private final ConcurrentNavigableMap<Integer, ConcurrentNavigableMap<Instant, Tuple2<String, Integer>>> buyOrders;
+    private final LongAdder priceLevels = new LongAdder();
+    private final LongAdder totalPriceLevels;
 
     public OrderBook() {
+        this(new LongAdder());
+    }
+
+    /**
+     * @param totalPriceLevels counter of the price levels of all order books
+     */
+    public OrderBook(LongAdder totalPriceLevels) {
         sellOrders = new ConcurrentSkipListMap<>(Comparator.naturalOrder());
         buyOrders = new ConcurrentSkipListMap<>(Comparator.<Integer>naturalOrder().reversed());
+        this.totalPriceLevels = totalPriceLevels;
     }
 
     /**
@@ -31,11 +44,100 @@ public class OrderBook {
      * @param order new order.
      */
     public void add(Order order) {
-        if (order.type() == Order.Type.BUY) {
-            buy(order);
-        } else {
-            sell(order);
+        add(order, order.quantity());
+    }
+
+    /**
+     * Add order with given current quantity.
+     *
+     * @param order    order to add.
+     * @param quantity current quantity of the order.
+     */
+    public void add(Order order, int quantity) {
+        ConcurrentNavigableMap<Integer, ConcurrentNavigableMap<Instant, Tuple2<String, Integer>>> orders =
+                orders(order.type());
+        ConcurrentNavigableMap<Instant, Tuple2<String, Integer>> instantOrderMap = orders.get(order.price());
+        if (instantOrderMap == null) {
+            ConcurrentNavigableMap<Instant, Tuple2<String, Integer>> created =
+                    new ConcurrentSkipListMap<>(Comparator.naturalOrder());
+            instantOrderMap = orders.putIfAbsent(order.price(), created);
+            if (instantOrderMap == null) {
+                instantOrderMap = created;
+                priceLevels.increment();
+                totalPriceLevels.increment();
+            }
         }
+        instantOrderMap.put(order.registered(), Tuples.of(order.uuid(), quantity));
+    }
+
+    /**
+     * Get current quantity of the order.
+     *
+     * @param order order to find.
+     * @return current quantity or 0 if the order is not in the book.
+     */
+    public int quantity(Order order) {
+        ConcurrentNavigableMap<Instant, Tuple2<String, Integer>> instantOrderMap = orders(order.type())
+                .get(order.price());
+        if (instantOrderMap == null) {
+            return 0;
+        }
+        Tuple2<String, Integer> entry = instantOrderMap.get(order.registered());
+        return entry != null && entry.getT1().equals(order.uuid()) ? entry.getT2() : 0;
+    }
+
+    /**
+     * Change current quantity of the order keeping its time priority. Should be called only for the locked order.
+     *
+     * @param order    order to change.
+     * @param quantity new current quantity.
+     */
+    public void replace(Order order, int quantity) {
+        ConcurrentNavigableMap<Instant, Tuple2<String, Integer>> instantOrderMap = orders(order.type())
+                .get(order.price());
+        if (instantOrderMap != null) {
+            instantOrderMap.computeIfPresent(order.registered(), (instant, entry) ->
+                    entry.getT1().equals(order.uuid()) ? Tuples.of(entry.getT1(), quantity) : entry);
+        }
+    }
+
+    /**
+     * Remove order. Should be called only for the locked order.
+     *
+     * @param order order to remove.
+     */
+    public void remove(Order order) {
+        ConcurrentNavigableMap<Instant, Tuple2<String, Integer>> instantOrderMap = orders(order.type())
+                .get(order.price());
+        if (instantOrderMap != null) {
+            instantOrderMap.computeIfPresent(order.registered(), (instant, entry) ->
+                    entry.getT1().equals(order.uuid()) ? null : entry);
+        }
+    }
+
+    /**
+     * Get number of price levels of both sides.
+     *
+     * @return number of price levels
+     */
+    public long priceLevels() {
+        return priceLevels.sum();
+    }
+
+    /**
+     * Count entries of both sides. Entries of cancelled orders are kept until they are removed by the matching engine.
+     *
+     * @return number of entries
+     */
+    public long entries() {
+        long entries = 0;
+        for (ConcurrentNavigableMap<Instant, Tuple2<String, Integer>> level : sellOrders.values()) {
+            entries += level.size();
+        }
+        for (ConcurrentNavigableMap<Instant, Tuple2<String, Integer>> level : buyOrders.values()) {
+            entries += level.size();
+        }
+        return entries;
     }
 
     /**
@@ -56,24 +158,8 @@ public class OrderBook {
         return buyOrders.entrySet().iterator();
     }
 
-    private void buy(Order order) {
-        buyOrders.compute(order.price(), (integer, instantOrderMap) -> {
-            if (instantOrderMap == null) {
-                instantOrderMap = new ConcurrentSkipListMap<>(Comparator.naturalOrder());
-            }
-            instantOrderMap.put(order.registered(), Tuples.of(order.uuid(), order.quantity()));
-            return instantOrderMap;
-        });
-    }
-
-    private void sell(Order order) {
-        sellOrders.compute(order.price(), (integer, instantOrderMap) -> {
-            if (instantOrderMap == null) {
-                instantOrderMap = new ConcurrentSkipListMap<>(Comparator.naturalOrder());
-            }
-
-            instantOrderMap.put(order.registered(), Tuples.of(order.uuid(), order.quantity()));
-            return instantOrderMap;
-        });
+    private ConcurrentNavigableMap<Integer, ConcurrentNavigableMap<Instant, Tuple2<String, Integer>>> orders(
+            Order.Type type) {
+        return type == Order.Type.BUY ? buyOrders : sellOrders;
     }
 }
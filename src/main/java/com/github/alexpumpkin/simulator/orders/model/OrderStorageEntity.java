@@ -1,6 +1,7 @@
 package com.github.alexpumpkin.simulator.orders.model;
 
 import com.github.alexpumpkin.simulator.model.Order;
+import reactor.core.publisher.Sinks;
 
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -11,8 +12,12 @@ import java.util.concurrent.atomic.AtomicReference;
  * @param order original order
  * @param state current order state, wrapped in the {@link AtomicReference}. We should always use this state instead of
  *              the order.state()
+ * @param pendingCancel cancel requested while the order was locked by the matching engine, completed when the cancel
+ *                      takes effect. null if there is no pending cancel
  */
-public record OrderStorageEntity(Order order, AtomicReference<Order.State> state) {
+public record OrderStorageEntity(Order order,
+                                 AtomicReference<Order.State> state,
+                                 AtomicReference<Sinks.Empty<Void>> pendingCancel) {
 
     /**
      * Create new entity for given order.
@@ -21,7 +26,7 @@ public record OrderStorageEntity(Order order, AtomicReference<Order.State> state
      * @return new entity
      */
     public static OrderStorageEntity of(Order order) {
-        return new OrderStorageEntity(order, new AtomicReference<>(order.state()));
+        return new OrderStorageEntity(order, new AtomicReference<>(order.state()), new AtomicReference<>());
     }
 
     /**
@@ -32,4 +37,14 @@ public record OrderStorageEntity(Order order, AtomicReference<Order.State> state
     public Order orderWithCurrentState() {
         return order.withState(state.get());
     }
+
+    /**
+     * Create new entity for the amended order. State and pending cancel are shared with this entity.
+     *
+     * @param order amended order
+     * @return new entity
+     */
+    public OrderStorageEntity withOrder(Order order) {
+        return new OrderStorageEntity(order, state, pendingCancel);
+    }
 }
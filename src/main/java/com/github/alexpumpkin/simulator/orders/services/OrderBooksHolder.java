@@ -6,12 +6,14 @@ import com.github.alexpumpkin.simulator.orders.model.OrderBook;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Support class to store OrderBooks by symbol.
  */
 public class OrderBooksHolder {
     private final Map<String, OrderBook> orderBooks = new ConcurrentHashMap<>();
+    private final LongAdder priceLevels = new LongAdder();
 
     /**
      * Add order to the OrderBook for given symbol
@@ -21,7 +23,7 @@ public class OrderBooksHolder {
     public void add(Order order) {
         orderBooks.compute(order.symbol(), (s, orderBook) -> {
             if (orderBook == null) {
-                orderBook = new OrderBook();
+                orderBook = new OrderBook(priceLevels);
             }
             orderBook.add(order);
             return orderBook;
@@ -37,6 +39,15 @@ public class OrderBooksHolder {
         return orderBooks.keySet();
     }
 
+    /**
+     * Get number of price levels of all order books.
+     *
+     * @return number of price levels
+     */
+    public long priceLevels() {
+        return priceLevels.sum();
+    }
+
     /**
      * Get OrderBook for given symbol.
      *
@@ -0,0 +1,83 @@
+package com.github.alexpumpkin.simulator.orders.services;
+
+import com.github.alexpumpkin.simulator.model.OrderEvent;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Support class to propagate order events to the subscribers of the order owner and to the subscribers of all events.
+ * Events of the owners without subscribers are not created at all, slow subscribers miss events.
+ * <br/>
+ * Subscribers are counted inside compute functions, so the sink of the owner is never removed concurrently with the
+ * new subscription.
+ */
+public class OrderEventBus {
+    private final Map<String, OwnerEvents> owners = new ConcurrentHashMap<>();
+    private final Sinks.Many<OrderEvent> all = Sinks.many().multicast().directBestEffort();
+
+    /**
+     * Check if the owner has subscribers.
+     *
+     * @param owner client/owner tag, could be null
+     * @return true if the events of the owner should be published
+     */
+    public boolean hasSubscribers(String owner) {
+        return all.currentSubscriberCount() > 0 || owner != null && owners.containsKey(owner);
+    }
+
+    /**
+     * Publish the event to the subscribers of its owner.
+     *
+     * @param event event to publish
+     */
+    public void publish(OrderEvent event) {
+        OwnerEvents ownerEvents = event.owner() == null ? null : owners.get(event.owner());
+        if (ownerEvents != null) {
+            ownerEvents.sink().emitNext(event, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+        }
+        if (all.currentSubscriberCount() > 0) {
+            all.emitNext(event, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+        }
+    }
+
+    /**
+     * Get events of all orders.
+     *
+     * @return hot Flux of the events
+     */
+    public Flux<OrderEvent> events() {
+        return all.asFlux();
+    }
+
+    /**
+     * Get events of the owner.
+     *
+     * @param owner client/owner tag
+     * @return hot Flux of the owner's events
+     */
+    public Flux<OrderEvent> events(String owner) {
+        return Flux.defer(() -> owners.compute(owner, (key, ownerEvents) -> {
+                    if (ownerEvents == null) {
+                        ownerEvents = new OwnerEvents(Sinks.many().multicast().directBestEffort(), new AtomicInteger());
+                    }
+                    ownerEvents.subscribers().incrementAndGet();
+                    return ownerEvents;
+                })
+                .sink()
+                .asFlux()
+                .doFinally(ignored -> owners.computeIfPresent(owner, (key, ownerEvents) ->
+                        ownerEvents.subscribers().decrementAndGet() == 0 ? null : ownerEvents)));
+    }
+
+    /**
+     * @param sink        sink of the owner's events
+     * @param subscribers number of subscribers
+     */
+    private record OwnerEvents(Sinks.Many<OrderEvent> sink, AtomicInteger subscribers) {
+    }
+}
@@ -0,0 +1,174 @@
+package com.github.alexpumpkin.simulator.orders.services;
+
+import com.github.alexpumpkin.simulator.model.Order;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Support class to index resting (not yet executed or cancelled) orders by symbol, side and owner.
+ * <br/>
+ * UUIDs are kept sorted, so the orders could be listed page by page with the last UUID as the cursor. Sets are
+ * modified only inside compute functions, so an empty set is never removed concurrently with adding to it.
+ */
+public class OrdersIndex {
+    private final Map<String, Entries> buyBySymbol = new ConcurrentHashMap<>();
+    private final Map<String, Entries> sellBySymbol = new ConcurrentHashMap<>();
+    private final Map<String, Entries> byOwner = new ConcurrentHashMap<>();
+    private final LongAdder size = new LongAdder();
+
+    /**
+     * Add resting order to the index.
+     *
+     * @param order order to add
+     */
+    public void add(Order order) {
+        if (add(bySymbol(order.type()), order.symbol(), order.uuid())) {
+            size.increment();
+        }
+        if (order.owner() != null) {
+            add(byOwner, order.owner(), order.uuid());
+        }
+    }
+
+    /**
+     * Remove order from the index. Should be called when the order reaches one of the final states.
+     *
+     * @param order order to remove
+     */
+    public void remove(Order order) {
+        if (remove(bySymbol(order.type()), order.symbol(), order.uuid())) {
+            size.decrement();
+        }
+        if (order.owner() != null) {
+            remove(byOwner, order.owner(), order.uuid());
+        }
+    }
+
+    /**
+     * Get UUIDs of resting orders for given symbol.
+     *
+     * @param symbol order book's symbol
+     * @param type   side of the orders, null for both sides
+     * @return snapshot of the orders' UUIDs
+     */
+    public List<String> bySymbol(String symbol, Order.Type type) {
+        List<String> result = new ArrayList<>();
+        if (type != Order.Type.SELL) {
+            result.addAll(bySymbol(symbol, Order.Type.BUY, null));
+        }
+        if (type != Order.Type.BUY) {
+            result.addAll(bySymbol(symbol, Order.Type.SELL, null));
+        }
+        return result;
+    }
+
+    /**
+     * Get sorted UUIDs of resting orders for given symbol and side.
+     *
+     * @param symbol order book's symbol
+     * @param type   side of the orders
+     * @param after  UUID to start after, null to start from the first one
+     * @return weakly consistent view of the orders' UUIDs
+     */
+    public NavigableSet<String> bySymbol(String symbol, Order.Type type, String after) {
+        return tail(bySymbol(type).get(symbol), after);
+    }
+
+    /**
+     * Get UUIDs of resting orders for given owner.
+     *
+     * @param owner client/owner tag
+     * @return snapshot of the orders' UUIDs
+     */
+    public List<String> byOwner(String owner) {
+        return List.copyOf(byOwner(owner, null));
+    }
+
+    /**
+     * Get sorted UUIDs of resting orders for given owner.
+     *
+     * @param owner client/owner tag
+     * @param after UUID to start after, null to start from the first one
+     * @return weakly consistent view of the orders' UUIDs
+     */
+    public NavigableSet<String> byOwner(String owner, String after) {
+        return tail(byOwner.get(owner), after);
+    }
+
+    /**
+     * Get number of resting orders.
+     *
+     * @return number of resting orders
+     */
+    public long size() {
+        return size.sum();
+    }
+
+    /**
+     * Get number of resting orders for given symbol.
+     *
+     * @param symbol order book's symbol
+     * @return number of resting orders
+     */
+    public long size(String symbol) {
+        return size(buyBySymbol.get(symbol)) + size(sellBySymbol.get(symbol));
+    }
+
+    private Map<String, Entries> bySymbol(Order.Type type) {
+        return type == Order.Type.BUY ? buyBySymbol : sellBySymbol;
+    }
+
+    private static NavigableSet<String> tail(Entries entries, String after) {
+        if (entries == null) {
+            return Collections.emptyNavigableSet();
+        }
+        return after == null ? entries.uuids() : entries.uuids().tailSet(after, false);
+    }
+
+    private static int size(Entries entries) {
+        return entries == null ? 0 : entries.size().get();
+    }
+
+    private static boolean add(Map<String, Entries> index, String key, String uuid) {
+        boolean[] added = new boolean[1];
+        index.compute(key, (k, entries) -> {
+            if (entries == null) {
+                entries = new Entries(new ConcurrentSkipListSet<>(), new AtomicInteger());
+            }
+            if (entries.uuids().add(uuid)) {
+                entries.size().incrementAndGet();
+                added[0] = true;
+            }
+            return entries;
+        });
+        return added[0];
+    }
+
+    private static boolean remove(Map<String, Entries> index, String key, String uuid) {
+        boolean[] removed = new boolean[1];
+        index.computeIfPresent(key, (k, entries) -> {
+            if (entries.uuids().remove(uuid)) {
+                removed[0] = true;
+                // the size of the skip list is not constant time, so it is counted separately
+                return entries.size().decrementAndGet() == 0 ? null : entries;
+            }
+            return entries;
+        });
+        return removed[0];
+    }
+
+    /**
+     * @param uuids sorted UUIDs of the orders
+     * @param size  number of the orders
+     */
+    private record Entries(NavigableSet<String> uuids, AtomicInteger size) {
+    }
+}
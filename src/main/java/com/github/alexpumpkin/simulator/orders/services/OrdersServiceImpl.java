@@ -1,15 +1,33 @@
 package com.github.alexpumpkin.simulator.orders.services;
 
+import com.github.alexpumpkin.simulator.model.AmendOrderDTO;
 import com.github.alexpumpkin.simulator.model.Order;
+import com.github.alexpumpkin.simulator.model.OrderEvent;
+import com.github.alexpumpkin.simulator.model.OrdersQuery;
+import com.github.alexpumpkin.simulator.monitoring.OrderAddEvent;
+import com.github.alexpumpkin.simulator.monitoring.OrderCancelEvent;
+import com.github.alexpumpkin.simulator.monitoring.OrdersLockEvent;
 import com.github.alexpumpkin.simulator.orders.api.OrdersService;
+import com.github.alexpumpkin.simulator.orders.model.OrderBook;
 import com.github.alexpumpkin.simulator.orders.model.OrderStorageEntity;
+import com.github.alexpumpkin.simulator.replication.CommandJournal;
+import com.github.alexpumpkin.simulator.replication.JournalEntry;
+import com.github.alexpumpkin.simulator.risk.RiskControl;
+import com.github.alexpumpkin.simulator.risk.RiskLimitException;
+import com.github.alexpumpkin.simulator.risk.RiskLimits;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.util.function.Tuple2;
 import reactor.util.function.Tuples;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
@@ -22,12 +40,26 @@ import java.util.concurrent.atomic.AtomicReference;
 public class OrdersServiceImpl implements OrdersService {
 
     private static final String CANCEL_MESSAGE = "Impossible to cancel order. Current state is {}";
+    private static final Duration AMEND_RETRY_DELAY = Duration.ofMillis(1);
     private final Map<String, OrderStorageEntity> orderStorage = new ConcurrentHashMap<>();
     private final OrderBooksHolder orderBooksHolder;
-
+    private final OrdersIndex ordersIndex = new OrdersIndex();
+    private final OrderEventBus eventBus = new OrderEventBus();
+    private final CommandJournal journal;
+    private final RiskControl risk;
 
     public OrdersServiceImpl(OrderBooksHolder orderBooksHolder) {
+        this(orderBooksHolder, new CommandJournal(false));
+    }
+
+    public OrdersServiceImpl(OrderBooksHolder orderBooksHolder, CommandJournal journal) {
+        this(orderBooksHolder, journal, new RiskControl(RiskLimits.NONE));
+    }
+
+    public OrdersServiceImpl(OrderBooksHolder orderBooksHolder, CommandJournal journal, RiskControl risk) {
         this.orderBooksHolder = orderBooksHolder;
+        this.journal = journal;
+        this.risk = risk;
     }
 
     /**
@@ -35,15 +67,170 @@ public class OrdersServiceImpl implements OrdersService {
      */
     @Override
     public Mono<Order> add(Order order) {
-        OrderStorageEntity current = orderStorage.putIfAbsent(order.uuid(), OrderStorageEntity.of(order));
-        if (current == null) {
-            log.debug("Order added: {}", order);
-            orderBooksHolder.add(order);
-            return Mono.just(order);
-        } else {
+        return add(order, false);
+    }
+
+    /**
+     * Add the order accepted by the replication primary, risk limits are not checked. The order which is not resting
+     * is added to the order book too: the matching engine of the replica is paused, the fills of the order are
+     * applied as for the resting orders and its remaining quantity is cancelled by the next journaled command.
+     *
+     * @param order new order
+     * @return added order or currently stored order if the order with given UUID already existed
+     */
+    public Mono<Order> addReplicated(Order order) {
+        return add(order, true);
+    }
+
+    private Mono<Order> add(Order order, boolean replicated) {
+        OrderStorageEntity current = orderStorage.get(order.uuid());
+        if (current != null) {
             log.debug("Duplicate request for uuid: {}. Return current: {}", order.uuid(), current.order());
             return Mono.just(current.orderWithCurrentState());
         }
+        // reserved before the order is visible, released if the order was added concurrently
+        try {
+            risk.reserve(order, !replicated);
+        } catch (RiskLimitException e) {
+            return Mono.error(e);
+        }
+        OrderAddEvent event = new OrderAddEvent();
+        event.begin();
+        // the order is visible locked, so it is journaled before any cancel, amend or fill of the order
+        current = orderStorage.putIfAbsent(order.uuid(), new OrderStorageEntity(order,
+                new AtomicReference<>(Order.State.PROCESS_PENDING), new AtomicReference<>()));
+        if (current == null) {
+            journal.append(new JournalEntry.Add(order));
+            if (order.resting() || replicated) {
+                log.debug("Order added: {}", order);
+                if (order.resting()) {
+                    ordersIndex.add(order);
+                }
+                orderBooksHolder.add(order);
+                unlockProcessed(order.uuid(), Order.State.PENDING);
+            } else {
+                // stays locked for the matching engine, the remaining quantity is cancelled when it is unlocked
+                log.debug("Immediate order added: {}", order);
+            }
+        }
+        if (current != null) {
+            risk.release(order, order.quantity());
+            log.debug("Duplicate request for uuid: {}. Return current: {}", order.uuid(), current.order());
+        }
+        if (event.shouldCommit()) {
+            event.uuid = order.uuid();
+            event.symbol = order.symbol();
+            event.type = order.type().name();
+            event.price = order.price();
+            event.quantity = order.quantity();
+            event.duplicate = current != null;
+            event.commit();
+        }
+        return Mono.just(current == null ? order : current.orderWithCurrentState());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<Order> amend(String uuid, AmendOrderDTO amendment) {
+        return amend(uuid, amendment, null);
+    }
+
+    /**
+     * Amend the order with given registration timestamp. Used by the replica to reproduce the time priority of the
+     * primary, risk limits are not checked.
+     *
+     * @param uuid       universal unique identifier of the order to amend.
+     * @param amendment  new quantity and/or price
+     * @param registered registration timestamp if the order loses its time priority, null for the current time
+     * @return amended order
+     */
+    public Mono<Order> amend(String uuid, AmendOrderDTO amendment, Instant registered) {
+        Objects.requireNonNull(uuid);
+        // the order locked by the matching engine or not registered in the order book yet is amended when it is
+        // released: the attempt is repeated after a delay on the parallel scheduler, the caller is not blocked
+        return Mono.fromSupplier(() -> tryAmend(uuid, amendment, registered))
+                .filter(Boolean::booleanValue)
+                .repeatWhenEmpty(attempts -> attempts.concatMap(ignored -> Mono.delay(AMEND_RETRY_DELAY)))
+                .then(Mono.defer(() -> getOrderByUUID(uuid)));
+    }
+
+    /**
+     * @return true if the order is amended, false if it is locked or is not registered in the order book yet
+     */
+    private boolean tryAmend(String uuid, AmendOrderDTO amendment, Instant registered) {
+        OrderStorageEntity current = orderStorage.get(uuid);
+        if (current == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        Order.State lockedState = lockToAmend(current);
+        if (lockedState == null) {
+            return false;
+        }
+        try {
+            // re-read the order after the lock, it could be amended concurrently
+            current = orderStorage.get(uuid);
+            Order order = current.order();
+            OrderBook orderBook = orderBooksHolder.getOrderBook(order.symbol());
+            int currentQuantity = orderBook == null ? 0 : orderBook.quantity(order);
+            if (currentQuantity == 0) {
+                log.debug("Order is not registered in the order book yet, amend is retried: {}", order);
+                return false;
+            }
+            int executedQuantity = order.quantity() - currentQuantity;
+            int quantity = amendment.quantity() != null ? amendment.quantity() : order.quantity();
+            int price = amendment.price() != null ? amendment.price() : order.price();
+            int newQuantity = quantity - executedQuantity;
+            if (newQuantity <= 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Quantity must be greater than executed quantity %s".formatted(executedQuantity));
+            }
+
+            Order amended = order.withAmendment(quantity, price, order.registered());
+            risk.amend(amended, newQuantity - currentQuantity, registered == null);
+            if (price == order.price() && newQuantity <= currentQuantity) {
+                orderBook.replace(order, newQuantity);
+            } else {
+                amended = order.withAmendment(quantity, price, registered != null ? registered : Instant.now());
+                orderBook.remove(order);
+                orderBook.add(amended, newQuantity);
+            }
+            orderStorage.put(uuid, current.withOrder(amended));
+            journal.append(new JournalEntry.Amend(uuid, quantity, price, amended.registered()));
+            log.debug("Order amended: {}", amended);
+            return true;
+        } finally {
+            unlockProcessed(uuid, lockedState);
+        }
+    }
+
+    /**
+     * Lock the order to prevent concurrent matching while it is amended.
+     *
+     * @param entity order to lock
+     * @return state of the order before the lock, null if the order is locked by the matching engine
+     */
+    private Order.State lockToAmend(OrderStorageEntity entity) {
+        while (true) {
+            if (entity.pendingCancel().get() != null) {
+                throw new ResponseStatusException(HttpStatus.METHOD_NOT_ALLOWED,
+                        "Cannot amend order with pending cancel");
+            }
+            Order.State state = entity.state().get();
+            switch (state) {
+                case PENDING, PARTIALLY_EXECUTED -> {
+                    if (entity.state().compareAndSet(state, toProcessState(state))) {
+                        return state;
+                    }
+                }
+                case PROCESS_PENDING, PROCESS_PARTIALLY_EXECUTED -> {
+                    return null;
+                }
+                default -> throw new ResponseStatusException(HttpStatus.METHOD_NOT_ALLOWED,
+                        "Cannot amend order in %s state".formatted(state));
+            }
+        }
     }
 
     /**
@@ -52,6 +239,35 @@ public class OrdersServiceImpl implements OrdersService {
     @Override
     public Mono<Void> cancel(String uuid) {
         Objects.requireNonNull(uuid);
+        OrderCancelEvent event = new OrderCancelEvent();
+        event.begin();
+        try {
+            Mono<Void> result = doCancel(uuid, event);
+            commit(event, uuid, "OK");
+            return result;
+        } catch (ResponseStatusException e) {
+            commit(event, uuid, e.getStatus().name());
+            throw e;
+        }
+    }
+
+    /**
+     * Cancel the orders which are not resting and are still open. Called by the promoted replica: the primary failed
+     * before it finished the execution of these orders, so their remaining quantity is not executed.
+     *
+     * @return number of cancelled orders
+     */
+    public int cancelImmediateOrders() {
+        List<String> open = orderStorage.values().stream()
+                .filter(entity -> !entity.order().resting() && !isFinal(entity.state().get()))
+                .map(entity -> entity.order().uuid())
+                .toList();
+        // open orders of the replica are not locked, so they are cancelled right away
+        open.forEach(uuid -> cancel(uuid).subscribe());
+        return open.size();
+    }
+
+    private Mono<Void> doCancel(String uuid, OrderCancelEvent event) {
         OrderStorageEntity current = orderStorage.get(uuid);
         if (current == null) {
             log.debug("Order is not found by uuid = {}. Pretend we successfully deleted.", uuid);
@@ -59,6 +275,8 @@ public class OrdersServiceImpl implements OrdersService {
         }
 
         Order.State currentState = current.state().get();
+        event.symbol = current.order().symbol();
+        event.state = currentState.name();
         return switch (currentState) {
             case CANCELLED, PARTIALLY_CANCELED -> {
                 log.debug("Order already cancelled. UUID = {}", uuid);
@@ -67,20 +285,23 @@ public class OrdersServiceImpl implements OrdersService {
             case PENDING, PARTIALLY_EXECUTED -> {
                 log.debug("Cancel order: {}", current.orderWithCurrentState());
                 if (current.state().compareAndSet(Order.State.PENDING, Order.State.CANCELLED)) {
+                    cancelled(current, Order.State.CANCELLED);
                     yield Mono.empty();
                 } else {
                     if (current.state().compareAndSet(Order.State.PARTIALLY_EXECUTED, Order.State.PARTIALLY_CANCELED)) {
+                        cancelled(current, Order.State.PARTIALLY_CANCELED);
                         yield Mono.empty();
                     } else {
-                        log.debug(CANCEL_MESSAGE, current.state().get());
-                        throw new ResponseStatusException(HttpStatus.METHOD_NOT_ALLOWED, "Cannot cancel");
+                        // the state was changed concurrently, most likely the order was locked by the matching engine
+                        event.deferred = true;
+                        yield deferCancel(current);
                     }
                 }
             }
             case PROCESS_PENDING, PROCESS_PARTIALLY_EXECUTED -> {
-                log.debug(CANCEL_MESSAGE, currentState);
-                throw new ResponseStatusException(HttpStatus.LOCKED, "Cannot cancel order in %s state"
-                        .formatted(currentState));
+                log.debug("Order is being processed, cancel is deferred. UUID = {}", uuid);
+                event.deferred = true;
+                yield deferCancel(current);
             }
             default -> {
                 log.debug(CANCEL_MESSAGE, currentState);
@@ -90,6 +311,131 @@ public class OrdersServiceImpl implements OrdersService {
         };
     }
 
+    /**
+     * Register pending cancel for the order. The cancel is applied by the matching engine when it unlocks the order
+     * (see {@link #unlockProcessed(String, Order.State)}), or right here if the order was unlocked in between.
+     *
+     * @param entity order to cancel
+     * @return Mono, completed when the cancel takes effect
+     */
+    private Mono<Void> deferCancel(OrderStorageEntity entity) {
+        Sinks.Empty<Void> pendingCancel = Sinks.empty();
+        if (!entity.pendingCancel().compareAndSet(null, pendingCancel)) {
+            pendingCancel = entity.pendingCancel().get();
+        }
+        completePendingCancel(entity);
+        return pendingCancel.asMono();
+    }
+
+    /**
+     * Apply pending cancel if the order is not locked. Could be called concurrently by the cancel request and by the
+     * matching engine: pending cancel is registered before the state is checked and the state is changed before
+     * pending cancel is checked, so at least one of them applies it.
+     *
+     * @param entity order with pending cancel
+     */
+    private void completePendingCancel(OrderStorageEntity entity) {
+        Sinks.Empty<Void> pendingCancel = entity.pendingCancel().get();
+        if (pendingCancel == null) {
+            return;
+        }
+        while (true) {
+            Order.State state = entity.state().get();
+            switch (state) {
+                case PROCESS_PENDING, PROCESS_PARTIALLY_EXECUTED -> {
+                    // still locked, will be completed by unlockProcessed
+                    return;
+                }
+                case PENDING, PARTIALLY_EXECUTED -> {
+                    if (entity.state().compareAndSet(state, cancelledState(state))) {
+                        cancelled(entity, cancelledState(state));
+                        log.debug("Deferred cancel applied: {}", entity.orderWithCurrentState());
+                        pendingCancel.tryEmitEmpty();
+                        return;
+                    }
+                }
+                case CANCELLED, PARTIALLY_CANCELED -> {
+                    pendingCancel.tryEmitEmpty();
+                    return;
+                }
+                default -> {
+                    log.debug(CANCEL_MESSAGE, state);
+                    pendingCancel.tryEmitError(new ResponseStatusException(HttpStatus.METHOD_NOT_ALLOWED,
+                            "Cannot cancel order in %s state".formatted(state)));
+                    return;
+                }
+            }
+        }
+    }
+
+    private void cancelled(OrderStorageEntity entity) {
+        ordersIndex.remove(entity.order());
+        journal.append(new JournalEntry.Cancel(entity.order().uuid()));
+    }
+
+    /**
+     * Release the open quantity of the cancelled resting order and publish the event. The remaining quantity is read
+     * from the order book, cancelled orders are removed from the order book by the matching engine.
+     */
+    private void cancelled(OrderStorageEntity entity, Order.State state) {
+        cancelled(entity);
+        Order order = entity.order();
+        if (order.owner() != null || eventBus.hasSubscribers(null)) {
+            int remaining = bookQuantity(order);
+            risk.release(order, remaining);
+            publish(order, state, remaining);
+        }
+    }
+
+    private void publish(Order order, Order.State state, int remaining) {
+        if (eventBus.hasSubscribers(order.owner())) {
+            eventBus.publish(OrderEvent.of(order, state, remaining));
+        }
+    }
+
+    private int bookQuantity(Order order) {
+        OrderBook orderBook = orderBooksHolder.getOrderBook(order.symbol());
+        return orderBook == null ? 0 : orderBook.quantity(order);
+    }
+
+    private static Order.State toProcessState(Order.State state) {
+        return switch (state) {
+            case PENDING -> Order.State.PROCESS_PENDING;
+            case PARTIALLY_EXECUTED -> Order.State.PROCESS_PARTIALLY_EXECUTED;
+            default -> state;
+        };
+    }
+
+    private static Order.State fromProcessState(Order.State state) {
+        return switch (state) {
+            case PROCESS_PENDING -> Order.State.PENDING;
+            case PROCESS_PARTIALLY_EXECUTED -> Order.State.PARTIALLY_EXECUTED;
+            default -> state;
+        };
+    }
+
+    private static boolean isFinal(Order.State state) {
+        return state == Order.State.EXECUTED
+                || state == Order.State.CANCELLED
+                || state == Order.State.PARTIALLY_CANCELED;
+    }
+
+    private static Order.State cancelledState(Order.State state) {
+        return switch (state) {
+            case PENDING, PROCESS_PENDING -> Order.State.CANCELLED;
+            case PARTIALLY_EXECUTED, PROCESS_PARTIALLY_EXECUTED -> Order.State.PARTIALLY_CANCELED;
+            default -> state;
+        };
+    }
+
+    private static void commit(OrderCancelEvent event, String uuid, String outcome) {
+        if (event.shouldCommit()) {
+            event.uuid = uuid;
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -99,11 +445,123 @@ public class OrdersServiceImpl implements OrdersService {
                 .map(OrderStorageEntity::orderWithCurrentState);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Flux<String> cancelBySymbol(String symbol, Order.Type type) {
+        Objects.requireNonNull(symbol);
+        return cancelAll(ordersIndex.bySymbol(symbol, type));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Flux<String> cancelByOwner(String owner, Order.Type type) {
+        Objects.requireNonNull(owner);
+        List<String> uuids = ordersIndex.byOwner(owner);
+        if (type != null) {
+            uuids = uuids.stream()
+                    .filter(uuid -> {
+                        OrderStorageEntity entity = orderStorage.get(uuid);
+                        return entity != null && entity.order().type() == type;
+                    })
+                    .toList();
+        }
+        return cancelAll(uuids);
+    }
+
+    private Flux<String> cancelAll(List<String> uuids) {
+        log.debug("Mass cancel of {} orders", uuids.size());
+        return Flux.fromIterable(uuids)
+                .flatMap(uuid -> Mono.defer(() -> cancel(uuid))
+                        .thenReturn(uuid)
+                        .onErrorResume(ResponseStatusException.class, e -> Mono.empty()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Flux<Order> findOpenOrders(OrdersQuery query) {
+        Flux<String> uuids;
+        if (query.owner() != null) {
+            uuids = Flux.fromIterable(ordersIndex.byOwner(query.owner(), query.after()));
+        } else if (query.type() != null) {
+            uuids = Flux.fromIterable(ordersIndex.bySymbol(Objects.requireNonNull(query.symbol()), query.type(),
+                    query.after()));
+        } else {
+            Objects.requireNonNull(query.symbol());
+            uuids = Flux.mergeComparing(Comparator.naturalOrder(),
+                    Flux.fromIterable(ordersIndex.bySymbol(query.symbol(), Order.Type.BUY, query.after())),
+                    Flux.fromIterable(ordersIndex.bySymbol(query.symbol(), Order.Type.SELL, query.after())));
+        }
+        return uuids
+                .mapNotNull(uuid -> {
+                    OrderStorageEntity entity = orderStorage.get(uuid);
+                    if (entity == null) {
+                        return null;
+                    }
+                    Order order = entity.order();
+                    Order.State state = fromProcessState(entity.state().get());
+                    boolean matches = !isFinal(state)
+                            && (query.symbol() == null || query.symbol().equals(order.symbol()))
+                            && (query.type() == null || query.type() == order.type())
+                            && (query.state() == null || query.state() == state);
+                    return matches ? order.withState(state) : null;
+                })
+                .take(query.limit());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long restingOrdersCount() {
+        return ordersIndex.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long restingOrdersCount(String symbol) {
+        return ordersIndex.size(symbol);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long storedOrdersCount() {
+        return orderStorage.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Flux<OrderEvent> events(String owner) {
+        Objects.requireNonNull(owner);
+        return eventBus.events(owner);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Flux<OrderEvent> events() {
+        return eventBus.events();
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Tuple2<Order.State, Order.State> lockToProcess(String sellUUID, String buyUUID) {
+        OrdersLockEvent event = new OrdersLockEvent();
+        event.begin();
         OrderStorageEntity sellOrder = orderStorage.get(sellUUID);
         AtomicReference<Order.State> sellStateRef = sellOrder.state();
         OrderStorageEntity buyOrder = orderStorage.get(buyUUID);
@@ -111,42 +569,74 @@ public class OrdersServiceImpl implements OrdersService {
         Order.State sellState = sellStateRef.get();
         Order.State buyState = buyStateRef.get();
 
-        boolean sellPrepared = false;
-        boolean buyPrepared = false;
+        boolean sellPrepared = prepare(sellOrder, sellState, "Sell");
+        boolean buyPrepared = prepare(buyOrder, buyState, "Buy");
 
-        if (sellState == Order.State.PENDING) {
-            sellPrepared = sellStateRef.compareAndSet(Order.State.PENDING,
-                    Order.State.PROCESS_PENDING);
-        } else if (sellState == Order.State.PARTIALLY_EXECUTED) {
-            sellPrepared = sellStateRef.compareAndSet(Order.State.PARTIALLY_EXECUTED,
-                    Order.State.PROCESS_PARTIALLY_EXECUTED);
-        }
-        if (buyState == Order.State.PENDING) {
-            buyPrepared = buyStateRef.compareAndSet(Order.State.PENDING,
-                    Order.State.PROCESS_PENDING);
-        } else if (buyState == Order.State.PARTIALLY_EXECUTED) {
-            buyPrepared = buyStateRef.compareAndSet(Order.State.PARTIALLY_EXECUTED,
-                    Order.State.PROCESS_PARTIALLY_EXECUTED);
+        // rollback if we couldn't prepare both. Only the prepared order is rolled back, the other one could be
+        // locked by someone else
+        if (sellPrepared ^ buyPrepared) {
+            if (sellPrepared) {
+                sellStateRef.compareAndSet(toProcessState(sellState), sellState);
+                completePendingCancel(sellOrder);
+            } else {
+                buyStateRef.compareAndSet(toProcessState(buyState), buyState);
+                completePendingCancel(buyOrder);
+            }
         }
 
-        // rollback if we couldn't prepare both
-        if (sellPrepared ^ buyPrepared) {
-            sellStateRef.compareAndSet(Order.State.PROCESS_PENDING,
-                    Order.State.PENDING);
-            sellStateRef.compareAndSet(Order.State.PROCESS_PARTIALLY_EXECUTED,
-                    Order.State.PARTIALLY_EXECUTED);
-            buyStateRef.compareAndSet(Order.State.PROCESS_PENDING,
-                    Order.State.PENDING);
-            buyStateRef.compareAndSet(Order.State.PROCESS_PARTIALLY_EXECUTED,
-                    Order.State.PARTIALLY_EXECUTED);
-            log.debug("Orders locking failed: sellOrder=[{}], buyOrder=[{}]",
+        Tuple2<Order.State, Order.State> result;
+        if (sellPrepared && buyPrepared) {
+            log.debug("Orders are locked successfully: sellOrder=[{}], buyOrder=[{}]",
                     sellOrder.orderWithCurrentState(), buyOrder.orderWithCurrentState());
+            result = Tuples.of(sellStateRef.get(), buyStateRef.get());
         } else {
-            log.debug("Orders are locked successfully: sellOrder=[{}], buyOrder=[{}]",
+            log.debug("Orders locking failed: sellOrder=[{}], buyOrder=[{}]",
                     sellOrder.orderWithCurrentState(), buyOrder.orderWithCurrentState());
+            // orders locked by someone else are reported in their unlocked state
+            result = Tuples.of(fromProcessState(sellStateRef.get()), fromProcessState(buyStateRef.get()));
         }
+        if (event.shouldCommit()) {
+            event.sellUuid = sellUUID;
+            event.buyUuid = buyUUID;
+            event.sellState = result.getT1().name();
+            event.buyState = result.getT2().name();
+            event.locked = sellPrepared && buyPrepared;
+            event.rolledBack = sellPrepared ^ buyPrepared;
+            event.commit();
+        }
+        return result;
+    }
 
-        return Tuples.of(sellStateRef.get(), buyStateRef.get());
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Order.State lockToProcess(String uuid) {
+        OrderStorageEntity order = orderStorage.get(uuid);
+        Order.State state = order.state().get();
+        if (prepare(order, state, "Order")) {
+            log.debug("Order is locked successfully: {}", order.orderWithCurrentState());
+            return toProcessState(state);
+        }
+        return fromProcessState(order.state().get());
+    }
+
+    /**
+     * Try to lock the order in the observed state.
+     *
+     * @param entity order to lock
+     * @param state  observed state of the order
+     * @param side   name of the order for the log
+     * @return true if the order was locked
+     */
+    private static boolean prepare(OrderStorageEntity entity, Order.State state, String side) {
+        if (entity.pendingCancel().get() != null) {
+            // do not lock orders waiting for cancel
+            log.debug("{} order has pending cancel: {}", side, entity.order().uuid());
+            return false;
+        }
+        return (state == Order.State.PENDING || state == Order.State.PARTIALLY_EXECUTED)
+                && entity.state().compareAndSet(state, toProcessState(state));
     }
 
     /**
@@ -154,9 +644,49 @@ public class OrdersServiceImpl implements OrdersService {
      */
     @Override
     public void unlockProcessed(String uuid, Order.State state) {
+        unlock(uuid, state, null, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void unlockProcessed(String uuid, Order.State state, int executedQuantity, int remainingQuantity) {
+        unlock(uuid, state, executedQuantity, remainingQuantity);
+    }
+
+    /**
+     * @param executedQuantity  quantity executed while the order was locked, null if the order could be released
+     *                          without execution. Such unlock is published only if the state is changed
+     * @param remainingQuantity remaining quantity after the execution, null to read it from the order book
+     */
+    private void unlock(String uuid, Order.State state, Integer executedQuantity, Integer remainingQuantity) {
         OrderStorageEntity order = orderStorage.get(uuid);
         AtomicReference<Order.State> currentStateRef = order.state();
-        currentStateRef.set(state);
+        Order.State lockedState = fromProcessState(currentStateRef.get());
+        // apply pending cancel together with the unlock
+        Order.State newState = order.pendingCancel().get() != null ? cancelledState(state) : state;
+        if (executedQuantity != null) {
+            risk.executed(order.order(), executedQuantity);
+        }
+        currentStateRef.set(newState);
+        // the remaining quantity of the immediate order is cancelled by the matching engine after its fills
+        if (newState != state || !order.order().resting()
+                && (newState == Order.State.CANCELLED || newState == Order.State.PARTIALLY_CANCELED)) {
+            cancelled(order);
+        } else if (isFinal(newState)) {
+            ordersIndex.remove(order.order());
+        }
+        boolean publish = (order.order().owner() != null || eventBus.hasSubscribers(null))
+                && (executedQuantity != null || newState != lockedState);
+        if (publish) {
+            int remaining = remainingQuantity != null ? remainingQuantity : bookQuantity(order.order());
+            if (newState == Order.State.CANCELLED || newState == Order.State.PARTIALLY_CANCELED) {
+                risk.release(order.order(), remaining);
+            }
+            publish(order.order(), newState, remaining);
+        }
+        completePendingCancel(order);
         log.debug("Order unlocked: {}", order.orderWithCurrentState());
     }
 }
@@ -0,0 +1,146 @@
+package com.github.alexpumpkin.simulator.replication;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In memory journal of the commands, which changed the orders. Commands are appended by the operations themselves,
+ * while the order is locked or right after the state change, so the sequence of the commands of one order is the
+ * sequence of its changes.
+ * <br/>
+ * Append is lock free: the sequence is reserved with an atomic increment and the command is written to its slot.
+ * Readers poll the journal and read contiguous written commands in batches, so they do not slow down the writers.
+ * Disabled journal ignores appended commands.
+ * <br/>
+ * Readers acknowledge the applied commands, the chunks below the slowest connected reader are trimmed. Without
+ * connected readers the journal is not trimmed, so a disconnected reader could continue from its last acknowledged
+ * command.
+ */
+public class CommandJournal {
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int MAX_BATCH = 4096;
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(1);
+
+    private final boolean enabled;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, AtomicReferenceArray<JournalEntry>> chunks = new ConcurrentHashMap<>();
+    // acknowledged sequence numbers of the connected readers
+    private final Set<AtomicLong> readers = ConcurrentHashMap.newKeySet();
+    // sequence number of the first retained command, guarded by this for the changes
+    private volatile long start;
+
+    public CommandJournal(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Append the command.
+     *
+     * @param entry command to append
+     */
+    public void append(JournalEntry entry) {
+        if (!enabled) {
+            return;
+        }
+        long next = sequence.getAndIncrement();
+        chunks.computeIfAbsent(next >>> CHUNK_BITS, ignored -> new AtomicReferenceArray<>(CHUNK_SIZE))
+                .set((int) (next & (CHUNK_SIZE - 1)), entry);
+    }
+
+    /**
+     * Get number of appended commands, including commands being written.
+     *
+     * @return sequence number of the next command
+     */
+    public long size() {
+        return sequence.get();
+    }
+
+    /**
+     * Get number of retained commands, the commands below the slowest reader are trimmed.
+     *
+     * @return number of commands kept in memory
+     */
+    public long retained() {
+        return sequence.get() - start;
+    }
+
+    /**
+     * Read commands starting from the sequence number. The Flux does not complete, new commands are emitted as they
+     * are appended. The commands are retained until the reader acknowledges them.
+     *
+     * @param from             sequence number of the first command to read
+     * @param acknowledgements sequence numbers of the next commands the reader needs, the commands before them are
+     *                         applied by the reader
+     * @return batches of sequenced commands, error if the commands from the sequence number were already trimmed
+     */
+    public Flux<List<JournalRecord>> read(long from, Flux<Long> acknowledgements) {
+        return Flux.defer(() -> {
+            AtomicLong acknowledged = new AtomicLong(from);
+            if (!register(acknowledged)) {
+                return Flux.error(new IllegalStateException("Commands before %s are trimmed, requested %s"
+                        .formatted(start, from)));
+            }
+            AtomicLong next = new AtomicLong(from);
+            Disposable subscription = acknowledgements
+                    .subscribe(sequence -> acknowledge(acknowledged, Math.min(sequence, next.get())));
+            return Flux.interval(POLL_INTERVAL)
+                    .onBackpressureDrop()
+                    .map(ignored -> batch(next))
+                    .filter(batch -> !batch.isEmpty())
+                    .doFinally(ignored -> {
+                        subscription.dispose();
+                        readers.remove(acknowledged);
+                    });
+        });
+    }
+
+    private synchronized boolean register(AtomicLong acknowledged) {
+        if (acknowledged.get() < start) {
+            return false;
+        }
+        readers.add(acknowledged);
+        return true;
+    }
+
+    private synchronized void acknowledge(AtomicLong acknowledged, long sequence) {
+        if (sequence <= acknowledged.get()) {
+            return;
+        }
+        acknowledged.set(sequence);
+        long slowest = readers.stream().mapToLong(AtomicLong::get).min().orElse(start);
+        // whole chunks are trimmed, the chunk of the slowest reader is kept
+        long trimmed = slowest & -CHUNK_SIZE;
+        for (long chunk = start >>> CHUNK_BITS; chunk < trimmed >>> CHUNK_BITS; chunk++) {
+            chunks.remove(chunk);
+        }
+        start = Math.max(start, trimmed);
+    }
+
+    private List<JournalRecord> batch(AtomicLong next) {
+        List<JournalRecord> batch = new ArrayList<>();
+        long current = next.get();
+        while (batch.size() < MAX_BATCH && current < sequence.get()) {
+            AtomicReferenceArray<JournalEntry> chunk = chunks.get(current >>> CHUNK_BITS);
+            JournalEntry entry = chunk == null ? null : chunk.get((int) (current & (CHUNK_SIZE - 1)));
+            if (entry == null) {
+                // reserved, but not written yet
+                break;
+            }
+            batch.add(new JournalRecord(current, entry));
+            current++;
+        }
+        next.set(current);
+        return batch;
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.alexpumpkin.simulator.replication;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.github.alexpumpkin.simulator.model.Order;
+import com.github.alexpumpkin.simulator.trades.model.Trade;
+
+import java.time.Instant;
+
+/**
+ * Command of the {@link CommandJournal}. Commands are the results of the operations on the primary, so the replica
+ * applies them without decisions of its own.
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
+@JsonSubTypes({
+        @JsonSubTypes.Type(value = JournalEntry.Add.class, name = "ADD"),
+        @JsonSubTypes.Type(value = JournalEntry.Amend.class, name = "AMEND"),
+        @JsonSubTypes.Type(value = JournalEntry.Cancel.class, name = "CANCEL"),
+        @JsonSubTypes.Type(value = JournalEntry.Fill.class, name = "FILL")
+})
+public sealed interface JournalEntry {
+
+    /**
+     * New order was added. The order which is not resting in the order book is followed by its fills and by the
+     * cancel of its remaining quantity.
+     *
+     * @param order added order
+     */
+    record Add(Order order) implements JournalEntry {
+    }
+
+    /**
+     * Order was amended.
+     *
+     * @param uuid       UUID of the order
+     * @param quantity   new total quantity
+     * @param price      new price
+     * @param registered registration timestamp after the amendment
+     */
+    record Amend(String uuid, int quantity, int price, Instant registered) implements JournalEntry {
+    }
+
+    /**
+     * Order was cancelled.
+     *
+     * @param uuid UUID of the order
+     */
+    record Cancel(String uuid) implements JournalEntry {
+    }
+
+    /**
+     * Orders were matched.
+     *
+     * @param trade executed trade
+     */
+    record Fill(Trade trade) implements JournalEntry {
+    }
+}
@@ -0,0 +1,10 @@
+package com.github.alexpumpkin.simulator.replication;
+
+/**
+ * Sequenced command of the {@link CommandJournal}.
+ *
+ * @param sequence sequence number of the command, starting from 0
+ * @param entry    command
+ */
+public record JournalRecord(long sequence, JournalEntry entry) {
+}
@@ -0,0 +1,177 @@
+package com.github.alexpumpkin.simulator.replication;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.alexpumpkin.simulator.matching.MatchingEngine;
+import com.github.alexpumpkin.simulator.model.AmendOrderDTO;
+import com.github.alexpumpkin.simulator.orders.services.OrdersServiceImpl;
+import io.netty.handler.codec.LineBasedFrameDecoder;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.Connection;
+import reactor.netty.tcp.TcpClient;
+import reactor.util.retry.Retry;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hot standby replica. Receives the {@link CommandJournal} of the primary and applies the commands one by one to the
+ * local orders and order books. The matching engine is paused until the replica is promoted, trades come from the
+ * journal instead.
+ * <br/>
+ * The replica reconnects to the primary if the connection is lost and continues from the next command. A command which
+ * failed to apply is not skipped: the connection is closed and the command is requested again after the reconnect.
+ * Applied commands are acknowledged periodically, so the primary could trim its journal.
+ */
+@Slf4j
+public class ReplicaClient {
+    private static final int MAX_LINE_LENGTH = 1 << 20;
+    private static final Duration RECONNECT_DELAY = Duration.ofSeconds(1);
+    private static final Duration ACKNOWLEDGE_INTERVAL = Duration.ofMillis(100);
+
+    private final OrdersServiceImpl ordersService;
+    private final MatchingEngine matchingEngine;
+    private final ObjectMapper objectMapper;
+    private final String host;
+    private final int port;
+    private final AtomicLong next = new AtomicLong();
+    private final AtomicReference<Connection> connection = new AtomicReference<>();
+    private volatile boolean promoted;
+    private Disposable replication;
+
+    public ReplicaClient(OrdersServiceImpl ordersService, MatchingEngine matchingEngine, ObjectMapper objectMapper,
+                         String host, int port) {
+        this.ordersService = ordersService;
+        this.matchingEngine = matchingEngine;
+        this.objectMapper = objectMapper;
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Start the replication.
+     */
+    public void start() {
+        matchingEngine.pause();
+        replication = Mono.defer(() -> TcpClient.create()
+                        .host(host)
+                        .port(port)
+                        .doOnConnected(c -> c.addHandlerLast(new LineBasedFrameDecoder(MAX_LINE_LENGTH)))
+                        .handle((inbound, outbound) -> {
+                            Sinks.Empty<Void> replicated = Sinks.empty();
+                            // the first line is the sequence number to start from, then the acknowledgements
+                            Flux<String> lines = Flux.interval(ACKNOWLEDGE_INTERVAL)
+                                    .map(ignored -> next.get())
+                                    .startWith(next.get())
+                                    .distinctUntilChanged()
+                                    .map(sequence -> sequence + "\n")
+                                    .takeUntilOther(replicated.asMono());
+                            return outbound.sendString(lines)
+                                    .then()
+                                    .and(inbound.receive()
+                                            .asString()
+                                            .takeWhile(ignored -> !promoted)
+                                            .map(this::readRecord)
+                                            .concatMap(this::apply)
+                                            .doFinally(ignored -> replicated.tryEmitEmpty())
+                                            .then());
+                        })
+                        .connect())
+                .doOnNext(connection::set)
+                .flatMap(Connection::onDispose)
+                .doOnError(e -> log.warn("Replication connection failed: {}", e.getMessage()))
+                .retryWhen(Retry.fixedDelay(Long.MAX_VALUE, RECONNECT_DELAY))
+                .repeatWhen(completed -> completed.delayElements(RECONNECT_DELAY))
+                .subscribe();
+        log.info("Replicating from {}:{}", host, port);
+    }
+
+    /**
+     * Stop the replication and resume the matching engine. After the promotion the replica accepts orders.
+     *
+     * @return sequence number of the next command, number of applied commands
+     */
+    public long promote() {
+        if (!promoted) {
+            promoted = true;
+            dispose();
+            int cancelled = ordersService.cancelImmediateOrders();
+            if (cancelled > 0) {
+                log.info("Cancelled {} immediate orders left open by the primary", cancelled);
+            }
+            matchingEngine.resume();
+            log.info("Replica promoted at sequence {}", next.get());
+        }
+        return next.get();
+    }
+
+    /**
+     * Check if the replica was promoted.
+     *
+     * @return true if the replica was promoted
+     */
+    public boolean isPromoted() {
+        return promoted;
+    }
+
+    /**
+     * Get sequence number of the next command.
+     *
+     * @return number of applied commands
+     */
+    public long sequence() {
+        return next.get();
+    }
+
+    /**
+     * Stop the replication.
+     */
+    public void dispose() {
+        if (replication != null) {
+            replication.dispose();
+        }
+        Connection current = connection.get();
+        if (current != null) {
+            current.dispose();
+        }
+    }
+
+    private JournalRecord readRecord(String line) {
+        try {
+            return objectMapper.readValue(line, JournalRecord.class);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Mono<Void> apply(JournalRecord record) {
+        if (record.sequence() != next.get()) {
+            return Mono.error(new IllegalStateException("Expected command %s, received %s"
+                    .formatted(next.get(), record.sequence())));
+        }
+        // the failed command is applied again after the reconnect
+        return Mono.defer(() -> apply(record.entry()))
+                .doOnError(e -> log.error("Failed to apply command {}: {}", record.sequence(), record.entry(), e))
+                .doOnSuccess(ignored -> next.incrementAndGet());
+    }
+
+    private Mono<Void> apply(JournalEntry entry) {
+        if (entry instanceof JournalEntry.Add add) {
+            return ordersService.addReplicated(add.order()).then();
+        } else if (entry instanceof JournalEntry.Amend amend) {
+            return ordersService.amend(amend.uuid(), new AmendOrderDTO(amend.quantity(), amend.price()),
+                    amend.registered()).then();
+        } else if (entry instanceof JournalEntry.Cancel cancel) {
+            return ordersService.cancel(cancel.uuid());
+        } else if (entry instanceof JournalEntry.Fill fill) {
+            return matchingEngine.apply(fill.trade());
+        }
+        return Mono.error(new IllegalArgumentException("Unknown command: " + entry));
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.alexpumpkin.simulator.replication;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.handler.codec.LineBasedFrameDecoder;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.netty.DisposableServer;
+import reactor.netty.tcp.TcpServer;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * TCP server streaming the {@link CommandJournal} to the replicas. The replica sends the sequence number of the
+ * first command it needs as a line, then the commands are sent as NDJSON in batches without waiting for the replica.
+ * The following lines of the replica are the sequence numbers of the next commands it needs (acknowledgements), the
+ * journal is trimmed below them.
+ */
+@Slf4j
+public class ReplicationServer {
+    private static final int MAX_LINE_LENGTH = 64;
+
+    private final CommandJournal journal;
+    private final ObjectMapper objectMapper;
+    private final int port;
+    private DisposableServer server;
+
+    public ReplicationServer(CommandJournal journal, ObjectMapper objectMapper, int port) {
+        this.journal = journal;
+        this.objectMapper = objectMapper;
+        this.port = port;
+    }
+
+    /**
+     * Bind the server.
+     */
+    public void start() {
+        server = TcpServer.create()
+                .port(port)
+                .doOnConnection(connection -> connection.addHandlerLast(new LineBasedFrameDecoder(MAX_LINE_LENGTH)))
+                .handle((inbound, outbound) -> outbound.sendString(inbound.receive()
+                        .asString()
+                        .map(line -> Long.parseLong(line.trim()))
+                        .switchOnFirst((first, lines) -> {
+                            if (!first.hasValue()) {
+                                return Flux.empty();
+                            }
+                            log.info("Replica connected, streaming journal from {}", first.get());
+                            return journal.read(first.get(), lines.skip(1));
+                        })
+                        .doOnError(e -> log.warn("Replication stream failed: {}", e.getMessage()))
+                        .map(this::writeBatch)))
+                .bindNow();
+        log.info("Replication server started on port {}", server.port());
+    }
+
+    /**
+     * Get the bound port.
+     *
+     * @return port of the server
+     */
+    public int port() {
+        return server.port();
+    }
+
+    /**
+     * Stop the server.
+     */
+    public void dispose() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    private String writeBatch(List<JournalRecord> batch) {
+        StringBuilder builder = new StringBuilder();
+        try {
+            for (JournalRecord record : batch) {
+                builder.append(objectMapper.writeValueAsString(record)).append('\n');
+            }
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+}
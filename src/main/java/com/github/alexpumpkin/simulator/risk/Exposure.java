@@ -0,0 +1,12 @@
+package com.github.alexpumpkin.simulator.risk;
+
+/**
+ * Exposure of the account in one symbol.
+ *
+ * @param symbol   order book's symbol
+ * @param position executed buy quantity minus executed sell quantity
+ * @param openBuy  open quantity of the buy orders
+ * @param openSell open quantity of the sell orders
+ */
+public record Exposure(String symbol, long position, long openBuy, long openSell) {
+}
@@ -0,0 +1,176 @@
+package com.github.alexpumpkin.simulator.risk;
+
+import com.github.alexpumpkin.simulator.model.Order;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pre-trade risk checks: order quantity, order notional and position of the account (order owner) per symbol. Orders
+ * without the owner are checked by quantity and notional only.
+ * <br/>
+ * Exposure of every account and symbol is three atomic counters: position, open buy and open sell quantity. The open
+ * quantity of the new order is reserved with compare-and-set, so concurrent orders of one account could not exceed the
+ * limit together. Fills move the quantity from the open counter to the position, cancels release it. All updates are
+ * lock-free, a check is two map lookups and one compare-and-set.
+ */
+@Slf4j
+public class RiskControl {
+    private final AtomicReference<RiskLimits> limits;
+    private final Map<String, Map<String, Counters>> accounts = new ConcurrentHashMap<>();
+
+    public RiskControl(RiskLimits limits) {
+        this.limits = new AtomicReference<>(limits);
+    }
+
+    /**
+     * Get current limits.
+     *
+     * @return current limits
+     */
+    public RiskLimits getLimits() {
+        return limits.get();
+    }
+
+    /**
+     * Replace current limits. Applied to the next orders, open orders are not checked again.
+     *
+     * @param limits new limits
+     */
+    public void setLimits(RiskLimits limits) {
+        log.info("Risk limits changed: {}", limits);
+        this.limits.set(limits);
+    }
+
+    /**
+     * Check the new order and reserve its quantity. Should be called once per new order, before it is added to the
+     * order book.
+     *
+     * @param order new order
+     * @param check false to reserve without the check (orders accepted by the replication primary)
+     * @throws RiskLimitException if the order breaks the limit
+     */
+    public void reserve(Order order, boolean check) {
+        reserve(order, order.quantity(), check);
+    }
+
+    /**
+     * Check the amendment of the order and reserve the increase of its open quantity.
+     *
+     * @param amended  amended order
+     * @param increase increase of the open quantity, could be negative
+     * @param check    false to reserve without the check
+     * @throws RiskLimitException if the amended order breaks the limit
+     */
+    public void amend(Order amended, int increase, boolean check) {
+        if (increase >= 0) {
+            reserve(amended, increase, check);
+        } else {
+            release(amended, -increase);
+        }
+    }
+
+    /**
+     * Move executed quantity of the order from the open quantity to the position.
+     *
+     * @param order    executed order
+     * @param quantity executed quantity
+     */
+    public void executed(Order order, int quantity) {
+        Counters counters = counters(order);
+        if (counters != null && quantity > 0) {
+            // the position is changed first, so the exposure is never underestimated
+            if (order.type() == Order.Type.BUY) {
+                counters.position.addAndGet(quantity);
+                counters.openBuy.addAndGet(-quantity);
+            } else {
+                counters.position.addAndGet(-quantity);
+                counters.openSell.addAndGet(-quantity);
+            }
+        }
+    }
+
+    /**
+     * Release open quantity of the cancelled order.
+     *
+     * @param order    cancelled order
+     * @param quantity quantity which was not executed
+     */
+    public void release(Order order, int quantity) {
+        Counters counters = counters(order);
+        if (counters != null && quantity > 0) {
+            (order.type() == Order.Type.BUY ? counters.openBuy : counters.openSell).addAndGet(-quantity);
+        }
+    }
+
+    /**
+     * Get exposure of the account.
+     *
+     * @param owner client/owner tag of the orders
+     * @return exposure per symbol
+     */
+    public List<Exposure> exposure(String owner) {
+        return accounts.getOrDefault(owner, Map.of())
+                .entrySet()
+                .stream()
+                .map(entry -> new Exposure(entry.getKey(), entry.getValue().position.get(),
+                        entry.getValue().openBuy.get(), entry.getValue().openSell.get()))
+                .sorted(Comparator.comparing(Exposure::symbol))
+                .toList();
+    }
+
+    private void reserve(Order order, int quantity, boolean check) {
+        RiskLimits current = limits.get();
+        if (check) {
+            if (current.maxOrderQuantity() > 0 && order.quantity() > current.maxOrderQuantity()) {
+                throw new RiskLimitException("Order quantity exceeds %s".formatted(current.maxOrderQuantity()));
+            }
+            if (current.maxOrderNotional() > 0
+                    && (long) order.price() * order.quantity() > current.maxOrderNotional()) {
+                throw new RiskLimitException("Order notional exceeds %s".formatted(current.maxOrderNotional()));
+            }
+        }
+        if (order.owner() == null) {
+            return;
+        }
+        Counters counters = accounts.computeIfAbsent(order.owner(), owner -> new ConcurrentHashMap<>())
+                .computeIfAbsent(order.symbol(), symbol -> new Counters());
+        boolean buy = order.type() == Order.Type.BUY;
+        AtomicLong open = buy ? counters.openBuy : counters.openSell;
+        long maxPosition = check ? current.maxPosition() : 0;
+        while (true) {
+            long reserved = open.get();
+            long exposure = buy ? counters.position.get() + reserved + quantity
+                    : reserved + quantity - counters.position.get();
+            if (maxPosition > 0 && exposure > maxPosition) {
+                throw new RiskLimitException("Position of %s in %s would exceed %s"
+                        .formatted(order.owner(), order.symbol(), maxPosition));
+            }
+            if (open.compareAndSet(reserved, reserved + quantity)) {
+                return;
+            }
+        }
+    }
+
+    private Counters counters(Order order) {
+        if (order.owner() == null) {
+            return null;
+        }
+        Map<String, Counters> symbols = accounts.get(order.owner());
+        return symbols == null ? null : symbols.get(order.symbol());
+    }
+
+    /**
+     * Exposure counters of the account in one symbol.
+     */
+    private static class Counters {
+        private final AtomicLong position = new AtomicLong();
+        private final AtomicLong openBuy = new AtomicLong();
+        private final AtomicLong openSell = new AtomicLong();
+    }
+}
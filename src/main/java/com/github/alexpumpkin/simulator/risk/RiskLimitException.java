@@ -0,0 +1,11 @@
+package com.github.alexpumpkin.simulator.risk;
+
+/**
+ * New order is rejected by the pre-trade risk check.
+ */
+public class RiskLimitException extends RuntimeException {
+
+    public RiskLimitException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.alexpumpkin.simulator.risk;
+
+import javax.validation.constraints.PositiveOrZero;
+
+/**
+ * Pre-trade risk limits. 0 means no limit.
+ *
+ * @param maxOrderQuantity maximum quantity of one order
+ * @param maxOrderNotional maximum price multiplied by quantity of one order, market orders are not limited
+ * @param maxPosition      maximum position of one account (order owner) in one symbol, including the open quantity
+ *                         of its orders: position plus open buy quantity and open sell quantity minus position
+ */
+public record RiskLimits(@PositiveOrZero(message = "Max order quantity must not be negative")
+                         long maxOrderQuantity,
+                         @PositiveOrZero(message = "Max order notional must not be negative")
+                         long maxOrderNotional,
+                         @PositiveOrZero(message = "Max position must not be negative")
+                         long maxPosition) {
+
+    /**
+     * No limits.
+     */
+    public static final RiskLimits NONE = new RiskLimits(0, 0, 0);
+}
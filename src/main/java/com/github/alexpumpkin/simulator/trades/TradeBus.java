@@ -1,29 +1,198 @@
 package com.github.alexpumpkin.simulator.trades;
 
+import com.github.alexpumpkin.simulator.monitoring.TradePublishEvent;
+import com.github.alexpumpkin.simulator.replication.CommandJournal;
+import com.github.alexpumpkin.simulator.replication.JournalEntry;
 import com.github.alexpumpkin.simulator.trades.model.Trade;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Sinks;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 /**
  * Utility bus to propagate new trades.
+ * <br/>
+ * Trades are sequenced on publication: the sequence numbers are global, start from 1 and have no gaps. Last trades
+ * are kept in the bounded replay buffer, so a subscriber could resume from the sequence number.
+ * <br/>
+ * Only sequencing, journaling and the replay buffer are guarded by the lock. Sequenced trades are queued and emitted
+ * outside the lock in the order of the sequence numbers by one publishing thread at a time, other publishers leave
+ * their trades to it instead of waiting for slow subscribers.
  */
 public class TradeBus implements Consumer<Trade> {
+    private static final int DEFAULT_REPLAY_CAPACITY = 100_000;
 
     private final Sinks.Many<Trade> trades;
+    private final CommandJournal journal;
+    private final Trade[] replay;
+    // sequenced trades waiting for the emission, emitted by the thread which increments wip from 0
+    private final Queue<Trade> emitQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    // random per process, the low bits of the trade UUID are the sequence number
+    private final long uuidPrefix = UUID.randomUUID().getMostSignificantBits();
+    // changed under the lock only
+    private volatile long sequence;
 
     public TradeBus() {
-        trades = Sinks.many().multicast().onBackpressureBuffer();
+        this(new CommandJournal(false), DEFAULT_REPLAY_CAPACITY);
+    }
+
+    /**
+     * @param journal        journal of the published trades
+     * @param replayCapacity number of last trades to keep for the replay, 0 to disable the replay
+     */
+    public TradeBus(CommandJournal journal, int replayCapacity) {
+        if (replayCapacity < 0) {
+            throw new IllegalArgumentException("Replay capacity must not be negative: " + replayCapacity);
+        }
+        this.trades = Sinks.many().multicast().onBackpressureBuffer();
+        this.journal = journal;
+        this.replay = new Trade[replayCapacity];
     }
 
     @Override
     public void accept(Trade trade) {
-        trades.emitNext(trade, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+        publish(trade);
+    }
+
+    /**
+     * Sequence and publish the trade. Trades with the sequence number (replicated from the primary) keep it.
+     *
+     * @param trade trade to publish
+     * @return published trade with the sequence number
+     */
+    public Trade publish(Trade trade) {
+        TradePublishEvent event = new TradePublishEvent();
+        event.begin();
+        synchronized (this) {
+            trade = sequence(trade);
+        }
+        emit();
+        if (event.shouldCommit()) {
+            event.symbol = trade.symbol();
+            event.price = trade.price();
+            event.quantity = trade.quantity();
+            event.commit();
+        }
+        return trade;
+    }
+
+    /**
+     * Sequence and publish the trades as one batch: sequence numbers of the batch are consecutive, no other trades are
+     * published in between.
+     *
+     * @param batch trades to publish
+     * @return published trades with the sequence numbers
+     */
+    public List<Trade> publish(List<Trade> batch) {
+        List<Trade> published = new ArrayList<>(batch.size());
+        synchronized (this) {
+            for (Trade trade : batch) {
+                published.add(sequence(trade));
+            }
+        }
+        emit();
+        return published;
+    }
+
+    /**
+     * Sequence, journal and queue the trade for the emission. Should be called under the lock.
+     */
+    private Trade sequence(Trade trade) {
+        long next = trade.sequence() == 0 ? sequence + 1 : trade.sequence();
+        if (trade.sequence() == 0) {
+            trade = trade.withSequence(next, new UUID(uuidPrefix, next).toString());
+        }
+        // journaled and queued in the order of the sequence numbers
+        journal.append(new JournalEntry.Fill(trade));
+        if (replay.length > 0) {
+            replay[(int) (next % replay.length)] = trade;
+        }
+        emitQueue.offer(trade);
+        sequence = next;
+        return trade;
     }
 
+    /**
+     * Emit the queued trades unless another thread is emitting them, the trades queued meanwhile are emitted by
+     * that thread.
+     */
+    private void emit() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            Trade trade;
+            while ((trade = emitQueue.poll()) != null) {
+                trades.emitNext(trade, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * Get new trades.
+     *
+     * @return hot Flux of new trades
+     */
     public Flux<Trade> trades() {
         return trades.asFlux();
     }
+
+    /**
+     * Get number of last trades kept for the replay.
+     *
+     * @return capacity of the replay buffer
+     */
+    public int replayCapacity() {
+        return replay.length;
+    }
+
+    /**
+     * Get sequence number of the last published trade.
+     *
+     * @return sequence number or 0 if no trades were published
+     */
+    public long lastSequence() {
+        return sequence;
+    }
+
+    /**
+     * Get trades starting from the sequence number, followed by new trades. If the trades were evicted from the replay
+     * buffer, the Flux starts from the oldest kept trade and the subscriber sees the gap in the sequence numbers.
+     *
+     * @param fromSequence sequence number of the first trade
+     * @return trades from the replay buffer followed by new trades
+     */
+    public Flux<Trade> trades(long fromSequence) {
+        return Flux.defer(() -> {
+            Sinks.Many<Trade> live = Sinks.many().unicast().onBackpressureBuffer();
+            List<Trade> replayed;
+            long last;
+            Disposable subscription;
+            // no trades are sequenced while the buffer is copied and the live subscription is made, the trades which
+            // are sequenced before and still queued for the emission are replayed
+            synchronized (this) {
+                long from = Math.max(Math.max(fromSequence, 1), sequence - replay.length + 1);
+                replayed = new ArrayList<>((int) Math.max(sequence - from + 1, 0));
+                for (long i = from; i <= sequence; i++) {
+                    replayed.add(replay[(int) (i % replay.length)]);
+                }
+                last = sequence;
+                subscription = trades.asFlux().subscribe(live::tryEmitNext);
+            }
+            // the sink could emit trades published before the first subscription too
+            return Flux.concat(Flux.fromIterable(replayed), live.asFlux().filter(trade -> trade.sequence() > last))
+                    .doFinally(ignored -> subscription.dispose());
+        });
+    }
 }
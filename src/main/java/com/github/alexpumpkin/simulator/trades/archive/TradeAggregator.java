@@ -0,0 +1,39 @@
+package com.github.alexpumpkin.simulator.trades.archive;
+
+import java.time.Instant;
+
+/**
+ * Accumulator of {@link TradeSummary}. Trades and blocks should be added in the order of the sequence numbers.
+ */
+class TradeAggregator {
+    private long trades;
+    private long volume;
+    private long notional;
+    private int open;
+    private int high = Integer.MIN_VALUE;
+    private int low = Integer.MAX_VALUE;
+    private int close;
+
+    void add(int price, int quantity) {
+        add(1, price, price, price, price, quantity, (long) price * quantity);
+    }
+
+    void add(int count, int minPrice, int maxPrice, int firstPrice, int lastPrice, long volume, long notional) {
+        if (trades == 0) {
+            open = firstPrice;
+        }
+        trades += count;
+        this.volume += volume;
+        this.notional += notional;
+        high = Math.max(high, maxPrice);
+        low = Math.min(low, minPrice);
+        close = lastPrice;
+    }
+
+    TradeSummary toSummary(String symbol, Instant from, Instant to) {
+        if (trades == 0) {
+            return new TradeSummary(symbol, from, to, 0, 0, null, null, null, null, null);
+        }
+        return new TradeSummary(symbol, from, to, trades, volume, open, high, low, close, (double) notional / volume);
+    }
+}
@@ -0,0 +1,198 @@
+package com.github.alexpumpkin.simulator.trades.archive;
+
+import com.github.alexpumpkin.simulator.trades.model.Trade;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Read-only view of the trade archive written by {@link TradeArchiver}. The archive is a directory per symbol with a
+ * directory per day (UTC), the day directory contains immutable {@link TradeSegment} files named by the range of the
+ * segment ids they cover ("0000000001-0000000001.trd"). A merged segment covers the segments it was merged from, so
+ * the covered segments are skipped until they are deleted. The archive could be copied while it is written.
+ */
+@Slf4j
+public class TradeArchive {
+    static final String EXTENSION = ".trd";
+    private static final Pattern SEGMENT_NAME = Pattern.compile("(\\d{10})-(\\d{10})\\" + EXTENSION);
+    private static final Pattern SYMBOL = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]{0,63}");
+
+    private final Path directory;
+
+    /**
+     * @param directory root directory of the archive
+     */
+    public TradeArchive(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Get archived trades of the symbol.
+     *
+     * @param symbol order book's symbol
+     * @param from   start of the time range, inclusive
+     * @param to     end of the time range, exclusive
+     * @return trades in the order of the days and of the sequence numbers
+     */
+    public Flux<Trade> trades(String symbol, Instant from, Instant to) {
+        checkSymbol(symbol);
+        return Flux.fromStream(() -> days(symbol, from, to))
+                .concatMapIterable(day -> segments(symbol, day))
+                .concatMap(file -> Mono.fromCallable(() -> TradeSegment.open(file))
+                        .flatMapMany(segment -> Flux.range(0, segment.blocks())
+                                .concatMapIterable(block -> segment.trades(block, from, to))))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Aggregate archived trades of the symbol.
+     *
+     * @param symbol order book's symbol
+     * @param from   start of the time range, inclusive
+     * @param to     end of the time range, exclusive
+     * @return summary of the trades
+     */
+    public Mono<TradeSummary> summary(String symbol, Instant from, Instant to) {
+        checkSymbol(symbol);
+        return Mono.fromCallable(() -> {
+                    TradeAggregator aggregator = new TradeAggregator();
+                    days(symbol, from, to).forEach(day -> segments(symbol, day).forEach(file -> {
+                        try {
+                            TradeSegment segment = TradeSegment.open(file);
+                            for (int block = 0; block < segment.blocks(); block++) {
+                                segment.aggregate(block, from, to, aggregator);
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }));
+                    return aggregator.toSummary(symbol, from, to);
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Get segments of the day without the covered ones.
+     *
+     * @param symbol order book's symbol
+     * @param day    day (UTC)
+     * @return segment files in the order of the segment ids
+     */
+    List<Path> segments(String symbol, LocalDate day) {
+        return segments(dayDirectory(symbol, day)).stream()
+                .map(Segment::file)
+                .toList();
+    }
+
+    static List<Segment> segments(Path dayDirectory) {
+        if (!Files.isDirectory(dayDirectory)) {
+            return List.of();
+        }
+        List<Segment> all = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dayDirectory)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    all.add(new Segment(file, Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))));
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        all.sort(Comparator.comparingInt(Segment::first).thenComparing(Segment::last, Comparator.reverseOrder()));
+        List<Segment> segments = new ArrayList<>(all.size());
+        int covered = 0;
+        for (Segment segment : all) {
+            if (segment.last() > covered) {
+                segments.add(segment);
+                covered = segment.last();
+            }
+        }
+        return segments;
+    }
+
+    Path dayDirectory(String symbol, LocalDate day) {
+        return directory.resolve(symbol).resolve(day.toString());
+    }
+
+    Path directory() {
+        return directory;
+    }
+
+    /**
+     * Check if the trades of the symbol are archived: the symbol should be a valid file name.
+     *
+     * @param symbol order book's symbol
+     * @return true if the symbol is archived
+     */
+    public static boolean isArchived(String symbol) {
+        return symbol != null && SYMBOL.matcher(symbol).matches();
+    }
+
+    static LocalDate day(Instant instant) {
+        return LocalDate.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    static String segmentName(int first, int last) {
+        return "%010d-%010d%s".formatted(first, last, EXTENSION);
+    }
+
+    private static void checkSymbol(String symbol) {
+        if (!isArchived(symbol)) {
+            throw new IllegalArgumentException("Invalid symbol: " + symbol);
+        }
+    }
+
+    /**
+     * @return archived days of the symbol in the time range
+     */
+    private Stream<LocalDate> days(String symbol, Instant from, Instant to) {
+        Path symbolDirectory = directory.resolve(symbol);
+        if (!from.isBefore(to) || !Files.isDirectory(symbolDirectory)) {
+            return Stream.empty();
+        }
+        List<LocalDate> days = new ArrayList<>();
+        try (Stream<Path> files = Files.list(symbolDirectory)) {
+            files.forEach(file -> {
+                try {
+                    LocalDate day = LocalDate.parse(file.getFileName().toString());
+                    // days are compared as instants, the range could be outside of LocalDate
+                    Instant start = day.atStartOfDay(ZoneOffset.UTC).toInstant();
+                    if (start.isBefore(to) && start.plus(1, ChronoUnit.DAYS).isAfter(from)) {
+                        days.add(day);
+                    }
+                } catch (DateTimeParseException e) {
+                    log.debug("Unexpected file in the trade archive: {}", file);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return days.stream().sorted();
+    }
+
+    /**
+     * @param file  segment file
+     * @param first first segment id covered by the file
+     * @param last  last segment id covered by the file
+     */
+    record Segment(Path file, int first, int last) {
+    }
+}
@@ -0,0 +1,249 @@
+package com.github.alexpumpkin.simulator.trades.archive;
+
+import com.github.alexpumpkin.simulator.trades.TradeBus;
+import com.github.alexpumpkin.simulator.trades.model.Trade;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Subscriber of the {@link TradeBus}, writing the trades to the {@link TradeArchive}. Trades are buffered per symbol
+ * and written as a new segment when the buffer is full, when the day changes or every flush interval. Segments are
+ * written to a temporary file and atomically renamed, so the archive never contains partially written segments.
+ * <br/>
+ * Segments of the past days are merged into one segment per symbol and day on start and when the day changes.
+ * <br/>
+ * All files are written on one thread, so the matching engine is not blocked by the disk. On stop, the trades queued
+ * for the archiver thread are written before the last flush.
+ */
+@Slf4j
+public class TradeArchiver {
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+
+    private final TradeBus tradeBus;
+    private final TradeArchive archive;
+    private final int segmentSize;
+    private final Duration flushInterval;
+    private final Disposable.Composite subscriptions = Disposables.composite();
+    private final Sinks.Empty<Void> stop = Sinks.empty();
+    private final Sinks.Empty<Void> drained = Sinks.empty();
+    // accessed on the archiver thread only
+    private final Map<String, List<Trade>> buffers = new HashMap<>();
+    private final Map<Path, Integer> lastSegmentIds = new HashMap<>();
+    private LocalDate compacted;
+    private Scheduler scheduler;
+
+    /**
+     * @param tradeBus      bus of the trades to archive
+     * @param directory     root directory of the archive
+     * @param segmentSize   maximal number of trades to buffer per symbol before the segment is written
+     * @param flushInterval maximal time to buffer the trades
+     */
+    public TradeArchiver(TradeBus tradeBus, Path directory, int segmentSize, Duration flushInterval) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive: " + segmentSize);
+        }
+        this.tradeBus = tradeBus;
+        this.archive = new TradeArchive(directory);
+        this.segmentSize = segmentSize;
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * Create the archive directory, merge the segments of the past days and start the archiving of new trades.
+     */
+    public void start() {
+        try {
+            Files.createDirectories(archive.directory());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        scheduler = Schedulers.newSingle("trade-archive");
+        scheduler.schedule(this::compact);
+        // completed by the stop signal after the queued trades, so dispose() could wait for them
+        tradeBus.trades()
+                .takeUntilOther(stop.asMono())
+                .onBackpressureBuffer()
+                .publishOn(scheduler)
+                .doFinally(ignored -> drained.tryEmitEmpty())
+                .subscribe(this::add, e -> log.error("Trade archiving failed: ", e));
+        subscriptions.add(Flux.interval(flushInterval, scheduler)
+                .subscribe(ignored -> flush()));
+        log.info("Trades are archived to {}", archive.directory());
+    }
+
+    /**
+     * Stop the archiving and write the queued and buffered trades.
+     */
+    public void dispose() {
+        subscriptions.dispose();
+        if (scheduler != null) {
+            stop.tryEmitEmpty();
+            drained.asMono().block(Duration.ofSeconds(30));
+            Mono.fromRunnable(this::flush)
+                    .subscribeOn(scheduler)
+                    .block(Duration.ofSeconds(30));
+            scheduler.dispose();
+        }
+    }
+
+    private void add(Trade trade) {
+        if (!TradeArchive.isArchived(trade.symbol())) {
+            log.debug("Trade is not archived, symbol could not be a file name: {}", trade);
+            return;
+        }
+        List<Trade> buffer = buffers.computeIfAbsent(trade.symbol(), symbol -> new ArrayList<>());
+        if (!buffer.isEmpty() && !day(buffer.get(0)).equals(day(trade))) {
+            write(buffer);
+        }
+        buffer.add(trade);
+        if (buffer.size() >= segmentSize) {
+            write(buffer);
+        }
+    }
+
+    private void flush() {
+        buffers.values().forEach(this::write);
+        if (!TradeArchive.day(Instant.now()).equals(compacted)) {
+            compact();
+        }
+    }
+
+    private void write(List<Trade> buffer) {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        Trade first = buffer.get(0);
+        Path dayDirectory = archive.dayDirectory(first.symbol(), day(first));
+        try {
+            Files.createDirectories(dayDirectory);
+            int id = lastSegmentIds.computeIfAbsent(dayDirectory, TradeArchiver::lastSegmentId) + 1;
+            write(dayDirectory, TradeArchive.segmentName(id, id), first.symbol(), day(first), writer -> {
+                for (Trade trade : buffer) {
+                    writer.add(trade);
+                }
+            });
+            lastSegmentIds.put(dayDirectory, id);
+            log.debug("Archived {} trades of {} to {}", buffer.size(), first.symbol(), dayDirectory);
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Failed to archive {} trades of {}: ", buffer.size(), first.symbol(), e);
+        }
+        buffer.clear();
+    }
+
+    private static void write(Path dayDirectory, String name, String symbol, LocalDate day, SegmentContent content)
+            throws IOException {
+        Path temporary = dayDirectory.resolve(name + TEMPORARY_EXTENSION);
+        try {
+            try (TradeSegment.Writer writer = new TradeSegment.Writer(temporary, symbol, day)) {
+                content.write(writer);
+            }
+            Files.move(temporary, dayDirectory.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Merge segments of the past days into one segment per day. Covered segments are deleted after the merged segment
+     * is renamed, the readers skip them in between.
+     */
+    private void compact() {
+        LocalDate today = TradeArchive.day(Instant.now());
+        try (Stream<Path> symbols = Files.list(archive.directory())) {
+            for (Path symbolDirectory : symbols.filter(Files::isDirectory).toList()) {
+                try (Stream<Path> days = Files.list(symbolDirectory)) {
+                    for (Path dayDirectory : days.filter(Files::isDirectory).toList()) {
+                        LocalDate day = parseDay(dayDirectory);
+                        if (day != null && day.isBefore(today)) {
+                            compact(symbolDirectory.getFileName().toString(), day, dayDirectory);
+                        }
+                    }
+                }
+            }
+            compacted = today;
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Failed to compact trade archive: ", e);
+        }
+    }
+
+    private void compact(String symbol, LocalDate day, Path dayDirectory) throws IOException {
+        List<TradeArchive.Segment> segments = TradeArchive.segments(dayDirectory);
+        if (segments.size() < 2) {
+            return;
+        }
+        int first = segments.get(0).first();
+        int last = segments.get(segments.size() - 1).last();
+        int[] count = new int[1];
+        // merged block by block, the day is never loaded to the memory at once
+        write(dayDirectory, TradeArchive.segmentName(first, last), symbol, day, writer -> {
+            for (TradeArchive.Segment segment : segments) {
+                TradeSegment source = TradeSegment.open(segment.file());
+                for (int block = 0; block < source.blocks(); block++) {
+                    for (Trade trade : source.trades(block, Instant.MIN, Instant.MAX)) {
+                        writer.add(trade);
+                    }
+                }
+                count[0] += source.count();
+            }
+        });
+        try (Stream<Path> files = Files.list(dayDirectory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMPORARY_EXTENSION) || name.endsWith(TradeArchive.EXTENSION)
+                        && !name.equals(TradeArchive.segmentName(first, last))) {
+                    Files.delete(file);
+                }
+            }
+        }
+        lastSegmentIds.merge(dayDirectory, last, Math::max);
+        log.info("Merged {} segments of {} for {}: {} trades", segments.size(), symbol, day, count[0]);
+    }
+
+    private static int lastSegmentId(Path dayDirectory) {
+        return TradeArchive.segments(dayDirectory).stream()
+                .mapToInt(TradeArchive.Segment::last)
+                .max()
+                .orElse(0);
+    }
+
+    private static LocalDate parseDay(Path dayDirectory) {
+        try {
+            return LocalDate.parse(dayDirectory.getFileName().toString());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static LocalDate day(Trade trade) {
+        return TradeArchive.day(trade.timestamp());
+    }
+
+    /**
+     * Trades of the new segment.
+     */
+    @FunctionalInterface
+    private interface SegmentContent {
+        void write(TradeSegment.Writer writer) throws IOException;
+    }
+}
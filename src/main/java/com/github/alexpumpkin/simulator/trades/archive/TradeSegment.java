@@ -0,0 +1,452 @@
+package com.github.alexpumpkin.simulator.trades.archive;
+
+import com.github.alexpumpkin.simulator.trades.model.Trade;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Immutable columnar file of the trades of one symbol for one day (UTC). Layout (big-endian):
+ * <ul>
+ *     <li>header ({@value HEADER_LENGTH} bytes): magic "TRDA" (4), version (2), reserved (2), number of trades (4),
+ *     number of blocks (4), epoch day (8), dictionary offset (8), block index offset (8), reserved (8);</li>
+ *     <li>blocks of up to {@value BLOCK_SIZE} trades, one column after another: sequence number, timestamp in
+ *     nanoseconds and price (the first value, then zigzag varint deltas), quantity (varint), sell and buy order ids
+ *     (varint indexes in the dictionary);</li>
+ *     <li>dictionary: symbol, number of order ids, order ids (every string is its length (2) and UTF-8 bytes);</li>
+ *     <li>block index ({@value INDEX_ENTRY_LENGTH} bytes per block): offset (8), number of trades (4), trade UUID
+ *     prefix (8), min and max timestamp (8 + 8), min, max, first and last price (4 * 4), volume (8), notional (8),
+ *     offsets of the columns in the block (6 * 4).</li>
+ * </ul>
+ * Trade UUIDs are restored from the sequence numbers and the prefix, as
+ * {@link com.github.alexpumpkin.simulator.trades.TradeBus} assigns them.
+ * <br/>
+ * The reader maps the file and decodes only the blocks and the columns the query needs: blocks outside of the time
+ * range are skipped by the index, aggregations of the blocks inside of the range are read from the index.
+ */
+public class TradeSegment {
+    public static final int BLOCK_SIZE = 1024;
+    static final int MAGIC = 0x54524441;
+    static final short VERSION = 1;
+    static final int HEADER_LENGTH = 48;
+    static final int INDEX_ENTRY_LENGTH = 92;
+    private static final int COLUMNS = 6;
+    private static final int SEQUENCE = 0;
+    private static final int TIMESTAMP = 1;
+    private static final int PRICE = 2;
+    private static final int QUANTITY = 3;
+    private static final int SELL = 4;
+    private static final int BUY = 5;
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int blocks;
+    private final LocalDate day;
+    private final long dictionaryOffset;
+    private final long indexOffset;
+    private final String symbol;
+    private String[] dictionary;
+
+    private TradeSegment(Path file, ByteBuffer buffer) {
+        if (buffer.limit() < HEADER_LENGTH || buffer.getInt(0) != MAGIC) {
+            throw new IllegalStateException("Not a trade segment: " + file);
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new IllegalStateException("Unsupported version %s of the trade segment: %s"
+                    .formatted(buffer.getShort(4), file));
+        }
+        this.buffer = buffer;
+        this.count = buffer.getInt(8);
+        this.blocks = buffer.getInt(12);
+        this.day = LocalDate.ofEpochDay(buffer.getLong(16));
+        this.dictionaryOffset = buffer.getLong(24);
+        this.indexOffset = buffer.getLong(32);
+        this.symbol = readString(buffer.duplicate().position((int) dictionaryOffset));
+    }
+
+    /**
+     * Map the segment file to the memory.
+     *
+     * @param file segment file
+     * @return mapped segment
+     * @throws IOException if the file could not be read
+     */
+    public static TradeSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new TradeSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public String symbol() {
+        return symbol;
+    }
+
+    public LocalDate day() {
+        return day;
+    }
+
+    /**
+     * @return number of trades
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @return number of blocks
+     */
+    public int blocks() {
+        return blocks;
+    }
+
+    /**
+     * Decode trades of the block in the time range.
+     *
+     * @param block number of the block
+     * @param from  start of the time range, inclusive
+     * @param to    end of the time range, exclusive
+     * @return trades in the order of the sequence numbers
+     */
+    public List<Trade> trades(int block, Instant from, Instant to) {
+        long fromNanos = nanos(from);
+        long toNanos = nanos(to);
+        int entry = entry(block);
+        if (!overlaps(entry, fromNanos, toNanos)) {
+            return List.of();
+        }
+        int n = buffer.getInt(entry + 8);
+        long uuidPrefix = buffer.getLong(entry + 12);
+        long[] sequences = readDeltas(column(entry, SEQUENCE), n, true);
+        long[] timestamps = readDeltas(column(entry, TIMESTAMP), n, true);
+        long[] prices = readDeltas(column(entry, PRICE), n, false);
+        long[] quantities = readVarLongs(column(entry, QUANTITY), n);
+        long[] sells = readVarLongs(column(entry, SELL), n);
+        long[] buys = readVarLongs(column(entry, BUY), n);
+        String[] ids = dictionary();
+        List<Trade> trades = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (timestamps[i] >= fromNanos && timestamps[i] < toNanos) {
+                trades.add(new Trade(uuidPrefix == 0 ? null : new UUID(uuidPrefix, sequences[i]).toString(),
+                        symbol, (int) prices[i], (int) quantities[i], ids[(int) sells[i]], ids[(int) buys[i]],
+                        instant(timestamps[i]), sequences[i]));
+            }
+        }
+        return trades;
+    }
+
+    /**
+     * Add the trades of the block in the time range to the aggregation. Blocks which are completely inside of the
+     * range are aggregated by the index, otherwise only timestamps, prices and quantities are decoded.
+     */
+    void aggregate(int block, Instant from, Instant to, TradeAggregator aggregator) {
+        long fromNanos = nanos(from);
+        long toNanos = nanos(to);
+        int entry = entry(block);
+        if (!overlaps(entry, fromNanos, toNanos)) {
+            return;
+        }
+        int n = buffer.getInt(entry + 8);
+        if (buffer.getLong(entry + 20) >= fromNanos && buffer.getLong(entry + 28) < toNanos) {
+            aggregator.add(n, buffer.getInt(entry + 36), buffer.getInt(entry + 40), buffer.getInt(entry + 44),
+                    buffer.getInt(entry + 48), buffer.getLong(entry + 52), buffer.getLong(entry + 60));
+            return;
+        }
+        long[] timestamps = readDeltas(column(entry, TIMESTAMP), n, true);
+        long[] prices = readDeltas(column(entry, PRICE), n, false);
+        long[] quantities = readVarLongs(column(entry, QUANTITY), n);
+        for (int i = 0; i < n; i++) {
+            if (timestamps[i] >= fromNanos && timestamps[i] < toNanos) {
+                aggregator.add((int) prices[i], (int) quantities[i]);
+            }
+        }
+    }
+
+    private int entry(int block) {
+        return (int) (indexOffset + (long) block * INDEX_ENTRY_LENGTH);
+    }
+
+    private boolean overlaps(int entry, long fromNanos, long toNanos) {
+        return buffer.getLong(entry + 28) >= fromNanos && buffer.getLong(entry + 20) < toNanos;
+    }
+
+    private ByteBuffer column(int entry, int column) {
+        return buffer.duplicate().position((int) buffer.getLong(entry) + buffer.getInt(entry + 68 + column * 4));
+    }
+
+    private String[] dictionary() {
+        if (dictionary == null) {
+            ByteBuffer input = buffer.duplicate().position((int) dictionaryOffset);
+            readString(input);
+            String[] ids = new String[input.getInt()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = readString(input);
+            }
+            dictionary = ids;
+        }
+        return dictionary;
+    }
+
+    /**
+     * @return nanoseconds since the epoch, saturated outside of the long range (years 1677-2262)
+     */
+    static long nanos(Instant instant) {
+        try {
+            return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+        } catch (ArithmeticException e) {
+            return instant.getEpochSecond() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    private static Instant instant(long nanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L), Math.floorMod(nanos, 1_000_000_000L));
+    }
+
+    private static long[] readDeltas(ByteBuffer input, int n, boolean wide) {
+        long[] values = new long[n];
+        long value = wide ? input.getLong() : input.getInt();
+        values[0] = value;
+        for (int i = 1; i < n; i++) {
+            long zigzag = readVarLong(input);
+            value += (zigzag >>> 1) ^ -(zigzag & 1);
+            values[i] = value;
+        }
+        return values;
+    }
+
+    private static long[] readVarLongs(ByteBuffer input, int n) {
+        long[] values = new long[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = readVarLong(input);
+        }
+        return values;
+    }
+
+    private static long readVarLong(ByteBuffer input) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = input.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static String readString(ByteBuffer input) {
+        byte[] bytes = new byte[input.getShort() & 0xFFFF];
+        input.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writer of the new segment file. Blocks are appended as they are filled, the dictionary, the block index and the
+     * header are written on close, so the file should be moved to its final name only after close.
+     */
+    public static class Writer implements Closeable {
+        private final FileChannel channel;
+        private final String symbol;
+        private final LocalDate day;
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final List<String> ids = new ArrayList<>();
+        private final List<Trade> block = new ArrayList<>(BLOCK_SIZE);
+        private final ByteBuf buffer = Unpooled.buffer();
+        private final ByteBuf index = Unpooled.buffer();
+        private long position = HEADER_LENGTH;
+        private int count;
+        private int blocks;
+
+        /**
+         * @param file   new file to write
+         * @param symbol symbol of the trades
+         * @param day    day (UTC) of the trades
+         * @throws IOException if the file could not be created
+         */
+        public Writer(Path file, String symbol, LocalDate day) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            this.symbol = symbol;
+            this.day = day;
+        }
+
+        /**
+         * Append the trade.
+         *
+         * @param trade trade of the segment's symbol and day
+         * @throws IOException if the block could not be written
+         */
+        public void add(Trade trade) throws IOException {
+            if (!block.isEmpty() && uuidPrefix(block.get(0)) != uuidPrefix(trade)) {
+                // trades of another process (restart or promoted replica) start the new block
+                writeBlock();
+            }
+            block.add(trade);
+            if (block.size() == BLOCK_SIZE) {
+                writeBlock();
+            }
+        }
+
+        /**
+         * Write the last block, the dictionary, the block index and the header.
+         *
+         * @throws IOException if the file could not be written
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                writeBlock();
+                long dictionaryOffset = position;
+                buffer.clear();
+                writeString(buffer, symbol);
+                buffer.writeInt(ids.size());
+                ids.forEach(id -> writeString(buffer, id));
+                write(buffer);
+                long indexOffset = position;
+                write(index);
+                buffer.clear()
+                        .writeInt(MAGIC)
+                        .writeShort(VERSION)
+                        .writeShort(0)
+                        .writeInt(count)
+                        .writeInt(blocks)
+                        .writeLong(day.toEpochDay())
+                        .writeLong(dictionaryOffset)
+                        .writeLong(indexOffset)
+                        .writeLong(0);
+                channel.write(buffer.nioBuffer(), 0);
+                channel.force(true);
+            } finally {
+                channel.close();
+                buffer.release();
+                index.release();
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            int n = block.size();
+            if (n == 0) {
+                return;
+            }
+            long[] timestamps = new long[n];
+            int minPrice = Integer.MAX_VALUE;
+            int maxPrice = Integer.MIN_VALUE;
+            long volume = 0;
+            long notional = 0;
+            for (int i = 0; i < n; i++) {
+                Trade trade = block.get(i);
+                timestamps[i] = nanos(trade.timestamp());
+                minPrice = Math.min(minPrice, trade.price());
+                maxPrice = Math.max(maxPrice, trade.price());
+                volume += trade.quantity();
+                notional += (long) trade.price() * trade.quantity();
+            }
+
+            int[] columns = new int[COLUMNS];
+            buffer.clear();
+            columns[SEQUENCE] = buffer.writerIndex();
+            writeDeltas(buffer, block.stream().mapToLong(Trade::sequence).toArray(), true);
+            columns[TIMESTAMP] = buffer.writerIndex();
+            writeDeltas(buffer, timestamps, true);
+            columns[PRICE] = buffer.writerIndex();
+            writeDeltas(buffer, block.stream().mapToLong(Trade::price).toArray(), false);
+            columns[QUANTITY] = buffer.writerIndex();
+            block.forEach(trade -> writeVarLong(buffer, trade.quantity()));
+            columns[SELL] = buffer.writerIndex();
+            block.forEach(trade -> writeVarLong(buffer, id(trade.sellOrderUuid())));
+            columns[BUY] = buffer.writerIndex();
+            block.forEach(trade -> writeVarLong(buffer, id(trade.buyOrderUuid())));
+
+            index.writeLong(position)
+                    .writeInt(n)
+                    .writeLong(uuidPrefix(block.get(0)))
+                    .writeLong(min(timestamps))
+                    .writeLong(max(timestamps))
+                    .writeInt(minPrice)
+                    .writeInt(maxPrice)
+                    .writeInt(block.get(0).price())
+                    .writeInt(block.get(n - 1).price())
+                    .writeLong(volume)
+                    .writeLong(notional);
+            for (int column : columns) {
+                index.writeInt(column);
+            }
+            write(buffer);
+            count += n;
+            blocks++;
+            block.clear();
+        }
+
+        private int id(String uuid) {
+            return dictionary.computeIfAbsent(uuid, key -> {
+                ids.add(key);
+                return ids.size() - 1;
+            });
+        }
+
+        private void write(ByteBuf data) throws IOException {
+            ByteBuffer nioBuffer = data.nioBuffer();
+            while (nioBuffer.hasRemaining()) {
+                position += channel.write(nioBuffer, position);
+            }
+        }
+
+        private static long uuidPrefix(Trade trade) {
+            return trade.uuid() == null ? 0 : UUID.fromString(trade.uuid()).getMostSignificantBits();
+        }
+
+        private static long min(long[] values) {
+            long min = Long.MAX_VALUE;
+            for (long value : values) {
+                min = Math.min(min, value);
+            }
+            return min;
+        }
+
+        private static long max(long[] values) {
+            long max = Long.MIN_VALUE;
+            for (long value : values) {
+                max = Math.max(max, value);
+            }
+            return max;
+        }
+
+        private static void writeDeltas(ByteBuf output, long[] values, boolean wide) {
+            if (wide) {
+                output.writeLong(values[0]);
+            } else {
+                output.writeInt((int) values[0]);
+            }
+            for (int i = 1; i < values.length; i++) {
+                long delta = values[i] - values[i - 1];
+                writeVarLong(output, (delta << 1) ^ (delta >> 63));
+            }
+        }
+
+        private static void writeVarLong(ByteBuf output, long value) {
+            while ((value & ~0x7FL) != 0) {
+                output.writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            output.writeByte((int) value);
+        }
+
+        private static void writeString(ByteBuf output, String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            output.writeShort(bytes.length);
+            output.writeBytes(bytes);
+        }
+    }
+}
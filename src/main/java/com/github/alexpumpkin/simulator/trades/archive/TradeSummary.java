@@ -0,0 +1,30 @@
+package com.github.alexpumpkin.simulator.trades.archive;
+
+import java.time.Instant;
+
+/**
+ * Aggregation of the archived trades of one symbol in the time range. Open and close are the prices of the first and
+ * the last trade by sequence number. Prices are null if there were no trades.
+ *
+ * @param symbol order book's symbol
+ * @param from   start of the time range, inclusive
+ * @param to     end of the time range, exclusive
+ * @param trades number of trades
+ * @param volume traded quantity
+ * @param open   price of the first trade
+ * @param high   highest price
+ * @param low    lowest price
+ * @param close  price of the last trade
+ * @param vwap   volume weighted average price
+ */
+public record TradeSummary(String symbol,
+                           Instant from,
+                           Instant to,
+                           long trades,
+                           long volume,
+                           Integer open,
+                           Integer high,
+                           Integer low,
+                           Integer close,
+                           Double vwap) {
+}
@@ -1,18 +1,18 @@
 package com.github.alexpumpkin.simulator.trades.model;
 
 import java.time.Instant;
-import java.util.UUID;
 
 /**
  * Trade abstraction
  *
- * @param uuid          universal unique identifier of the trade
+ * @param uuid          universal unique identifier of the trade, assigned with the sequence number
  * @param symbol        order book's symbol (for example GOOG for Google)
  * @param price         price of the trade
  * @param quantity      quantity of the trade
  * @param sellOrderUuid selling order uuid
  * @param buyOrderUuid  buying order uuid
  * @param timestamp     timestamp when the trade was executed
+ * @param sequence      sequence number of the trade, assigned when the trade is published, 0 before
  */
 public record Trade(String uuid,
                     String symbol,
@@ -20,9 +20,21 @@ public record Trade(String uuid,
                     Integer quantity,
                     String sellOrderUuid,
                     String buyOrderUuid,
-                    Instant timestamp) {
+                    Instant timestamp,
+                    long sequence) {
 
     public Trade(String symbol, Integer price, Integer quantity, String sellUuid, String buyUuid) {
-        this(UUID.randomUUID().toString(), symbol, price, quantity, sellUuid, buyUuid, Instant.now());
+        this(null, symbol, price, quantity, sellUuid, buyUuid, Instant.now(), 0);
+    }
+
+    /**
+     * Create the trade with given sequence number.
+     *
+     * @param sequence sequence number
+     * @param uuid     universal unique identifier
+     * @return sequenced trade
+     */
+    public Trade withSequence(long sequence, String uuid) {
+        return new Trade(uuid, symbol, price, quantity, sellOrderUuid, buyOrderUuid, timestamp, sequence);
     }
 }
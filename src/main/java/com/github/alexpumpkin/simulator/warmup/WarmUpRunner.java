@@ -0,0 +1,145 @@
+package com.github.alexpumpkin.simulator.warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.alexpumpkin.simulator.gateway.codec.OrderJsonDecoder;
+import com.github.alexpumpkin.simulator.matching.MatchingEngine;
+import com.github.alexpumpkin.simulator.model.AddOrderDTO;
+import com.github.alexpumpkin.simulator.model.AmendOrderDTO;
+import com.github.alexpumpkin.simulator.model.Order;
+import com.github.alexpumpkin.simulator.orders.services.OrderBooksHolder;
+import com.github.alexpumpkin.simulator.orders.services.OrdersServiceImpl;
+import com.github.alexpumpkin.simulator.trades.TradeBus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.io.UncheckedIOException;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * JIT warm-up before the application is ready. Application runners are called before the application starts
+ * accepting traffic (see {@link org.springframework.boot.availability.ReadinessState}), so the readiness is reported
+ * after the warm-up.
+ * <br/>
+ * Synthetic orders are decoded from JSON, added, amended, cancelled and matched by an isolated matching engine, which
+ * is driven in the calling thread. Every tenth order is the IOC order executed right away. The warm-up stops when the
+ * JIT compilation time stops growing or after the max duration. Orders and trades of the warm-up are not visible to
+ * the application.
+ */
+@Slf4j
+public class WarmUpRunner implements ApplicationRunner {
+    private static final int ORDERS_PER_ROUND = 2000;
+    private static final int SYMBOLS = 8;
+    private static final int MIN_ROUNDS = 10;
+    private static final int STABLE_ROUNDS = 3;
+    private static final long STABLE_COMPILATION_MILLIS = 5;
+
+    private final ObjectMapper objectMapper;
+    private final ConfigurableApplicationContext context;
+    private final Duration maxDuration;
+    private final boolean exit;
+
+    /**
+     * @param objectMapper object mapper of the application
+     * @param context      application context, closed after the warm-up if "exit" is set
+     * @param maxDuration  max duration of the warm-up
+     * @param exit         exit after the warm-up, used for the training run of the class data sharing archive
+     */
+    public WarmUpRunner(ObjectMapper objectMapper, ConfigurableApplicationContext context, Duration maxDuration,
+                        boolean exit) {
+        this.objectMapper = objectMapper;
+        this.context = context;
+        this.maxDuration = maxDuration;
+        this.exit = exit;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        warmUp();
+        if (exit) {
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+    private void warmUp() {
+        OrderBooksHolder orderBooksHolder = new OrderBooksHolder();
+        OrdersServiceImpl ordersService = new OrdersServiceImpl(orderBooksHolder);
+        TradeBus tradeBus = new TradeBus();
+        MatchingEngine matchingEngine = new MatchingEngine(ordersService, orderBooksHolder, tradeBus);
+        matchingEngine.pause();
+        OrderJsonDecoder orderJsonDecoder = new OrderJsonDecoder(objectMapper.getFactory());
+        // trades are written as by the /trades handler
+        Disposable trades = tradeBus.trades().subscribe(this::writeValueAsBytes);
+
+        CompilationMXBean compilation = ManagementFactory.getCompilationMXBean();
+        boolean monitored = compilation != null && compilation.isCompilationTimeMonitoringSupported();
+        long compilationTime = monitored ? compilation.getTotalCompilationTime() : 0;
+        long start = System.nanoTime();
+        long deadline = start + maxDuration.toNanos();
+        Random random = new Random(0);
+        int rounds = 0;
+        int stableRounds = 0;
+        try {
+            while (System.nanoTime() < deadline && (rounds < MIN_ROUNDS || stableRounds < STABLE_ROUNDS)) {
+                round(rounds++, random, ordersService, matchingEngine, orderJsonDecoder);
+                matchingEngine.runPass();
+                if (monitored) {
+                    long current = compilation.getTotalCompilationTime();
+                    stableRounds = current - compilationTime < STABLE_COMPILATION_MILLIS ? stableRounds + 1 : 0;
+                    compilationTime = current;
+                }
+            }
+        } finally {
+            trades.dispose();
+            matchingEngine.dispose();
+        }
+        log.info("Warm-up finished: {} orders in {} ms, JIT compilation time {} ms",
+                rounds * ORDERS_PER_ROUND, Duration.ofNanos(System.nanoTime() - start).toMillis(),
+                monitored ? compilationTime : "n/a");
+    }
+
+    private void round(int round, Random random, OrdersServiceImpl ordersService, MatchingEngine matchingEngine,
+                       OrderJsonDecoder orderJsonDecoder) {
+        for (int i = 0; i < ORDERS_PER_ROUND; i++) {
+            String uuid = "warm-up-%s-%s".formatted(round, i);
+            AddOrderDTO dto = new AddOrderDTO("WARMUP" + random.nextInt(SYMBOLS), 1 + random.nextInt(100),
+                    95 + random.nextInt(11), uuid, "warm-up",
+                    i % 10 == 2 ? Order.TimeInForce.IOC : Order.TimeInForce.GTC);
+            Order.Type type = random.nextBoolean() ? Order.Type.BUY : Order.Type.SELL;
+            orderJsonDecoder.decode(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(writeValueAsBytes(dto))),
+                            type)
+                    .flatMap(order -> order.resting() ? ordersService.add(order) : matchingEngine.execute(order))
+                    .map(this::writeValueAsBytes)
+                    .block();
+            try {
+                switch (i % 10) {
+                    case 0 -> ordersService.cancel(uuid).block();
+                    case 1 -> ordersService.amend(uuid, new AmendOrderDTO(dto.quantity() + 1, dto.price() - 1))
+                            .block();
+                    default -> {
+                    }
+                }
+            } catch (ResponseStatusException e) {
+                // expected for the executed orders
+            }
+        }
+    }
+
+    private byte[] writeValueAsBytes(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
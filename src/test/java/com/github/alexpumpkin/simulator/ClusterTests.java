@@ -0,0 +1,312 @@
+package com.github.alexpumpkin.simulator;
+
+import com.github.alexpumpkin.simulator.cluster.ClusterRouter;
+import com.github.alexpumpkin.simulator.gateway.handlers.ClusterGatewayHandler;
+import com.github.alexpumpkin.simulator.model.AddOrderDTO;
+import com.github.alexpumpkin.simulator.model.Order;
+import com.github.alexpumpkin.simulator.risk.RiskLimits;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two engine nodes behind the cluster gateway on localhost.
+ */
+class ClusterTests {
+    private static final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    private static List<String> nodes;
+    private static ClusterRouter clusterRouter;
+    private static int gatewayPort;
+    private static int brokenGatewayPort;
+
+    @BeforeAll
+    static void startCluster() {
+        nodes = IntStream.range(0, 2)
+                // nodes are started with the production routes
+                .mapToObj(i -> "http://localhost:" + port(start("server.port=0")))
+                .toList();
+        clusterRouter = new ClusterRouter(nodes, 1);
+        gatewayPort = port(start("spring.profiles.active=gateway", "server.port=0",
+                "simulator.cluster.nodes=" + String.join(",", nodes)));
+        // the second node of this gateway is not reachable
+        brokenGatewayPort = port(start("spring.profiles.active=gateway", "server.port=0",
+                "simulator.cluster.nodes=" + nodes.get(0) + ",http://127.0.0.1:1"));
+    }
+
+    @AfterAll
+    static void stopCluster() {
+        contexts.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void testRouting() {
+        String symbol = symbolOf(nodes.get(1));
+        String uuid = "id_cluster_route";
+        WebTestClient gateway = client("http://localhost:" + gatewayPort);
+        gateway.post()
+                .uri("/orders/buy")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new AddOrderDTO(symbol, 10, 10, uuid))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().valueEquals("location", "http://localhost:%s/orders/%s".formatted(gatewayPort, uuid));
+
+        client(nodes.get(1)).get().uri("/orders/{uuid}", uuid).exchange().expectStatus().isOk();
+        client(nodes.get(0)).get().uri("/orders/{uuid}", uuid).exchange().expectStatus().isNotFound();
+
+        gateway.delete().uri("/orders/{uuid}", uuid).exchange().expectStatus().isOk();
+        gateway.get()
+                .uri("/orders/{uuid}", uuid)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("state").isEqualTo("CANCELLED");
+    }
+
+    @Test
+    void testCancelByOwner() {
+        WebTestClient gateway = client("http://localhost:" + gatewayPort);
+        for (int i = 0; i < nodes.size(); i++) {
+            gateway.post()
+                    .uri("/orders/sell")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new AddOrderDTO(symbolOf(nodes.get(i)), 10, 1000, "id_cluster_owner_" + i,
+                            "owner_cluster"))
+                    .exchange()
+                    .expectStatus().isCreated();
+        }
+        String[] cancelled = gateway.delete()
+                .uri("/orders/owners/{owner}", "owner_cluster")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String[].class)
+                .returnResult()
+                .getResponseBody();
+        assertEquals(Set.of("id_cluster_owner_0", "id_cluster_owner_1"), Set.of(cancelled));
+    }
+
+    @Test
+    void testCancelByOwnerWithFailedNode() {
+        client(nodes.get(0)).post()
+                .uri("/orders/sell")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new AddOrderDTO(symbolOf(nodes.get(0)), 10, 1000, "id_cluster_partial", "owner_partial"))
+                .exchange()
+                .expectStatus().isCreated();
+
+        String[] cancelled = client("http://localhost:" + brokenGatewayPort).delete()
+                .uri("/orders/owners/{owner}", "owner_partial")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.BAD_GATEWAY)
+                .expectHeader().valueEquals(ClusterGatewayHandler.FAILED_NODES_HEADER, "http://127.0.0.1:1")
+                .expectBody(String[].class)
+                .returnResult()
+                .getResponseBody();
+        assertEquals(Set.of("id_cluster_partial"), Set.of(cancelled));
+    }
+
+    @Test
+    void testOpenOrdersByOwner() {
+        WebTestClient gateway = client("http://localhost:" + gatewayPort);
+        for (int i = 0; i < 4; i++) {
+            gateway.post()
+                    .uri("/orders/buy")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new AddOrderDTO(symbolOf(nodes.get(i % nodes.size())), 10, 1, "id_cluster_open_" + i,
+                            "owner_open"))
+                    .exchange()
+                    .expectStatus().isCreated();
+        }
+
+        assertEquals(List.of("id_cluster_open_0", "id_cluster_open_1", "id_cluster_open_2"),
+                openOrders(gateway, "/orders?owner=owner_open&limit=3"));
+        assertEquals(List.of("id_cluster_open_3"),
+                openOrders(gateway, "/orders?owner=owner_open&after=id_cluster_open_2"));
+        assertEquals(List.of("id_cluster_open_1", "id_cluster_open_3"),
+                openOrders(gateway, "/orders?owner=owner_open&symbol=" + symbolOf(nodes.get(1))));
+    }
+
+    @Test
+    void testLimitsOfAllNodes() {
+        WebTestClient gateway = client("http://localhost:" + gatewayPort);
+        try {
+            gateway.put()
+                    .uri("/risk/limits")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new RiskLimits(5000, 0, 0))
+                    .exchange()
+                    .expectStatus().isOk();
+            nodes.forEach(node -> client(node).get()
+                    .uri("/risk/limits")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(RiskLimits.class)
+                    .isEqualTo(new RiskLimits(5000, 0, 0)));
+            gateway.get()
+                    .uri("/capacity")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.length()").isEqualTo(nodes.size());
+        } finally {
+            gateway.put()
+                    .uri("/risk/limits")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(RiskLimits.NONE)
+                    .exchange()
+                    .expectStatus().isOk();
+        }
+    }
+
+    @Test
+    void testOrderEvents() {
+        WebTestClient gateway = client("http://localhost:" + gatewayPort);
+        List<String> events = new CopyOnWriteArrayList<>();
+        new ReactorNettyWebSocketClient().execute(
+                        URI.create("ws://localhost:%s/orders/events?owner=owner_events".formatted(gatewayPort)),
+                        session -> session.receive()
+                                .map(WebSocketMessage::getPayloadAsText)
+                                .doOnNext(events::add)
+                                .then())
+                .subscribe();
+        Mono.delay(Duration.ofMillis(500)).block();
+
+        for (int i = 0; i < nodes.size(); i++) {
+            gateway.post()
+                    .uri("/orders/sell")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new AddOrderDTO(symbolOf(nodes.get(i)), 10, 1000, "id_cluster_events_" + i,
+                            "owner_events"))
+                    .exchange()
+                    .expectStatus().isCreated();
+        }
+        gateway.delete()
+                .uri("/orders/owners/{owner}", "owner_events")
+                .exchange()
+                .expectStatus().isOk();
+        Mono.delay(Duration.ofMillis(500)).block();
+
+        for (int i = 0; i < nodes.size(); i++) {
+            String uuid = "id_cluster_events_" + i;
+            assertTrue(events.stream().anyMatch(event -> event.contains("\"" + uuid + "\"")
+                    && event.contains(Order.State.CANCELLED.name())), uuid);
+        }
+    }
+
+    @Test
+    void testAuction() {
+        String symbol = symbolOf(nodes.get(1));
+        client("http://localhost:" + gatewayPort).post()
+                .uri("/orders/symbols/{symbol}/auction", symbol)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("symbol").isEqualTo(symbol);
+    }
+
+    @Test
+    void testDirectoryEviction() {
+        ClusterRouter router = new ClusterRouter(nodes, 1);
+        router.register("id_cluster_directory_1", nodes.get(0));
+        router.register("id_cluster_directory_2", nodes.get(1));
+        assertTrue(router.nodeForOrder("id_cluster_directory_1").isEmpty());
+        assertEquals(nodes.get(1), router.nodeForOrder("id_cluster_directory_2").orElseThrow());
+        router.unregister("id_cluster_directory_2");
+        assertTrue(router.nodeForOrder("id_cluster_directory_2").isEmpty());
+    }
+
+    @Test
+    void testTrades() {
+        WebTestClient gateway = client("http://localhost:" + gatewayPort);
+        List<String> symbols = nodes.stream().map(ClusterTests::symbolOf).map(symbol -> symbol + "T").toList();
+        List<String> trades = new CopyOnWriteArrayList<>();
+        new ReactorNettyWebSocketClient().execute(URI.create("ws://localhost:%s/trades".formatted(gatewayPort)),
+                        session -> session.receive()
+                                .map(WebSocketMessage::getPayloadAsText)
+                                .doOnNext(trades::add)
+                                .then())
+                .subscribe();
+        Mono.delay(Duration.ofMillis(500)).block();
+
+        symbols.forEach(symbol -> {
+            gateway.post()
+                    .uri("/orders/sell")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new AddOrderDTO(symbol, 10, 10, symbol + "_sell"))
+                    .exchange()
+                    .expectStatus().isCreated();
+            gateway.post()
+                    .uri("/orders/buy")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new AddOrderDTO(symbol, 10, 10, symbol + "_buy"))
+                    .exchange()
+                    .expectStatus().isCreated();
+        });
+        Mono.delay(Duration.ofMillis(2500)).block();
+
+        assertEquals(symbols.size(), trades.size());
+        symbols.forEach(symbol -> assertTrue(trades.stream().anyMatch(trade -> trade.contains("\"" + symbol + "\"")),
+                symbol));
+    }
+
+    /**
+     * Find a symbol, which is routed to the node. Symbols with the "T" suffix are routed by their own hash, so they
+     * are checked again.
+     */
+    private static String symbolOf(String node) {
+        return IntStream.range(0, 1000)
+                .mapToObj(i -> "C" + i)
+                .filter(symbol -> clusterRouter.nodeForSymbol(symbol).equals(node)
+                        && clusterRouter.nodeForSymbol(symbol + "T").equals(node))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static List<String> openOrders(WebTestClient client, String uri) {
+        Order[] orders = client.get()
+                .uri(uri)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Order[].class)
+                .returnResult()
+                .getResponseBody();
+        //noinspection ConstantConditions
+        return Arrays.stream(orders).map(Order::uuid).toList();
+    }
+
+    private static ConfigurableApplicationContext start(String... properties) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(SimulatorApplication.class)
+                .properties(properties)
+                .run();
+        contexts.add(context);
+        return context;
+    }
+
+    private static int port(ConfigurableApplicationContext context) {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    private static WebTestClient client(String baseUrl) {
+        return WebTestClient.bindToServer().baseUrl(baseUrl).build();
+    }
+}
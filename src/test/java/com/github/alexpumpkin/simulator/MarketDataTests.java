@@ -0,0 +1,171 @@
+package com.github.alexpumpkin.simulator;
+
+import com.github.alexpumpkin.simulator.gateway.marketdata.MarketDataCodec;
+import com.github.alexpumpkin.simulator.gateway.marketdata.MarketDataDecoder;
+import com.github.alexpumpkin.simulator.gateway.marketdata.MarketDataMessage;
+import com.github.alexpumpkin.simulator.gateway.marketdata.MarketDataServer;
+import com.github.alexpumpkin.simulator.model.AddOrderDTO;
+import com.github.alexpumpkin.simulator.model.Order;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.Connection;
+import reactor.netty.tcp.TcpClient;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+/**
+ * Multicast market data published on the loopback interface.
+ */
+class MarketDataTests {
+    private static final String GROUP = "239.255.0.1";
+
+    private static DatagramChannel receiver;
+    private static ConfigurableApplicationContext context;
+    private static WebTestClient webTestClient;
+
+    @BeforeAll
+    static void start() throws IOException {
+        NetworkInterface loopback = NetworkInterface.getByInetAddress(InetAddress.getLoopbackAddress());
+        receiver = DatagramChannel.open(StandardProtocolFamily.INET)
+                .setOption(StandardSocketOptions.SO_REUSEADDR, true)
+                .bind(new InetSocketAddress(0));
+        receiver.join(InetAddress.getByName(GROUP), loopback);
+        receiver.configureBlocking(false);
+        int port = ((InetSocketAddress) receiver.getLocalAddress()).getPort();
+        context = new SpringApplicationBuilder(SimulatorApplication.class)
+                .profiles("test")
+                .properties("server.port=0",
+                        "simulator.market-data.group=" + GROUP + ":" + port,
+                        "simulator.market-data.interface=" + loopback.getName(),
+                        "simulator.market-data.port=0")
+                .run();
+        webTestClient = WebTestClient.bindToServer()
+                .baseUrl("http://localhost:" + context.getEnvironment().getRequiredProperty("local.server.port"))
+                .build();
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        context.close();
+        receiver.close();
+    }
+
+    @Test
+    void testMarketData() throws IOException {
+        addOrder("/orders/sell", new AddOrderDTO("M", 30, 10, "id_md_sell"));
+        addOrder("/orders/sell", new AddOrderDTO("M", 5, 12, "id_md_sell_rest"));
+        for (int i = 0; i < 3; i++) {
+            addOrder("/orders/buy", new AddOrderDTO("M", 10, 10, "id_md_buy_" + i));
+        }
+        addOrder("/orders/buy", new AddOrderDTO("M", 7, 9, "id_md_buy_rest"));
+
+        List<MarketDataMessage.Trade> trades = receiveTrades(3, Duration.ofSeconds(5));
+        assertEquals(List.of(1L, 2L, 3L), trades.stream().map(MarketDataMessage.Trade::sequence).toList());
+        assertEquals("id_md_sell", trades.get(0).sellOrderUuid());
+        assertEquals(10, trades.get(0).price());
+        assertFalse(trades.get(0).buyOrderUuid().isEmpty());
+
+        // recovery of the "lost" second trade
+        List<MarketDataMessage> retransmitted = request(new MarketDataMessage.Retransmit(2, 1));
+        assertEquals(List.of(trades.get(1), new MarketDataMessage.End(3)), retransmitted);
+
+        assertEquals(List.of(
+                new MarketDataMessage.BookLevel("M", Order.Type.SELL, 12, 5),
+                new MarketDataMessage.BookLevel("M", Order.Type.BUY, 9, 7),
+                new MarketDataMessage.End(3)), request(new MarketDataMessage.Snapshot("M")));
+
+        // the trade of the symbol longer than 8 bytes is skipped, the publication goes on
+        addOrder("/orders/sell", new AddOrderDTO("M_TOO_LONG", 10, 10, "id_md_long_sell"));
+        addOrder("/orders/buy", new AddOrderDTO("M_TOO_LONG", 10, 10, "id_md_long_buy"));
+        addOrder("/orders/sell", new AddOrderDTO("M", 10, 10, "id_md_sell_after_long"));
+        addOrder("/orders/buy", new AddOrderDTO("M", 10, 10, "id_md_buy_after_long"));
+        List<MarketDataMessage.Trade> next = receiveTrades(1, Duration.ofSeconds(5));
+        assertEquals(List.of(5L), next.stream().map(MarketDataMessage.Trade::sequence).toList());
+        assertEquals("id_md_sell_after_long", next.get(0).sellOrderUuid());
+        assertEquals(List.of(next.get(0), new MarketDataMessage.End(5)),
+                request(new MarketDataMessage.Retransmit(4, 2)));
+    }
+
+    private static void addOrder(String uri, AddOrderDTO dto) {
+        webTestClient.post()
+                .uri(uri)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(dto)
+                .exchange()
+                .expectStatus().isCreated();
+    }
+
+    private static List<MarketDataMessage.Trade> receiveTrades(int count, Duration timeout) throws IOException {
+        List<MarketDataMessage.Trade> trades = new ArrayList<>();
+        ByteBuffer datagram = ByteBuffer.allocate(65536);
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try (Selector selector = Selector.open()) {
+            receiver.register(selector, SelectionKey.OP_READ);
+            while (trades.size() < count && System.nanoTime() < deadline) {
+                selector.select(100);
+                datagram.clear();
+                while (receiver.receive(datagram) != null) {
+                    datagram.flip();
+                    ByteBuf packet = Unpooled.wrappedBuffer(datagram);
+                    while (packet.isReadable()) {
+                        MarketDataMessage message = MarketDataCodec.decode(packet);
+                        if (message instanceof MarketDataMessage.Trade trade) {
+                            trades.add(trade);
+                        } else {
+                            assertInstanceOf(MarketDataMessage.Heartbeat.class, message);
+                        }
+                    }
+                    datagram.clear();
+                }
+            }
+        }
+        return trades;
+    }
+
+    private static List<MarketDataMessage> request(MarketDataMessage request) {
+        Connection connection = TcpClient.create()
+                .port(context.getBean(MarketDataServer.class).port())
+                .doOnConnected(c -> c.addHandlerLast(new MarketDataDecoder()))
+                .connectNow();
+        connection.outbound()
+                .send(Flux.just(request).map(message -> {
+                    ByteBuf buffer = connection.outbound().alloc().buffer(MarketDataCodec.length(message));
+                    MarketDataCodec.encode(message, buffer);
+                    return buffer;
+                }))
+                .then()
+                .subscribe();
+        List<MarketDataMessage> response = connection.inbound()
+                .receiveObject()
+                .cast(MarketDataMessage.class)
+                .takeUntil(message -> message instanceof MarketDataMessage.End)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+        connection.disposeNow();
+        return response;
+    }
+}
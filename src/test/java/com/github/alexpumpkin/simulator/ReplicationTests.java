@@ -0,0 +1,185 @@
+package com.github.alexpumpkin.simulator;
+
+import com.github.alexpumpkin.simulator.gateway.binary.OrderEntryCodec;
+import com.github.alexpumpkin.simulator.gateway.binary.OrderEntryDecoder;
+import com.github.alexpumpkin.simulator.gateway.binary.OrderEntryMessage;
+import com.github.alexpumpkin.simulator.gateway.binary.OrderEntryServer;
+import com.github.alexpumpkin.simulator.model.AddOrderDTO;
+import com.github.alexpumpkin.simulator.model.AmendOrderDTO;
+import com.github.alexpumpkin.simulator.model.Order;
+import com.github.alexpumpkin.simulator.replication.CommandJournal;
+import com.github.alexpumpkin.simulator.replication.ReplicationServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.netty.tcp.TcpClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Primary and hot standby replica on localhost.
+ */
+class ReplicationTests {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(50);
+    private static final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    private static ConfigurableApplicationContext primary;
+    private static ConfigurableApplicationContext replica;
+    private static WebTestClient primaryClient;
+    private static WebTestClient replicaClient;
+
+    @BeforeAll
+    static void start() {
+        primary = start("server.port=0", "simulator.replication.port=0");
+        replica = start("server.port=0",
+                "simulator.replication.primary=localhost:" + primary.getBean(ReplicationServer.class).port());
+        primaryClient = client(primary);
+        replicaClient = client(replica);
+    }
+
+    @AfterAll
+    static void stop() {
+        contexts.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void testReplication() {
+        addOrder(primaryClient, "/orders/sell", new AddOrderDTO("R", 10, 10, "id_replica_sell"))
+                .expectStatus().isCreated();
+        addOrder(primaryClient, "/orders/buy", new AddOrderDTO("R", 4, 10, "id_replica_buy"))
+                .expectStatus().isCreated();
+        addOrder(primaryClient, "/orders/sell", new AddOrderDTO("R", 5, 20, "id_replica_amend"))
+                .expectStatus().isCreated();
+        addOrder(primaryClient, "/orders/buy", new AddOrderDTO("R", 5, 5, "id_replica_cancel"))
+                .expectStatus().isCreated();
+        primaryClient.patch()
+                .uri("/orders/{uuid}", "id_replica_amend")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new AmendOrderDTO(3, null))
+                .exchange()
+                .expectStatus().isOk();
+        primaryClient.delete().uri("/orders/{uuid}", "id_replica_cancel").exchange().expectStatus().isOk();
+        // executed without resting in the order book, its remaining quantity is cancelled after its fills
+        addOrder(primaryClient, "/orders/sell", new AddOrderDTO("RI", 5, 10, "id_replica_ioc_sell"))
+                .expectStatus().isCreated();
+        addOrder(primaryClient, "/orders/buy",
+                new AddOrderDTO("RI", 8, 10, "id_replica_ioc", null, Order.TimeInForce.IOC))
+                .expectStatus().isCreated();
+        // wait for the matching pass of the primary and for the replication
+        await(() -> getOrder(primaryClient, "id_replica_buy").state() == Order.State.EXECUTED
+                && getOrder(primaryClient, "id_replica_ioc").state() == Order.State.PARTIALLY_CANCELED);
+        long journaled = primary.getBean(CommandJournal.class).size();
+        await(() -> sequence() == journaled);
+        assertEquals(journaled, sequence());
+        for (String uuid : List.of("id_replica_sell", "id_replica_buy", "id_replica_amend", "id_replica_cancel",
+                "id_replica_ioc_sell", "id_replica_ioc")) {
+            assertEquals(getOrder(primaryClient, uuid), getOrder(replicaClient, uuid));
+        }
+        assertEquals(Order.State.PARTIALLY_EXECUTED, getOrder(replicaClient, "id_replica_sell").state());
+        assertEquals(3, getOrder(replicaClient, "id_replica_amend").quantity());
+        assertEquals(Order.State.CANCELLED, getOrder(replicaClient, "id_replica_cancel").state());
+        assertEquals(Order.State.EXECUTED, getOrder(replicaClient, "id_replica_ioc_sell").state());
+        assertEquals(Order.State.PARTIALLY_CANCELED, getOrder(replicaClient, "id_replica_ioc").state());
+
+        // order entry is rejected until the promotion
+        addOrder(replicaClient, "/orders/buy", new AddOrderDTO("R", 6, 10, "id_replica_promoted"))
+                .expectStatus().isEqualTo(503);
+        assertEquals(new OrderEntryMessage.Reject(OrderEntryMessage.RejectReason.UNAVAILABLE, "id_replica_binary"),
+                sendBinary(new OrderEntryMessage.NewOrder(Order.Type.BUY, 10, 6, "R", "id_replica_binary")));
+        assertEquals(new OrderEntryMessage.Reject(OrderEntryMessage.RejectReason.UNAVAILABLE, "id_replica_sell"),
+                sendBinary(new OrderEntryMessage.CancelOrder("id_replica_sell")));
+        replicaClient.post()
+                .uri("/replication/promote")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("role").isEqualTo("PRIMARY");
+        addOrder(replicaClient, "/orders/buy", new AddOrderDTO("R", 6, 10, "id_replica_promoted"))
+                .expectStatus().isCreated();
+        await(() -> getOrder(replicaClient, "id_replica_promoted").state() == Order.State.EXECUTED);
+        assertEquals(Order.State.EXECUTED, getOrder(replicaClient, "id_replica_sell").state());
+        assertEquals(Order.State.EXECUTED, getOrder(replicaClient, "id_replica_promoted").state());
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition is not met in " + TIMEOUT);
+            Mono.delay(POLL_INTERVAL).block();
+        }
+    }
+
+    private static OrderEntryMessage sendBinary(OrderEntryMessage request) {
+        Connection connection = TcpClient.create()
+                .port(replica.getBean(OrderEntryServer.class).port())
+                .doOnConnected(c -> c.addHandlerLast(new OrderEntryDecoder()))
+                .connectNow();
+        connection.outbound()
+                .send(Mono.just(OrderEntryCodec.encode(request, connection.outbound().alloc())))
+                .then()
+                .subscribe();
+        OrderEntryMessage reply = connection.inbound()
+                .receiveObject()
+                .cast(OrderEntryMessage.class)
+                .blockFirst(TIMEOUT);
+        connection.disposeNow();
+        return reply;
+    }
+
+    private static long sequence() {
+        Map<?, ?> status = replicaClient.get()
+                .uri("/replication/status")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Map.class)
+                .returnResult()
+                .getResponseBody();
+        return ((Number) status.get("sequence")).longValue();
+    }
+
+    private static WebTestClient.ResponseSpec addOrder(WebTestClient client, String uri, AddOrderDTO dto) {
+        return client.post()
+                .uri(uri)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(dto)
+                .exchange();
+    }
+
+    private static Order getOrder(WebTestClient client, String uuid) {
+        return client.get()
+                .uri("/orders/{uuid}", uuid)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Order.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private static ConfigurableApplicationContext start(String... properties) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(SimulatorApplication.class)
+                .profiles("test")
+                .properties(properties)
+                .run();
+        contexts.add(context);
+        return context;
+    }
+
+    private static WebTestClient client(ConfigurableApplicationContext context) {
+        return WebTestClient.bindToServer()
+                .baseUrl("http://localhost:" + context.getEnvironment().getRequiredProperty("local.server.port"))
+                .build();
+    }
+}
@@ -2,7 +2,20 @@ package com.github.alexpumpkin.simulator;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.alexpumpkin.simulator.admission.AdmissionLimits;
+import com.github.alexpumpkin.simulator.capacity.CapacityLimits;
+import com.github.alexpumpkin.simulator.gateway.binary.OrderEntryCodec;
+import com.github.alexpumpkin.simulator.gateway.binary.OrderEntryDecoder;
+import com.github.alexpumpkin.simulator.gateway.binary.OrderEntryMessage;
+import com.github.alexpumpkin.simulator.gateway.binary.OrderEntryServer;
+import com.github.alexpumpkin.simulator.gateway.filters.AdmissionControlFilter;
 import com.github.alexpumpkin.simulator.model.AddOrderDTO;
+import com.github.alexpumpkin.simulator.model.AmendOrderDTO;
+import com.github.alexpumpkin.simulator.model.BatchResultDTO;
+import com.github.alexpumpkin.simulator.model.Order;
+import com.github.alexpumpkin.simulator.model.OrderEvent;
+import com.github.alexpumpkin.simulator.risk.Exposure;
+import com.github.alexpumpkin.simulator.risk.RiskLimits;
 import com.github.alexpumpkin.simulator.trades.model.Trade;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Test;
@@ -10,13 +23,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.reactive.socket.WebSocketMessage;
 import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
 import org.springframework.web.reactive.socket.client.WebSocketClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.netty.tcp.TcpClient;
 
 import java.io.UncheckedIOException;
 import java.net.URI;
@@ -26,6 +43,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -43,6 +61,9 @@ class SimulatorApplicationTests {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private OrderEntryServer orderEntryServer;
+
     @Test
     void testBuyOrder() {
         String uuid = "id_buy";
@@ -89,6 +110,26 @@ class SimulatorApplicationTests {
                 .jsonPath("state").isEqualTo("PENDING");
     }
 
+    @Test
+    void testInvalidOrder() {
+        webTestClient.post()
+                .uri("/orders/buy")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"symbol\":\"A\",\"quantity\":10,\"price\":-1,\"extra\":{\"a\":[1]}}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0]").isEqualTo("Price must be positive")
+                .jsonPath("$[1]").isEqualTo("uuid must not be null");
+        webTestClient.post()
+                .uri("/orders/buy")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"symbol\":")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
     @Test
     void testDeleteOrder() {
         String uuid = "id_delete";
@@ -191,4 +232,689 @@ class SimulatorApplicationTests {
         assertEquals(2, trades.stream().filter(trade -> Objects.equals("D", trade.symbol())).count());
         assertEquals(1, trades.stream().filter(trade -> Objects.equals("E", trade.symbol())).count());
     }
+
+    @Test
+    void testCancelBySymbol() {
+        addOrder("/orders/buy", new AddOrderDTO("F", 10, 10, "id_mass_buy"));
+        addOrder("/orders/sell", new AddOrderDTO("F", 10, 20, "id_mass_sell"));
+        webTestClient.delete()
+                .uri("/orders/symbols/F?side=BUY")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0]").isEqualTo("id_mass_buy");
+        expectState("id_mass_buy", "CANCELLED");
+        expectState("id_mass_sell", "PENDING");
+        webTestClient.delete()
+                .uri("/orders/symbols/F")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0]").isEqualTo("id_mass_sell");
+        expectState("id_mass_sell", "CANCELLED");
+    }
+
+    @Test
+    void testCancelByOwner() {
+        addOrder("/orders/buy", new AddOrderDTO("G", 10, 10, "id_owner_buy", "owner_1"));
+        addOrder("/orders/sell", new AddOrderDTO("G", 10, 20, "id_owner_sell", "owner_1"));
+        addOrder("/orders/sell", new AddOrderDTO("G", 10, 20, "id_other_sell", "owner_2"));
+        webTestClient.delete()
+                .uri("/orders/owners/owner_1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2);
+        expectState("id_owner_buy", "CANCELLED");
+        expectState("id_owner_sell", "CANCELLED");
+        expectState("id_other_sell", "PENDING");
+    }
+
+    @Test
+    void testCancelOnDisconnect() throws URISyntaxException {
+        addOrder("/orders/buy", new AddOrderDTO("H", 10, 10, "id_disconnect", "owner_ws"));
+        URI url = new URI("ws://localhost:%s/trades?owner=owner_ws&cancelOnDisconnect=true".formatted(localPort));
+        new ReactorNettyWebSocketClient()
+                .execute(url, session -> Mono.delay(Duration.ofMillis(200)).then(session.close()))
+                .block(Duration.ofSeconds(5));
+
+        Mono.delay(Duration.ofMillis(500)).block();
+        expectState("id_disconnect", "CANCELLED");
+    }
+
+    @Test
+    void testOrderEvents() throws URISyntaxException {
+        List<OrderEvent> events = new ArrayList<>();
+        URI url = new URI("ws://localhost:%s/orders/events?owner=owner_events".formatted(localPort));
+        Mono<Void> received = new ReactorNettyWebSocketClient()
+                .execute(url, ws -> ws.receive()
+                        .map(WebSocketMessage::getPayloadAsText)
+                        .map(json -> {
+                            try {
+                                return objectMapper.readValue(json, OrderEvent.class);
+                            } catch (JsonProcessingException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        })
+                        .doOnNext(events::add)
+                        .take(3)
+                        .then())
+                .cache();
+        received.subscribe();
+        Mono.delay(Duration.ofMillis(300)).block();
+
+        addOrder("/orders/sell", new AddOrderDTO("Q", 10, 10, "id_events_sell", "owner_events"));
+        addOrder("/orders/buy", new AddOrderDTO("Q", 4, 10, "id_events_buy", "owner_other"));
+        Mono.delay(Duration.ofMillis(1500)).block();
+        webTestClient.delete()
+                .uri("/orders/id_events_sell")
+                .exchange()
+                .expectStatus().isOk();
+        addOrder("/orders/buy", new AddOrderDTO("Q", 5, 10, "id_events_ioc", "owner_events",
+                Order.TimeInForce.IOC));
+        received.block(Duration.ofSeconds(5));
+
+        assertEquals(List.of("id_events_sell", "id_events_sell", "id_events_ioc"),
+                events.stream().map(OrderEvent::uuid).toList());
+        assertEquals(List.of(Order.State.PARTIALLY_EXECUTED, Order.State.PARTIALLY_CANCELED, Order.State.CANCELLED),
+                events.stream().map(OrderEvent::state).toList());
+        assertEquals(List.of(4, 4, 0), events.stream().map(OrderEvent::filledQuantity).toList());
+        assertEquals(List.of(6, 0, 0), events.stream().map(OrderEvent::remainingQuantity).toList());
+    }
+
+    @Test
+    void testFindOpenOrders() {
+        addOrder("/orders/buy", new AddOrderDTO("R", 10, 10, "id_open_1", "owner_open"));
+        addOrder("/orders/sell", new AddOrderDTO("R", 10, 20, "id_open_2", "owner_open"));
+        addOrder("/orders/buy", new AddOrderDTO("R", 10, 9, "id_open_3"));
+        addOrder("/orders/sell", new AddOrderDTO("R", 10, 21, "id_open_4"));
+        addOrder("/orders/sell", new AddOrderDTO("R", 10, 22, "id_open_5", "owner_open"));
+        webTestClient.delete()
+                .uri("/orders/id_open_5")
+                .exchange()
+                .expectStatus().isOk();
+
+        assertEquals(List.of("id_open_1", "id_open_2"), findOpenOrders("/orders?symbol=R&limit=2"));
+        assertEquals(List.of("id_open_3", "id_open_4"), findOpenOrders("/orders?symbol=R&after=id_open_2"));
+        assertEquals(List.of("id_open_2", "id_open_4"), findOpenOrders("/orders?symbol=R&side=SELL&state=PENDING"));
+        assertEquals(List.of("id_open_1"), findOpenOrders("/orders?owner=owner_open&side=BUY"));
+        webTestClient.get()
+                .uri("/orders?side=BUY")
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.get()
+                .uri("/orders?symbol=R&state=CANCELLED")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    private List<String> findOpenOrders(String uri) {
+        //noinspection ConstantConditions
+        return webTestClient.get()
+                .uri(uri)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Order.class)
+                .returnResult()
+                .getResponseBody()
+                .stream()
+                .map(Order::uuid)
+                .toList();
+    }
+
+    @Test
+    void testAmendOrder() {
+        String uuid = "id_amend";
+        addOrder("/orders/sell", new AddOrderDTO("I", 100, 25, uuid));
+        webTestClient.patch()
+                .uri(uriBuilder -> uriBuilder.path("/orders/{uuid}").build(uuid))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new AmendOrderDTO(80, 26))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("uuid").isEqualTo(uuid)
+                .jsonPath("quantity").isEqualTo(80)
+                .jsonPath("price").isEqualTo(26)
+                .jsonPath("state").isEqualTo("PENDING");
+        webTestClient.patch()
+                .uri(uriBuilder -> uriBuilder.path("/orders/{uuid}").build(uuid))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new AmendOrderDTO(-1, null))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void testExecutionReport() {
+        addOrder("/orders/buy", new AddOrderDTO("J", 30, 25, "id_report_buy"));
+        webTestClient.post()
+                .uri("/orders/sell?executionReport=true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new AddOrderDTO("J", 50, 25, "id_report_sell"))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().value("location", Matchers.endsWith("/orders/id_report_sell"))
+                .expectBody()
+                .jsonPath("order.uuid").isEqualTo("id_report_sell")
+                .jsonPath("order.state").isEqualTo("PARTIALLY_EXECUTED")
+                .jsonPath("remainingQuantity").isEqualTo(20)
+                .jsonPath("fills.length()").isEqualTo(1)
+                .jsonPath("fills[0].buyOrderUuid").isEqualTo("id_report_buy");
+    }
+
+    @Test
+    void testExecutionReportWithoutMatchingPass() {
+        // "T" is the auction symbol, there is no matching pass until the auction
+        webTestClient.post()
+                .uri("/orders/sell?executionReport=true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new AddOrderDTO("T", 10, 30, "id_report_auction"))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("order.state").isEqualTo("PENDING")
+                .jsonPath("remainingQuantity").isEqualTo(10)
+                .jsonPath("fills.length()").isEqualTo(0);
+        webTestClient.delete()
+                .uri(uriBuilder -> uriBuilder.path("/orders/{uuid}").build("id_report_auction"))
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    void testImmediateOrders() {
+        addOrder("/orders/sell", new AddOrderDTO("O", 10, 10, "id_immediate_sell_10"));
+        addOrder("/orders/sell", new AddOrderDTO("O", 10, 11, "id_immediate_sell_11"));
+
+        // not enough quantity at the price, killed without execution
+        executeOrder(new AddOrderDTO("O", 30, 11, "id_fok_killed", null, Order.TimeInForce.FOK))
+                .jsonPath("order.state").isEqualTo("CANCELLED")
+                .jsonPath("fills.length()").isEqualTo(0);
+        expectState("id_immediate_sell_10", "PENDING");
+        expectState("id_immediate_sell_11", "PENDING");
+
+        executeOrder(new AddOrderDTO("O", 15, 10, "id_ioc", null, Order.TimeInForce.IOC))
+                .jsonPath("order.state").isEqualTo("PARTIALLY_CANCELED")
+                .jsonPath("remainingQuantity").isEqualTo(5)
+                .jsonPath("fills.length()").isEqualTo(1)
+                .jsonPath("fills[0].sellOrderUuid").isEqualTo("id_immediate_sell_10");
+        executeOrder(new AddOrderDTO("O", 4, null, "id_market", null, Order.TimeInForce.IOC))
+                .jsonPath("order.state").isEqualTo("EXECUTED")
+                .jsonPath("fills[0].price").isEqualTo(11)
+                .jsonPath("fills[0].quantity").isEqualTo(4);
+        executeOrder(new AddOrderDTO("O", 6, 11, "id_fok", null, Order.TimeInForce.FOK))
+                .jsonPath("order.state").isEqualTo("EXECUTED")
+                .jsonPath("remainingQuantity").isEqualTo(0);
+        expectState("id_immediate_sell_10", "EXECUTED");
+        expectState("id_immediate_sell_11", "EXECUTED");
+
+        // the duplicate is not executed again
+        executeOrder(new AddOrderDTO("O", 15, 10, "id_ioc", null, Order.TimeInForce.IOC))
+                .jsonPath("order.state").isEqualTo("PARTIALLY_CANCELED")
+                .jsonPath("remainingQuantity").isEqualTo(0)
+                .jsonPath("fills.length()").isEqualTo(0);
+        // the immediate order reusing the UUID of the resting order gets the resting order
+        addOrder("/orders/sell", new AddOrderDTO("O", 10, 12, "id_immediate_resting"));
+        executeOrder(new AddOrderDTO("O", 10, 12, "id_immediate_resting", null, Order.TimeInForce.IOC))
+                .jsonPath("order.type").isEqualTo("SELL")
+                .jsonPath("order.state").isEqualTo("PENDING")
+                .jsonPath("remainingQuantity").isEqualTo(10)
+                .jsonPath("fills.length()").isEqualTo(0);
+        expectState("id_immediate_resting", "PENDING");
+        webTestClient.post()
+                .uri("/orders/buy")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"symbol\":\"O\",\"quantity\":10,\"uuid\":\"id_gtc_market\"}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$[0]").isEqualTo("Price must not be null");
+    }
+
+    @Test
+    void testAuction() {
+        // "T" is the auction symbol, orders are not matched until the auction
+        addOrder("/orders/sell", new AddOrderDTO("T", 30, 9, "id_auction_sell_9"));
+        addOrder("/orders/sell", new AddOrderDTO("T", 40, 10, "id_auction_sell_10"));
+        addOrder("/orders/sell", new AddOrderDTO("T", 50, 12, "id_auction_sell_12"));
+        addOrder("/orders/buy", new AddOrderDTO("T", 50, 11, "id_auction_buy_11"));
+        addOrder("/orders/buy", new AddOrderDTO("T", 30, 10, "id_auction_buy_10"));
+        addOrder("/orders/buy", new AddOrderDTO("T", 20, 8, "id_auction_buy_8"));
+        executeOrder(new AddOrderDTO("T", 10, 12, "id_auction_ioc", null, Order.TimeInForce.IOC))
+                .jsonPath("order.state").isEqualTo("CANCELLED");
+
+        // 70 is executed at 10, the buy order at 10 is filled last by the time priority
+        webTestClient.post()
+                .uri("/orders/symbols/T/auction")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("price").isEqualTo(10)
+                .jsonPath("quantity").isEqualTo(70)
+                .jsonPath("trades.length()").isEqualTo(3)
+                .jsonPath("trades[0].quantity").isEqualTo(30)
+                .jsonPath("trades[1].quantity").isEqualTo(20)
+                .jsonPath("trades[2].quantity").isEqualTo(20)
+                .jsonPath("trades[2].price").isEqualTo(10)
+                .jsonPath("trades[2].buyOrderUuid").isEqualTo("id_auction_buy_10");
+        expectState("id_auction_sell_9", "EXECUTED");
+        expectState("id_auction_sell_10", "EXECUTED");
+        expectState("id_auction_sell_12", "PENDING");
+        expectState("id_auction_buy_11", "EXECUTED");
+        expectState("id_auction_buy_10", "PARTIALLY_EXECUTED");
+        expectState("id_auction_buy_8", "PENDING");
+
+        webTestClient.post()
+                .uri("/orders/symbols/T/auction")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("quantity").isEqualTo(0);
+
+        // the volume is the same at 100, 105 and 110, the buy surplus is 0 only above the last ask
+        webTestClient.delete()
+                .uri("/orders/symbols/T")
+                .exchange()
+                .expectStatus().isOk();
+        addOrder("/orders/sell", new AddOrderDTO("T", 10, 100, "id_auction_sell_100"));
+        addOrder("/orders/buy", new AddOrderDTO("T", 10, 110, "id_auction_buy_110"));
+        addOrder("/orders/buy", new AddOrderDTO("T", 5, 105, "id_auction_buy_105"));
+        webTestClient.post()
+                .uri("/orders/symbols/T/auction")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("price").isEqualTo(110)
+                .jsonPath("quantity").isEqualTo(10)
+                .jsonPath("trades[0].buyOrderUuid").isEqualTo("id_auction_buy_110");
+        expectState("id_auction_buy_105", "PENDING");
+    }
+
+    private WebTestClient.BodyContentSpec executeOrder(AddOrderDTO dto) {
+        return webTestClient.post()
+                .uri("/orders/buy")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(dto)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("order.uuid").isEqualTo(dto.uuid());
+    }
+
+    @Test
+    void testCapacityLimits() {
+        try {
+            setCapacityLimits(new CapacityLimits(2, 0));
+            addOrder("/orders/buy", new AddOrderDTO("P", 10, 10, "id_capacity_1"));
+            addOrder("/orders/buy", new AddOrderDTO("P", 10, 11, "id_capacity_2"));
+            webTestClient.post()
+                    .uri("/orders/buy")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new AddOrderDTO("P", 10, 12, "id_capacity_3"))
+                    .exchange()
+                    .expectStatus().isEqualTo(HttpStatus.INSUFFICIENT_STORAGE)
+                    .expectBody()
+                    .jsonPath("$[0]").isEqualTo("Capacity of symbol P is exceeded: 2 resting orders");
+            webTestClient.get()
+                    .uri("/capacity")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("limits.maxOrdersPerSymbol").isEqualTo(2)
+                    .jsonPath("components[?(@.name == 'orderStorage')].estimatedBytes").isNotEmpty()
+                    .jsonPath("books[?(@.symbol == 'P')].restingOrders").isEqualTo(2)
+                    .jsonPath("books[?(@.symbol == 'P')].priceLevels").isEqualTo(2);
+
+            setCapacityLimits(new CapacityLimits(0, 1));
+            webTestClient.post()
+                    .uri("/orders/sell")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new AddOrderDTO("P", 10, 20, "id_capacity_4"))
+                    .exchange()
+                    .expectStatus().isEqualTo(HttpStatus.INSUFFICIENT_STORAGE);
+        } finally {
+            setCapacityLimits(new CapacityLimits(0, 0));
+        }
+    }
+
+    private void setCapacityLimits(CapacityLimits limits) {
+        webTestClient.put()
+                .uri("/capacity/limits")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(limits)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    void testRiskLimits() {
+        setRiskLimits(new RiskLimits(100, 5000, 150));
+        try {
+            webTestClient.post()
+                    .uri("/orders/buy")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new AddOrderDTO("S", 101, 10, "id_risk_quantity"))
+                    .exchange()
+                    .expectStatus().isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .expectBody()
+                    .jsonPath("$[0]").isEqualTo("Order quantity exceeds 100");
+            webTestClient.post()
+                    .uri("/orders/buy")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new AddOrderDTO("S", 100, 60, "id_risk_notional"))
+                    .exchange()
+                    .expectStatus().isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .expectBody()
+                    .jsonPath("$[0]").isEqualTo("Order notional exceeds 5000");
+
+            addOrder("/orders/buy", new AddOrderDTO("S", 100, 10, "id_risk_1", "owner_risk_1"));
+            webTestClient.post()
+                    .uri("/orders/buy")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new AddOrderDTO("S", 60, 10, "id_risk_2", "owner_risk_1"))
+                    .exchange()
+                    .expectStatus().isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .expectBody()
+                    .jsonPath("$[0]").isEqualTo("Position of owner_risk_1 in S would exceed 150");
+            expectExposure("owner_risk_1", new Exposure("S", 0, 100, 0));
+
+            webTestClient.delete()
+                    .uri("/orders/id_risk_1")
+                    .exchange()
+                    .expectStatus().isOk();
+            expectExposure("owner_risk_1", new Exposure("S", 0, 0, 0));
+
+            addOrder("/orders/sell", new AddOrderDTO("S", 100, 10, "id_risk_3", "owner_risk_2"));
+            executeOrder(new AddOrderDTO("S", 40, 10, "id_risk_4", "owner_risk_1", Order.TimeInForce.FOK))
+                    .jsonPath("order.state").isEqualTo("EXECUTED");
+            expectExposure("owner_risk_1", new Exposure("S", 40, 0, 0));
+            expectExposure("owner_risk_2", new Exposure("S", -40, 0, 60));
+        } finally {
+            setRiskLimits(RiskLimits.NONE);
+        }
+    }
+
+    private void setRiskLimits(RiskLimits limits) {
+        webTestClient.put()
+                .uri("/risk/limits")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(limits)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    private void expectExposure(String owner, Exposure... expected) {
+        webTestClient.get()
+                .uri("/risk/accounts/{owner}", owner)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Exposure.class)
+                .isEqualTo(List.of(expected));
+    }
+
+    @Test
+    void testBinaryOrderEntry() {
+        List<OrderEntryMessage> replies = sendBinary(List.of(
+                new OrderEntryMessage.NewOrder(Order.Type.BUY, 10, 100, "K", "id_binary"),
+                new OrderEntryMessage.NewOrder(Order.Type.SELL, -1, 100, "K", "id_binary_invalid"),
+                new OrderEntryMessage.CancelOrder("id_binary")));
+
+        assertEquals(List.of(
+                new OrderEntryMessage.Ack(Order.State.PENDING, "id_binary"),
+                new OrderEntryMessage.Reject(OrderEntryMessage.RejectReason.INVALID_MESSAGE, "id_binary_invalid"),
+                new OrderEntryMessage.Ack(Order.State.CANCELLED, "id_binary")), replies);
+    }
+
+    @Test
+    void testBinaryImmediateOrders() {
+        List<OrderEntryMessage> replies = sendBinary(List.of(
+                new OrderEntryMessage.NewOrder(Order.Type.SELL, Order.TimeInForce.GTC, 10, 10, "U",
+                        "binary_owner", "id_binary_resting"),
+                new OrderEntryMessage.NewOrder(Order.Type.BUY, Order.TimeInForce.FOK, Order.MARKET_PRICE, 20, "U",
+                        null, "id_binary_fok"),
+                new OrderEntryMessage.NewOrder(Order.Type.BUY, Order.TimeInForce.IOC, Order.MARKET_PRICE, 20, "U",
+                        null, "id_binary_ioc"),
+                new OrderEntryMessage.NewOrder(Order.Type.BUY, Order.TimeInForce.GTC, Order.MARKET_PRICE, 20, "U",
+                        null, "id_binary_market_gtc")));
+
+        assertEquals(List.of(
+                new OrderEntryMessage.Ack(Order.State.PENDING, "id_binary_resting"),
+                new OrderEntryMessage.Ack(Order.State.CANCELLED, "id_binary_fok"),
+                new OrderEntryMessage.Ack(Order.State.PARTIALLY_CANCELED, "id_binary_ioc"),
+                new OrderEntryMessage.Reject(OrderEntryMessage.RejectReason.INVALID_MESSAGE, "id_binary_market_gtc")),
+                replies);
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/orders/{uuid}").build("id_binary_resting"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("owner").isEqualTo("binary_owner")
+                .jsonPath("state").isEqualTo("EXECUTED");
+    }
+
+    @Test
+    void testBinaryAdmissionControl() {
+        webTestClient.put()
+                .uri("/admission/limits")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new AdmissionLimits(0.1, 1, 0, 0))
+                .exchange()
+                .expectStatus().isOk();
+        try {
+            List<OrderEntryMessage> replies = sendBinary(List.of(
+                    new OrderEntryMessage.NewOrder(Order.Type.BUY, 10, 10, "V", "id_binary_admitted_0"),
+                    new OrderEntryMessage.NewOrder(Order.Type.BUY, 10, 10, "V", "id_binary_admitted_1"),
+                    new OrderEntryMessage.NewOrder(Order.Type.BUY, 10, 10, "V", "id_binary_rejected")));
+
+            assertEquals(new OrderEntryMessage.Reject(OrderEntryMessage.RejectReason.RATE_LIMITED,
+                    "id_binary_rejected"), replies.get(2));
+        } finally {
+            webTestClient.put()
+                    .uri("/admission/limits")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new AdmissionLimits(0, 0, 0, 0))
+                    .exchange()
+                    .expectStatus().isOk();
+        }
+    }
+
+    @Test
+    void testBatch() {
+        String body = """
+                {"command":"BUY","uuid":"id_batch_buy","symbol":"L","price":10,"quantity":100}
+                {"command":"SELL","uuid":"id_batch_invalid","symbol":"L","quantity":100}
+                {"command":"CANCEL","uuid":"id_batch_buy"}
+                """;
+        List<BatchResultDTO> results = webTestClient.post()
+                .uri("/orders/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(BatchResultDTO.class)
+                .getResponseBody()
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        //noinspection ConstantConditions
+        assertEquals(List.of(201, 400, 200), results.stream().map(BatchResultDTO::status).toList());
+        assertEquals(Order.State.PENDING, results.get(0).order().state());
+        assertEquals(List.of("Price must not be null"), results.get(1).errors());
+        assertEquals(Order.State.CANCELLED, results.get(2).order().state());
+    }
+
+    @Test
+    void testResumeTrades() throws URISyntaxException {
+        addOrder("/orders/sell", new AddOrderDTO("N", 10, 10, "id_resume_sell"));
+        addOrder("/orders/buy", new AddOrderDTO("N", 10, 10, "id_resume_buy"));
+        Mono.delay(Duration.ofMillis(1500)).block();
+
+        List<Trade> replayed = receiveTrades(new URI("ws://localhost:%s/trades?fromSeq=1".formatted(localPort)),
+                trades -> trades.takeUntil(trade -> trade.symbol().equals("N")));
+        for (int i = 0; i < replayed.size(); i++) {
+            assertEquals(i + 1, replayed.get(i).sequence());
+        }
+        Trade trade = replayed.get(replayed.size() - 1);
+        assertEquals("id_resume_sell", trade.sellOrderUuid());
+
+        List<Trade> resumed = receiveTrades(
+                new URI("ws://localhost:%s/trades?fromSeq=%s".formatted(localPort, trade.sequence())),
+                trades -> trades.take(1));
+        assertEquals(List.of(trade), resumed);
+    }
+
+    private List<Trade> receiveTrades(URI url, Function<Flux<Trade>, Flux<Trade>> limit) {
+        List<Trade> trades = new ArrayList<>();
+        new ReactorNettyWebSocketClient()
+                .execute(url, session -> limit.apply(session.receive()
+                                .map(WebSocketMessage::getPayloadAsText)
+                                .map(this::readTrade))
+                        .doOnNext(trades::add)
+                        .then())
+                .block(Duration.ofSeconds(5));
+        return trades;
+    }
+
+    private Trade readTrade(String json) {
+        try {
+            return objectMapper.readValue(json, Trade.class);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Test
+    void testReady() {
+        webTestClient.get()
+                .uri("/ready")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("\"ACCEPTING_TRAFFIC\"");
+    }
+
+    @Test
+    void testAdmissionControl() {
+        AdmissionLimits limits = new AdmissionLimits(0.1, 1, 0, 0);
+        webTestClient.put()
+                .uri("/admission/limits")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(limits)
+                .exchange()
+                .expectStatus().isOk();
+        try {
+            for (int i = 0; i < 2; i++) {
+                webTestClient.post()
+                        .uri("/orders/buy")
+                        .header(AdmissionControlFilter.CLIENT_ID_HEADER, "client_limited")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(new AddOrderDTO("M", 10, 10, "id_admitted_" + i))
+                        .exchange()
+                        .expectStatus().isCreated();
+            }
+            webTestClient.post()
+                    .uri("/orders/buy")
+                    .header(AdmissionControlFilter.CLIENT_ID_HEADER, "client_limited")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new AddOrderDTO("M", 10, 10, "id_rejected"))
+                    .exchange()
+                    .expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+            webTestClient.get()
+                    .uri(uriBuilder -> uriBuilder.path("/orders/{uuid}").build("id_rejected"))
+                    .exchange()
+                    .expectStatus().isNotFound();
+        } finally {
+            webTestClient.put()
+                    .uri("/admission/limits")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new AdmissionLimits(0, 0, 0, 0))
+                    .exchange()
+                    .expectStatus().isOk();
+        }
+    }
+
+    @Test
+    void testBatchAdmissionControl() {
+        webTestClient.put()
+                .uri("/admission/limits")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new AdmissionLimits(0.1, 1, 0, 0))
+                .exchange()
+                .expectStatus().isOk();
+        try {
+            String body = """
+                    {"command":"BUY","uuid":"id_batch_admitted_0","symbol":"W","price":10,"quantity":10}
+                    {"command":"BUY","uuid":"id_batch_admitted_1","symbol":"W","price":10,"quantity":10}
+                    {"command":"BUY","uuid":"id_batch_rejected","symbol":"W","price":10,"quantity":10}
+                    """;
+            List<BatchResultDTO> results = webTestClient.post()
+                    .uri("/orders/batch")
+                    .header(AdmissionControlFilter.CLIENT_ID_HEADER, "client_batch_limited")
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .bodyValue(body)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .returnResult(BatchResultDTO.class)
+                    .getResponseBody()
+                    .collectList()
+                    .block(Duration.ofSeconds(5));
+
+            //noinspection ConstantConditions
+            assertEquals(List.of(201, 201, 429), results.stream().map(BatchResultDTO::status).toList());
+            // the auction is not an order entry request
+            webTestClient.post()
+                    .uri("/orders/symbols/W/auction")
+                    .header(AdmissionControlFilter.CLIENT_ID_HEADER, "client_batch_limited")
+                    .exchange()
+                    .expectStatus().isOk();
+        } finally {
+            webTestClient.put()
+                    .uri("/admission/limits")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new AdmissionLimits(0, 0, 0, 0))
+                    .exchange()
+                    .expectStatus().isOk();
+        }
+    }
+
+    private List<OrderEntryMessage> sendBinary(List<OrderEntryMessage> requests) {
+        Connection connection = TcpClient.create()
+                .port(orderEntryServer.port())
+                .doOnConnected(c -> c.addHandlerLast(new OrderEntryDecoder()))
+                .connectNow();
+        connection.outbound()
+                .send(Flux.fromIterable(requests)
+                        .map(message -> OrderEntryCodec.encode(message, connection.outbound().alloc())))
+                .then()
+                .subscribe();
+
+        List<OrderEntryMessage> replies = connection.inbound()
+                .receiveObject()
+                .cast(OrderEntryMessage.class)
+                .take(requests.size())
+                .collectList()
+                .block(Duration.ofSeconds(5));
+        connection.disposeNow();
+        return replies;
+    }
+
+    private void addOrder(String uri, AddOrderDTO dto) {
+        webTestClient.post()
+                .uri(uri)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(dto)
+                .exchange()
+                .expectStatus().isCreated();
+    }
+
+    private void expectState(String uuid, String state) {
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/orders/{uuid}").build(uuid))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("state").isEqualTo(state);
+    }
 }
@@ -0,0 +1,60 @@
+package com.github.alexpumpkin.simulator.admission;
+
+import com.github.alexpumpkin.simulator.orders.services.OrderBooksHolder;
+import com.github.alexpumpkin.simulator.orders.services.OrdersServiceImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControlTests {
+
+    @Test
+    void testInFlightLimitUnderContention() throws InterruptedException {
+        AdmissionControl admissionControl = new AdmissionControl(new AdmissionLimits(0, 0, 2, 0),
+                new OrdersServiceImpl(new OrderBooksHolder()));
+        int threads = 8;
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int j = 0; j < 200_000; j++) {
+                    if (admissionControl.tryAcquire("client", true)) {
+                        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                        inFlight.decrementAndGet();
+                        admissionControl.release();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertTrue(maxInFlight.get() <= 2, "Max in flight " + maxInFlight.get());
+    }
+
+    @Test
+    void testRejectedByRateReleasesInFlight() {
+        AdmissionControl admissionControl = new AdmissionControl(new AdmissionLimits(1, 0, 1, 0),
+                new OrdersServiceImpl(new OrderBooksHolder()));
+        assertTrue(admissionControl.tryAcquire("client_1", true));
+        admissionControl.release();
+        assertFalse(admissionControl.tryAcquire("client_1", true));
+        // the in-flight slot of the rejected request is given back
+        assertTrue(admissionControl.tryAcquire("client_2", true));
+    }
+}
@@ -0,0 +1,50 @@
+package com.github.alexpumpkin.simulator.capacity;
+
+import com.github.alexpumpkin.simulator.matching.MatchingEngine;
+import com.github.alexpumpkin.simulator.model.AddOrderDTO;
+import com.github.alexpumpkin.simulator.model.Order;
+import com.github.alexpumpkin.simulator.orders.services.OrderBooksHolder;
+import com.github.alexpumpkin.simulator.orders.services.OrdersServiceImpl;
+import com.github.alexpumpkin.simulator.replication.CommandJournal;
+import com.github.alexpumpkin.simulator.trades.TradeBus;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CapacityControlTests {
+
+    @Test
+    void testMaxBytesReleasedWhenOrdersComplete() {
+        OrderBooksHolder orderBooksHolder = new OrderBooksHolder();
+        OrdersServiceImpl ordersService = new OrdersServiceImpl(orderBooksHolder);
+        CommandJournal journal = new CommandJournal(false);
+        TradeBus tradeBus = new TradeBus(journal, 0);
+        MatchingEngine matchingEngine = new MatchingEngine(ordersService, orderBooksHolder, tradeBus);
+        try {
+            ordersService.add(Order.sell(new AddOrderDTO("A", 10, 10, "sell"))).block();
+            ordersService.add(Order.buy(new AddOrderDTO("A", 10, 10, "buy"))).block();
+            ordersService.add(Order.buy(new AddOrderDTO("A", 10, 9, "cancel"))).block();
+            CapacityControl capacityControl = new CapacityControl(new CapacityLimits(0, 0), ordersService,
+                    orderBooksHolder, tradeBus, journal);
+            capacityControl.setLimits(new CapacityLimits(0, capacityControl.estimatedBytes()));
+
+            assertThrows(CapacityExceededException.class,
+                    () -> capacityControl.check(Order.buy(new AddOrderDTO("A", 10, 9, "rejected"))));
+
+            matchingEngine.runPass();
+            ordersService.cancel("cancel").block();
+
+            // executed and cancelled orders are still stored, but the same number of new orders is accepted
+            for (int i = 0; i < 3; i++) {
+                Order order = Order.buy(new AddOrderDTO("A", 10, 9 + i % 2, "new_" + i));
+                assertDoesNotThrow(() -> capacityControl.check(order));
+                ordersService.add(order).block();
+            }
+            assertThrows(CapacityExceededException.class,
+                    () -> capacityControl.check(Order.buy(new AddOrderDTO("A", 10, 9, "rejected"))));
+        } finally {
+            matchingEngine.dispose();
+        }
+    }
+}
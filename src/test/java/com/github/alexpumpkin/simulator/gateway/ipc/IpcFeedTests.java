@@ -0,0 +1,93 @@
+package com.github.alexpumpkin.simulator.gateway.ipc;
+
+import com.github.alexpumpkin.simulator.model.AddOrderDTO;
+import com.github.alexpumpkin.simulator.model.Order;
+import com.github.alexpumpkin.simulator.model.OrderEvent;
+import com.github.alexpumpkin.simulator.orders.services.OrderBooksHolder;
+import com.github.alexpumpkin.simulator.orders.services.OrdersServiceImpl;
+import com.github.alexpumpkin.simulator.trades.TradeBus;
+import com.github.alexpumpkin.simulator.trades.model.Trade;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class IpcFeedTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testTradesAndOrderEvents() {
+        TradeBus tradeBus = new TradeBus();
+        OrdersServiceImpl ordersService = new OrdersServiceImpl(new OrderBooksHolder());
+        IpcFeedPublisher publisher = new IpcFeedPublisher(tradeBus, ordersService, directory.resolve("feed"), 16);
+        publisher.start();
+        try {
+            IpcFeedReader reader = IpcFeedReader.open(directory.resolve("feed"));
+            Records records = new Records();
+            assertEquals(0, reader.poll(records, 10));
+
+            Trade trade = tradeBus.publish(new Trade("A", 10, 5, "sell", "buy"));
+            ordersService.add(Order.buy(new AddOrderDTO("A", 40, 10, "buy", "owner"))).block();
+            ordersService.cancel("buy").block();
+
+            assertEquals(2, reader.poll(records, 10));
+            assertNull(records.trades.get(0).uuid());
+            assertEquals(trade.withSequence(trade.sequence(), null), records.trades.get(0));
+            OrderEvent event = records.events.get(0);
+            assertEquals("buy", event.uuid());
+            assertEquals("owner", event.owner());
+            assertEquals(Order.State.CANCELLED, event.state());
+            assertEquals(0, event.filledQuantity());
+            assertEquals(2, reader.position());
+            assertEquals(0, reader.lost());
+        } finally {
+            publisher.dispose();
+        }
+    }
+
+    @Test
+    void testOverrun() {
+        TradeBus tradeBus = new TradeBus();
+        IpcFeedPublisher publisher = new IpcFeedPublisher(tradeBus, new OrdersServiceImpl(new OrderBooksHolder()),
+                directory.resolve("feed"), 8);
+        publisher.start();
+        try {
+            IpcFeedReader reader = IpcFeedReader.open(directory.resolve("feed"));
+            for (int i = 0; i < 20; i++) {
+                tradeBus.publish(new Trade("A", 10, 1, "sell", "buy"));
+            }
+            Records records = new Records();
+            assertEquals(0, reader.poll(records, 10));
+            assertEquals(20, reader.lost());
+
+            tradeBus.publish(new Trade("A", 10, 1, "sell", "buy"));
+            tradeBus.publish(new Trade("A", 10, 1, "sell", "buy"));
+            assertEquals(2, reader.poll(records, 10));
+            assertEquals(List.of(21L, 22L), records.trades.stream().map(Trade::sequence).toList());
+        } finally {
+            publisher.dispose();
+        }
+    }
+
+    private static class Records implements IpcFeedReader.Handler {
+        private final List<Trade> trades = new ArrayList<>();
+        private final List<OrderEvent> events = new ArrayList<>();
+
+        @Override
+        public void onTrade(Trade trade) {
+            trades.add(trade);
+        }
+
+        @Override
+        public void onOrderEvent(OrderEvent event) {
+            events.add(event);
+        }
+    }
+}
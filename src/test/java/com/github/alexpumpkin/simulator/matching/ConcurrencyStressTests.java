@@ -0,0 +1,364 @@
+package com.github.alexpumpkin.simulator.matching;
+
+import com.github.alexpumpkin.simulator.model.AddOrderDTO;
+import com.github.alexpumpkin.simulator.model.AmendOrderDTO;
+import com.github.alexpumpkin.simulator.model.Order;
+import com.github.alexpumpkin.simulator.orders.model.OrderBook;
+import com.github.alexpumpkin.simulator.orders.services.OrderBooksHolder;
+import com.github.alexpumpkin.simulator.orders.services.OrdersServiceImpl;
+import com.github.alexpumpkin.simulator.replication.CommandJournal;
+import com.github.alexpumpkin.simulator.replication.JournalEntry;
+import com.github.alexpumpkin.simulator.replication.JournalRecord;
+import com.github.alexpumpkin.simulator.trades.TradeBus;
+import com.github.alexpumpkin.simulator.trades.model.Trade;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Stress tests of the lock-free protocol between {@link OrdersServiceImpl} and {@link MatchingEngine}. Every race is
+ * repeated many times with the threads released at once, outcomes are checked against the allowed ones.
+ * <br/>
+ * Iterations are scaled with "stress.factor" system property, e.g. -Dstress.factor=100 for a long run.
+ */
+class ConcurrencyStressTests {
+    private static final int FACTOR = Integer.getInteger("stress.factor", 1);
+    private static final Set<Order.State> PROCESS_STATES = EnumSet.of(
+            Order.State.PROCESS_PENDING, Order.State.PROCESS_PARTIALLY_EXECUTED);
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<MatchingEngine> matchingEngines = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        matchingEngines.forEach(MatchingEngine::dispose);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Cancel versus lock: either the cancel wins and the order is not locked, or the order is executed and the cancel
+     * fails. Deferred cancel completes in both cases.
+     */
+    @Test
+    void testCancelVersusLock() throws Exception {
+        for (int i = 0; i < 2000 * FACTOR; i++) {
+            OrdersServiceImpl ordersService = new OrdersServiceImpl(new OrderBooksHolder());
+            ordersService.add(Order.sell(new AddOrderDTO("A", 10, 10, "sell"))).block();
+            ordersService.add(Order.buy(new AddOrderDTO("A", 10, 10, "buy"))).block();
+            AtomicBoolean locked = new AtomicBoolean();
+            Queue<Throwable> cancelResult = new ConcurrentLinkedQueue<>();
+            CountDownLatch cancelled = new CountDownLatch(1);
+
+            runConcurrently(2, thread -> {
+                if (thread == 0) {
+                    Tuple2<Order.State, Order.State> lockResult = ordersService.lockToProcess("sell", "buy");
+                    if (PROCESS_STATES.contains(lockResult.getT1())) {
+                        locked.set(true);
+                        ordersService.unlockProcessed("sell", Order.State.EXECUTED);
+                        ordersService.unlockProcessed("buy", Order.State.EXECUTED);
+                    }
+                } else {
+                    // cancel of the final order throws right away
+                    Mono.defer(() -> ordersService.cancel("sell")).subscribe(null, e -> {
+                        cancelResult.add(e);
+                        cancelled.countDown();
+                    }, cancelled::countDown);
+                }
+            });
+
+            assertTrue(cancelled.await(1, TimeUnit.SECONDS), "cancel is not completed");
+            Order.State sellState = state(ordersService, "sell");
+            Order.State buyState = state(ordersService, "buy");
+            if (locked.get()) {
+                assertEquals(Order.State.EXECUTED, sellState);
+                assertEquals(Order.State.EXECUTED, buyState);
+                assertEquals(1, cancelResult.size(), "cancel of the executed order must fail");
+            } else {
+                assertEquals(Order.State.CANCELLED, sellState);
+                assertEquals(Order.State.PENDING, buyState);
+                assertTrue(cancelResult.isEmpty(), "cancel must succeed");
+            }
+        }
+    }
+
+    /**
+     * Add versus cancel of the same order: the cancel is either not found or journaled after the add, so the replica
+     * could apply the journal in order.
+     */
+    @Test
+    void testAddVersusCancelJournal() throws Exception {
+        for (int i = 0; i < 2000 * FACTOR; i++) {
+            CommandJournal journal = new CommandJournal(true);
+            OrdersServiceImpl ordersService = new OrdersServiceImpl(new OrderBooksHolder(), journal);
+            CountDownLatch cancelled = new CountDownLatch(1);
+
+            runConcurrently(2, thread -> {
+                if (thread == 0) {
+                    ordersService.add(Order.sell(new AddOrderDTO("A", 10, 10, "sell"))).block();
+                } else {
+                    ordersService.cancel("sell").subscribe(null, e -> cancelled.countDown(), cancelled::countDown);
+                }
+            });
+
+            assertTrue(cancelled.await(1, TimeUnit.SECONDS), "cancel is not completed");
+            List<JournalEntry> entries = journal.read(0, Flux.never())
+                    .blockFirst(Duration.ofSeconds(1))
+                    .stream()
+                    .map(JournalRecord::entry)
+                    .toList();
+            assertTrue(entries.get(0) instanceof JournalEntry.Add, () -> "journal: " + entries);
+            if (state(ordersService, "sell") == Order.State.CANCELLED) {
+                assertEquals(List.of(new JournalEntry.Cancel("sell")), entries.subList(1, entries.size()));
+            } else {
+                assertEquals(1, entries.size(), () -> "journal: " + entries);
+            }
+        }
+    }
+
+    /**
+     * Two matching engines on one order book: the sell order is executed once.
+     */
+    @Test
+    void testTwoMatchersOnOneOrder() throws Exception {
+        for (int i = 0; i < 1000 * FACTOR; i++) {
+            OrderBooksHolder orderBooksHolder = new OrderBooksHolder();
+            OrdersServiceImpl ordersService = new OrdersServiceImpl(orderBooksHolder);
+            Queue<Trade> trades = new ConcurrentLinkedQueue<>();
+            MatchingEngine first = matchingEngine(ordersService, orderBooksHolder, trades);
+            MatchingEngine second = matchingEngine(ordersService, orderBooksHolder, trades);
+            ordersService.add(Order.sell(new AddOrderDTO("A", 10, 10, "sell"))).block();
+            ordersService.add(Order.buy(new AddOrderDTO("A", 10, 10, "buy1"))).block();
+            ordersService.add(Order.buy(new AddOrderDTO("A", 10, 10, "buy2"))).block();
+
+            runConcurrently(2, thread -> (thread == 0 ? first : second).runPass());
+
+            assertEquals(1, trades.size(), () -> "trades: " + trades);
+            assertEquals(10, trades.peek().quantity());
+            assertEquals(Order.State.EXECUTED, state(ordersService, "sell"));
+            assertEquals(Set.of(Order.State.EXECUTED, Order.State.PENDING),
+                    Set.of(state(ordersService, "buy1"), state(ordersService, "buy2")));
+            first.dispose();
+            second.dispose();
+        }
+    }
+
+    /**
+     * Orders are added to the price level while it is matched: all quantity is matched once.
+     */
+    @Test
+    void testAddVersusMatch() throws Exception {
+        OrderBooksHolder orderBooksHolder = new OrderBooksHolder();
+        OrdersServiceImpl ordersService = new OrdersServiceImpl(orderBooksHolder);
+        Queue<Trade> trades = new ConcurrentLinkedQueue<>();
+        MatchingEngine matchingEngine = matchingEngine(ordersService, orderBooksHolder, trades);
+        int adders = 4;
+        int orders = 2000 * FACTOR;
+        CountDownLatch added = new CountDownLatch(adders);
+
+        runConcurrently(adders + 1, thread -> {
+            if (thread == adders) {
+                while (added.getCount() > 0) {
+                    matchingEngine.runPass();
+                }
+            } else {
+                for (int i = 0; i < orders; i++) {
+                    AddOrderDTO dto = new AddOrderDTO("A", 1 + i % 7, 10, "%s-%s".formatted(thread, i));
+                    ordersService.add(thread % 2 == 0 ? Order.buy(dto) : Order.sell(dto)).block();
+                }
+                added.countDown();
+            }
+        });
+        matchingEngine.runPass();
+
+        List<Order> all = orders(ordersService, orderBooksHolder.getOrderBook("A"), adders, orders);
+        checkInvariants(ordersService, orderBooksHolder, all, trades);
+        long buyQuantity = all.stream().filter(order -> order.type() == Order.Type.BUY)
+                .mapToLong(Order::quantity).sum();
+        long tradedQuantity = trades.stream().mapToLong(Trade::quantity).sum();
+        // both sides have the same quantity, so everything is matched
+        assertEquals(buyQuantity, tradedQuantity);
+    }
+
+    /**
+     * Random adds, amends and cancels from many threads while two matching engines run passes.
+     */
+    @Test
+    void testRandomizedInvariants() throws Exception {
+        OrderBooksHolder orderBooksHolder = new OrderBooksHolder();
+        OrdersServiceImpl ordersService = new OrdersServiceImpl(orderBooksHolder);
+        Queue<Trade> trades = new ConcurrentLinkedQueue<>();
+        List<MatchingEngine> engines = List.of(
+                matchingEngine(ordersService, orderBooksHolder, trades),
+                matchingEngine(ordersService, orderBooksHolder, trades));
+        int clients = 8;
+        int operations = 2000 * FACTOR;
+        long seed = System.nanoTime();
+        CountDownLatch done = new CountDownLatch(clients);
+        Map<String, Order> added = new ConcurrentHashMap<>();
+
+        try {
+            runConcurrently(clients + engines.size(), thread -> {
+                if (thread >= clients) {
+                    while (done.getCount() > 0) {
+                        engines.get(thread - clients).runPass();
+                    }
+                    return;
+                }
+                Random random = new Random(seed + thread);
+                List<String> own = new ArrayList<>();
+                for (int i = 0; i < operations; i++) {
+                    int operation = random.nextInt(10);
+                    try {
+                        if (operation < 6 || own.isEmpty()) {
+                            AddOrderDTO dto = new AddOrderDTO("S" + random.nextInt(3), 1 + random.nextInt(50),
+                                    95 + random.nextInt(11), "%s-%s".formatted(thread, i));
+                            Order order = random.nextBoolean() ? Order.buy(dto) : Order.sell(dto);
+                            added.put(order.uuid(), order);
+                            ordersService.add(order).block();
+                            own.add(order.uuid());
+                        } else if (operation < 8) {
+                            ordersService.cancel(own.get(random.nextInt(own.size()))).subscribe(null, e -> {
+                            });
+                        } else {
+                            ordersService.amend(own.get(random.nextInt(own.size())),
+                                    new AmendOrderDTO(1 + random.nextInt(60), 95 + random.nextInt(11))).block();
+                        }
+                    } catch (ResponseStatusException e) {
+                        // order is executed, cancelled or locked
+                    }
+                }
+                done.countDown();
+            });
+            // match the rest in one thread
+            engines.get(0).runPass();
+
+            List<Order> all = added.keySet().stream()
+                    .map(uuid -> ordersService.getOrderByUUID(uuid).block())
+                    .toList();
+            checkInvariants(ordersService, orderBooksHolder, all, trades);
+        } catch (AssertionError e) {
+            throw new AssertionError("seed=" + seed + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Check quantity conservation and the states of the orders after all operations.
+     */
+    private static void checkInvariants(OrdersServiceImpl ordersService, OrderBooksHolder orderBooksHolder,
+                                        List<Order> orders, Queue<Trade> trades) {
+        Map<String, Integer> executed = new ConcurrentHashMap<>();
+        for (Trade trade : trades) {
+            assertTrue(trade.quantity() > 0, () -> "empty trade: " + trade);
+            assertTrue(!trade.sellOrderUuid().equals(trade.buyOrderUuid()), () -> "self trade: " + trade);
+            executed.merge(trade.sellOrderUuid(), trade.quantity(), Integer::sum);
+            executed.merge(trade.buyOrderUuid(), trade.quantity(), Integer::sum);
+        }
+        long active = 0;
+        for (Order order : orders) {
+            int filled = executed.getOrDefault(order.uuid(), 0);
+            OrderBook orderBook = orderBooksHolder.getOrderBook(order.symbol());
+            int resting = orderBook.quantity(order);
+            String description = "%s filled=%s resting=%s".formatted(order, filled, resting);
+            assertTrue(filled <= order.quantity(), () -> "double execution: " + description);
+            switch (order.state()) {
+                case PENDING -> {
+                    assertEquals(0, filled, description);
+                    assertEquals(order.quantity(), resting, description);
+                    active++;
+                }
+                case PARTIALLY_EXECUTED -> {
+                    assertTrue(filled > 0 && filled < order.quantity(), description);
+                    assertEquals(order.quantity() - filled, resting, description);
+                    active++;
+                }
+                case EXECUTED -> {
+                    assertEquals(order.quantity(), filled, description);
+                    assertEquals(0, resting, description);
+                }
+                case CANCELLED -> assertEquals(0, filled, description);
+                case PARTIALLY_CANCELED -> assertTrue(filled > 0 && filled < order.quantity(), description);
+                default -> fail("order is left locked: " + description);
+            }
+        }
+        assertEquals(active, ordersService.restingOrdersCount());
+
+        Map<String, Integer> traded = trades.stream()
+                .collect(Collectors.groupingBy(Trade::symbol, Collectors.summingInt(Trade::quantity)));
+        Map<String, Integer> sold = orders.stream()
+                .filter(order -> order.type() == Order.Type.SELL)
+                .collect(Collectors.groupingBy(Order::symbol,
+                        Collectors.summingInt(order -> executed.getOrDefault(order.uuid(), 0))));
+        sold.forEach((symbol, quantity) -> assertEquals(quantity, traded.getOrDefault(symbol, 0), symbol));
+    }
+
+    private MatchingEngine matchingEngine(OrdersServiceImpl ordersService, OrderBooksHolder orderBooksHolder,
+                                          Queue<Trade> trades) {
+        TradeBus tradeBus = new TradeBus();
+        tradeBus.trades().subscribe(trades::add);
+        MatchingEngine matchingEngine = new MatchingEngine(ordersService, orderBooksHolder, tradeBus);
+        matchingEngine.pause();
+        matchingEngines.add(matchingEngine);
+        return matchingEngine;
+    }
+
+    private static List<Order> orders(OrdersServiceImpl ordersService, OrderBook orderBook, int threads, int orders) {
+        List<Order> result = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            for (int i = 0; i < orders; i++) {
+                result.add(ordersService.getOrderByUUID("%s-%s".formatted(thread, i)).block());
+            }
+        }
+        return result;
+    }
+
+    private static Order.State state(OrdersServiceImpl ordersService, String uuid) {
+        //noinspection ConstantConditions
+        return ordersService.getOrderByUUID(uuid).block().state();
+    }
+
+    /**
+     * Run the task in the threads released at once and wait for all of them.
+     */
+    private void runConcurrently(int threads, IntConsumer task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            int index = thread;
+            futures.add(executor.submit(() -> {
+                start.await();
+                task.accept(index);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+    }
+}
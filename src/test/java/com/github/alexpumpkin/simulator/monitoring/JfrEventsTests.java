@@ -0,0 +1,62 @@
+package com.github.alexpumpkin.simulator.monitoring;
+
+import com.github.alexpumpkin.simulator.model.AddOrderDTO;
+import com.github.alexpumpkin.simulator.model.Order;
+import com.github.alexpumpkin.simulator.orders.services.OrderBooksHolder;
+import com.github.alexpumpkin.simulator.orders.services.OrdersServiceImpl;
+import com.github.alexpumpkin.simulator.trades.TradeBus;
+import com.github.alexpumpkin.simulator.trades.model.Trade;
+import jdk.jfr.Enabled;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JfrEventsTests {
+    private static final List<String> PER_ORDER_EVENTS = List.of("simulator.OrderAdd", "simulator.OrderCancel",
+            "simulator.TradePublish");
+
+    @Test
+    void testPerOrderEventsAreDisabledByDefault() {
+        for (Class<? extends jdk.jfr.Event> eventClass : List.of(OrderAddEvent.class, OrderCancelEvent.class,
+                OrdersLockEvent.class, TradePublishEvent.class)) {
+            assertFalse(eventClass.getAnnotation(Enabled.class).value(), eventClass.getName());
+        }
+    }
+
+    @Test
+    void testEventsAreEmitted() throws InterruptedException {
+        Map<String, RecordedEvent> events = new ConcurrentHashMap<>();
+        try (RecordingStream stream = new RecordingStream()) {
+            PER_ORDER_EVENTS.forEach(name -> stream.enable(name).withThreshold(Duration.ZERO));
+            PER_ORDER_EVENTS.forEach(name -> stream.onEvent(name, event -> events.put(name, event)));
+            stream.setMaxAge(Duration.ofSeconds(10));
+            stream.startAsync();
+
+            OrdersServiceImpl ordersService = new OrdersServiceImpl(new OrderBooksHolder());
+            ordersService.add(Order.buy(new AddOrderDTO("J", 10, 5, "id_jfr"))).block();
+            ordersService.cancel("id_jfr").block();
+            new TradeBus().publish(new Trade("J", 5, 10, "sell", "buy"));
+
+            // events are delivered when the recording is flushed, about once a second
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (events.size() < PER_ORDER_EVENTS.size() && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+        }
+        assertEquals("id_jfr", events.get("simulator.OrderAdd").getString("uuid"));
+        assertFalse(events.get("simulator.OrderAdd").getBoolean("duplicate"));
+        assertEquals("id_jfr", events.get("simulator.OrderCancel").getString("uuid"));
+        assertEquals("PENDING", events.get("simulator.OrderCancel").getString("state"));
+        assertEquals(10, events.get("simulator.TradePublish").getInt("quantity"));
+        assertTrue(events.get("simulator.TradePublish").getDuration().toNanos() >= 0);
+    }
+}
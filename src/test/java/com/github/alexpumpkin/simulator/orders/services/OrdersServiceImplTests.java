@@ -0,0 +1,143 @@
+package com.github.alexpumpkin.simulator.orders.services;
+
+import com.github.alexpumpkin.simulator.model.AddOrderDTO;
+import com.github.alexpumpkin.simulator.model.AmendOrderDTO;
+import com.github.alexpumpkin.simulator.model.Order;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OrdersServiceImplTests {
+
+    private OrderBooksHolder orderBooksHolder;
+    private OrdersServiceImpl ordersService;
+
+    @BeforeEach
+    void setUp() {
+        orderBooksHolder = new OrderBooksHolder();
+        ordersService = new OrdersServiceImpl(orderBooksHolder);
+        ordersService.add(Order.sell(new AddOrderDTO("A", 100, 10, "sell"))).block();
+        ordersService.add(Order.buy(new AddOrderDTO("A", 40, 10, "buy"))).block();
+    }
+
+    @Test
+    void testDeferredCancel() {
+        ordersService.lockToProcess("sell", "buy");
+        Mono<Void> cancel = ordersService.cancel("sell");
+        assertEquals(Order.State.PROCESS_PENDING, state("sell"));
+
+        StepVerifier.create(cancel)
+                .then(() -> {
+                    ordersService.unlockProcessed("sell", Order.State.PARTIALLY_EXECUTED);
+                    ordersService.unlockProcessed("buy", Order.State.EXECUTED);
+                })
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+        assertEquals(Order.State.PARTIALLY_CANCELED, state("sell"));
+        assertEquals(Order.State.EXECUTED, state("buy"));
+    }
+
+    @Test
+    void testDeferredCancelOfExecutedOrder() {
+        ordersService.lockToProcess("sell", "buy");
+        Mono<Void> cancel = ordersService.cancel("buy");
+
+        StepVerifier.create(cancel)
+                .then(() -> {
+                    ordersService.unlockProcessed("sell", Order.State.PARTIALLY_EXECUTED);
+                    ordersService.unlockProcessed("buy", Order.State.EXECUTED);
+                })
+                .expectError(ResponseStatusException.class)
+                .verify(Duration.ofSeconds(1));
+        assertEquals(Order.State.EXECUTED, state("buy"));
+    }
+
+    @Test
+    void testOrderWithPendingCancelIsNotLocked() {
+        ordersService.lockToProcess("sell", "buy");
+        ordersService.cancel("sell").subscribe();
+        ordersService.unlockProcessed("sell", Order.State.PARTIALLY_EXECUTED);
+        ordersService.unlockProcessed("buy", Order.State.PARTIALLY_EXECUTED);
+
+        ordersService.lockToProcess("sell", "buy");
+        assertEquals(Order.State.PARTIALLY_CANCELED, state("sell"));
+        assertEquals(Order.State.PARTIALLY_EXECUTED, state("buy"));
+    }
+
+    @Test
+    void testAmendQuantityDecreaseKeepsPriority() {
+        Order order = order("sell");
+        Order amended = ordersService.amend("sell", new AmendOrderDTO(60, null)).block();
+
+        //noinspection ConstantConditions
+        assertEquals(60, amended.quantity());
+        assertEquals(order.registered(), amended.registered());
+        assertEquals(60, orderBooksHolder.getOrderBook("A").quantity(amended));
+        assertEquals(Order.State.PENDING, amended.state());
+    }
+
+    @Test
+    void testAmendPriceRequeuesOrder() {
+        Order order = order("sell");
+        Order amended = ordersService.amend("sell", new AmendOrderDTO(null, 11)).block();
+
+        //noinspection ConstantConditions
+        assertEquals(11, amended.price());
+        assertNotEquals(order.registered(), amended.registered());
+        assertEquals(0, orderBooksHolder.getOrderBook("A").quantity(order));
+        assertEquals(100, orderBooksHolder.getOrderBook("A").quantity(amended));
+    }
+
+    @Test
+    void testAmendPartiallyExecutedOrder() {
+        ordersService.lockToProcess("sell", "buy");
+        orderBooksHolder.getOrderBook("A").replace(order("sell"), 60);
+        ordersService.unlockProcessed("sell", Order.State.PARTIALLY_EXECUTED);
+
+        Order amended = ordersService.amend("sell", new AmendOrderDTO(120, null)).block();
+        //noinspection ConstantConditions
+        assertEquals(120, amended.quantity());
+        assertEquals(Order.State.PARTIALLY_EXECUTED, amended.state());
+        assertEquals(80, orderBooksHolder.getOrderBook("A").quantity(amended));
+        assertThrows(ResponseStatusException.class,
+                () -> ordersService.amend("sell", new AmendOrderDTO(40, null)).block());
+    }
+
+    @Test
+    void testAmendOfLockedOrderWaitsForUnlock() {
+        ordersService.lockToProcess("sell", "buy");
+        Mono<Order> amend = ordersService.amend("sell", new AmendOrderDTO(60, null));
+
+        StepVerifier.create(amend)
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(50))
+                .then(() -> {
+                    ordersService.unlockProcessed("sell", Order.State.PENDING);
+                    ordersService.unlockProcessed("buy", Order.State.PENDING);
+                })
+                .assertNext(amended -> {
+                    assertEquals(60, amended.quantity());
+                    assertEquals(Order.State.PENDING, amended.state());
+                })
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+        assertEquals(60, orderBooksHolder.getOrderBook("A").quantity(order("sell")));
+    }
+
+    private Order order(String uuid) {
+        return ordersService.getOrderByUUID(uuid).block();
+    }
+
+    private Order.State state(String uuid) {
+        //noinspection ConstantConditions
+        return ordersService.getOrderByUUID(uuid).block().state();
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.alexpumpkin.simulator.trades;
+
+import com.github.alexpumpkin.simulator.replication.CommandJournal;
+import com.github.alexpumpkin.simulator.trades.model.Trade;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class TradeBusTests {
+
+    @Test
+    void testSequence() {
+        TradeBus tradeBus = new TradeBus();
+        Trade first = tradeBus.publish(new Trade("A", 10, 1, "sell", "buy"));
+        Trade second = tradeBus.publish(new Trade("A", 10, 1, "sell", "buy"));
+
+        assertEquals(1, first.sequence());
+        assertEquals(2, second.sequence());
+        assertNotEquals(first.uuid(), second.uuid());
+    }
+
+    @Test
+    void testReplayedTradeKeepsSequence() {
+        TradeBus tradeBus = new TradeBus();
+        Trade trade = new Trade("A", 10, 1, "sell", "buy").withSequence(42, "uuid");
+
+        assertEquals(trade, tradeBus.publish(trade));
+        assertEquals(43, tradeBus.publish(new Trade("A", 10, 1, "sell", "buy")).sequence());
+    }
+
+    @Test
+    void testResumeFromSequence() {
+        TradeBus tradeBus = new TradeBus(new CommandJournal(false), 3);
+        for (int i = 0; i < 5; i++) {
+            tradeBus.publish(new Trade("A", 10, 1, "sell", "buy"));
+        }
+
+        StepVerifier.create(tradeBus.trades(4).map(Trade::sequence))
+                .expectNext(4L, 5L)
+                .then(() -> tradeBus.publish(new Trade("A", 10, 1, "sell", "buy")))
+                .expectNext(6L)
+                .thenCancel()
+                .verify(Duration.ofSeconds(1));
+        // evicted trades are skipped, the gap is visible in the sequence numbers
+        StepVerifier.create(tradeBus.trades(1).map(Trade::sequence))
+                .expectNext(4L, 5L, 6L)
+                .thenCancel()
+                .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void testReplayDisabled() {
+        TradeBus tradeBus = new TradeBus(new CommandJournal(false), 0);
+        tradeBus.publish(new Trade("A", 10, 1, "sell", "buy"));
+
+        StepVerifier.create(tradeBus.trades(1).map(Trade::sequence))
+                .then(() -> tradeBus.publish(new Trade("A", 10, 1, "sell", "buy")))
+                .expectNext(2L)
+                .thenCancel()
+                .verify(Duration.ofSeconds(1));
+        assertEquals(2, tradeBus.lastSequence());
+    }
+
+    @Test
+    void testConcurrentPublishersEmitInSequence() throws Exception {
+        TradeBus tradeBus = new TradeBus();
+        List<Long> emitted = new ArrayList<>();
+        Disposable subscription = tradeBus.trades().subscribe(trade -> emitted.add(trade.sequence()));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        tradeBus.publish(new Trade("A", 10, 1, "sell", "buy"));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+            subscription.dispose();
+        }
+
+        assertEquals(LongStream.rangeClosed(1, 40_000).boxed().toList(), emitted);
+    }
+}
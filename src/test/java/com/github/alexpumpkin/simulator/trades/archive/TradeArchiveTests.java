@@ -0,0 +1,98 @@
+package com.github.alexpumpkin.simulator.trades.archive;
+
+import com.github.alexpumpkin.simulator.trades.TradeBus;
+import com.github.alexpumpkin.simulator.trades.model.Trade;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TradeArchiveTests {
+    private static final Instant START = Instant.parse("2024-01-01T23:59:00Z");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testArchiveAndMerge() throws IOException {
+        List<Trade> published = archive();
+        TradeArchive archive = new TradeArchive(directory);
+        Path firstDay = archive.dayDirectory("A", LocalDate.parse("2024-01-01"));
+        // 600 trades of the first day in segments of 100 trades
+        assertEquals(6, countFiles(firstDay));
+        assertQueries(archive, published);
+
+        // segments of the past days are merged on start
+        TradeArchiver archiver = new TradeArchiver(new TradeBus(), directory, 100, Duration.ofHours(1));
+        archiver.start();
+        archiver.dispose();
+        assertEquals(1, countFiles(firstDay));
+        assertEquals(1, countFiles(archive.dayDirectory("A", LocalDate.parse("2024-01-02"))));
+        assertQueries(archive, published);
+    }
+
+    @Test
+    void testEmptyRange() {
+        TradeSummary summary = new TradeArchive(directory).summary("A", START, START.plusSeconds(1)).block();
+        //noinspection ConstantConditions
+        assertEquals(0, summary.trades());
+        assertNull(summary.vwap());
+    }
+
+    /**
+     * Publish 1500 trades of "A" for two days (one trade per 100 ms around midnight) and 10 trades of "B".
+     */
+    private List<Trade> archive() {
+        TradeBus tradeBus = new TradeBus();
+        TradeArchiver archiver = new TradeArchiver(tradeBus, directory, 100, Duration.ofHours(1));
+        archiver.start();
+        List<Trade> published = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            published.add(tradeBus.publish(new Trade(null, "A", 100 + i % 7 - i / 100, 1 + i % 5, "sell-" + i / 3,
+                    "buy-" + i / 2, START.plusMillis(i * 100L).plusNanos(i), 0)));
+            if (i % 150 == 0) {
+                tradeBus.publish(new Trade(null, "B", 10, 1, "sell", "buy", START.plusMillis(i * 100L), 0));
+            }
+        }
+        // queued trades are written on stop
+        archiver.dispose();
+        return published;
+    }
+
+    private static void assertQueries(TradeArchive archive, List<Trade> published) {
+        Instant from = START.plusSeconds(30);
+        Instant to = START.plusSeconds(90);
+        List<Trade> expected = published.stream()
+                .filter(trade -> !trade.timestamp().isBefore(from) && trade.timestamp().isBefore(to))
+                .toList();
+        assertEquals(published, archive.trades("A", Instant.EPOCH, START.plusSeconds(3600)).collectList().block());
+        assertEquals(expected, archive.trades("A", from, to).collectList().block());
+
+        long volume = expected.stream().mapToLong(Trade::quantity).sum();
+        long notional = expected.stream().mapToLong(trade -> (long) trade.price() * trade.quantity()).sum();
+        assertEquals(new TradeSummary("A", from, to, expected.size(), volume,
+                        expected.get(0).price(),
+                        expected.stream().mapToInt(Trade::price).max().orElseThrow(),
+                        expected.stream().mapToInt(Trade::price).min().orElseThrow(),
+                        expected.get(expected.size() - 1).price(),
+                        (double) notional / volume),
+                archive.summary("A", from, to).block());
+    }
+
+    private static long countFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}